@@ -0,0 +1,52 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Window analytics over 25 years of warm history, the cost is the segment lookups plus the prefix sums
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsBenchmark {
+
+    @Param({"30", "365", "3650"})
+    private int days;
+
+    private CurrencyService currencyService;
+
+    @Setup
+    public void setUp() {
+        List<CurrencyCode> currencies = List.of(CurrencyCode.USD);
+        RateSeriesStore seriesStore = Fixtures.seededSeries(currencies, 25);
+        CacheManager cacheManager = Fixtures.warmCache(currencies, 25);
+        currencyService = Fixtures.service(cacheManager, Fixtures.warmStore(cacheManager, seriesStore),
+                new LatestRateSnapshot(), seriesStore);
+    }
+
+    @Benchmark
+    public double averageRate() {
+        return currencyService.getAverageRate(days, CurrencyCode.USD);
+    }
+
+    @Benchmark
+    public String trend() {
+        return currencyService.getTrend(days, CurrencyCode.USD);
+    }
+
+    @Benchmark
+    public double variance() {
+        return currencyService.getVariance(days, CurrencyCode.USD);
+    }
+}
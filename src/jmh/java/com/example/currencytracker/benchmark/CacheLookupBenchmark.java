@@ -0,0 +1,71 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests answered from memory: latest rates from the prefetched snapshot and the
+ * Caffeine cache, and history assembled from cached month segments
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheLookupBenchmark {
+
+    private CurrencyService currencyService;
+    private RateHistoryStore rateHistoryStore;
+    private LocalDate monthAgo;
+
+    @Setup
+    public void setUp() {
+        List<CurrencyCode> currencies = List.of(CurrencyCode.USD, CurrencyCode.EUR);
+        RateSeriesStore seriesStore = Fixtures.seededSeries(currencies, 1);
+        CacheManager cacheManager = Fixtures.warmCache(currencies, 1);
+        rateHistoryStore = Fixtures.warmStore(cacheManager, seriesStore);
+
+        LatestRateSnapshot snapshot = new LatestRateSnapshot();
+        snapshot.swap(Map.of(CurrencyCode.USD, CurrencyRateDTO.ofFixing(CurrencyCode.USD,
+                Fixtures.LAST_DAY.toEpochDay(), 3.61)), Instant.now());
+        cacheManager.getCache(CacheConfig.LATEST_RATES).put(CurrencyCode.EUR,
+                CurrencyRateDTO.ofFixing(CurrencyCode.EUR, Fixtures.LAST_DAY.toEpochDay(), 4.22));
+
+        currencyService = Fixtures.service(cacheManager, rateHistoryStore, snapshot, seriesStore);
+        monthAgo = Fixtures.LAST_DAY.minusMonths(1);
+    }
+
+    @Benchmark
+    public CurrencyRateDTO latestFromSnapshot() {
+        return currencyService.fetchDailyRate(CurrencyCode.USD);
+    }
+
+    @Benchmark
+    public CurrencyRateDTO latestFromCache() {
+        return currencyService.fetchDailyRate(CurrencyCode.EUR);
+    }
+
+    @Benchmark
+    public void segmentLookup() {
+        rateHistoryStore.ensureLoaded(CurrencyCode.USD, Fixtures.LAST_DAY, Fixtures.LAST_DAY);
+    }
+
+    @Benchmark
+    public List<CurrencyRateDTO> monthOfHistory() {
+        return rateHistoryStore.getHistory(CurrencyCode.USD, monthAgo, Fixtures.LAST_DAY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.CrossRates;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk conversion of amounts in cents: fixed-point on the cross rate matrix against
+ * a BigDecimal per amount, both rounding half-even to the same result
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"1000000"})
+    private int amounts;
+
+    private CrossRates crossRates;
+    private long[] cents;
+    private int from;
+    private int to;
+
+    @Setup
+    public void setUp() {
+        crossRates = CrossRates.of(
+                Map.of(CurrencyCode.USD, new BigDecimal("3.6512"), CurrencyCode.JPY, new BigDecimal("0.024467")),
+                Map.of(CurrencyCode.USD, Fixtures.LAST_DAY, CurrencyCode.JPY, LocalDate.from(Fixtures.LAST_DAY)));
+        from = CurrencyCode.USD.ordinal();
+        to = CurrencyCode.JPY.ordinal();
+
+        Random random = new Random(42);
+        cents = new long[amounts];
+        for (int i = 0; i < amounts; i++) {
+            cents[i] = random.nextLong(100_000_000_00L);
+        }
+    }
+
+    @Benchmark
+    public long[] fixedPoint() {
+        return crossRates.convert(from, to, cents, 2, 0);
+    }
+
+    @Benchmark
+    public long[] bigDecimalPerAmount() {
+        BigDecimal rate = crossRates.rate(from, to);
+        long[] converted = new long[cents.length];
+        for (int i = 0; i < cents.length; i++) {
+            converted[i] = BigDecimal.valueOf(cents[i], 2).multiply(rate)
+                    .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.config.SchedulerProperties;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.LatestRateRevalidator;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Canned upstream payloads and a warm history store, shared by the benchmarks
+ */
+final class Fixtures {
+
+    static final List<CurrencyCode> CURRENCIES = List.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.GBP,
+            CurrencyCode.CHF, CurrencyCode.JPY, CurrencyCode.CZK, CurrencyCode.SEK, CurrencyCode.NOK,
+            CurrencyCode.DKK, CurrencyCode.HUF);
+
+    static final LocalDate LAST_DAY = LocalDate.now().minusDays(1);
+
+    private Fixtures() {
+    }
+
+    /**
+     * Upstream time series body of PLN -> X rates, five decimals like upstream publishes
+     */
+    static byte[] timeSeries(List<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        StringBuilder json = new StringBuilder("{\"amount\":1.0,\"base\":\"PLN\",\"start_date\":\"")
+                .append(from).append("\",\"end_date\":\"").append(to).append("\",\"rates\":{");
+        Random random = new Random(42);
+        boolean first = true;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (FixingCalendar.isWeekend(day)) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(day).append("\":{");
+            for (int c = 0; c < currencies.size(); c++) {
+                json.append(c == 0 ? "" : ",").append('"').append(currencies.get(c)).append("\":0.")
+                        .append(10000 + random.nextInt(89_990));
+            }
+            json.append('}');
+            first = false;
+        }
+        return json.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Series of the currencies filled with weekday fixings for the given years up to yesterday,
+     * at 4 decimals like the upstream quotes
+     */
+    static RateSeriesStore seededSeries(List<CurrencyCode> currencies, int years) {
+        RateSeriesStore store = new RateSeriesStore();
+        Random random = new Random(42);
+        for (CurrencyCode currency : currencies) {
+            RateSeries series = store.get(currency);
+            double rate = 4.0;
+            for (LocalDate day = LAST_DAY.minusYears(years); !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+                if (!FixingCalendar.isWeekend(day)) {
+                    rate *= 1 + random.nextGaussian() * 0.004;
+                    series.put(day.toEpochDay(), Math.rint(rate * 10_000) / 10_000);
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Cache manager with every month of the seeded years marked loaded, so no lookup reaches the database
+     */
+    static CacheManager warmCache(List<CurrencyCode> currencies, int years) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        Cache segments = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        for (CurrencyCode currency : currencies) {
+            for (YearMonth month = YearMonth.from(LAST_DAY.minusYears(years + 1));
+                 !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+                segments.put(new HistorySegment.Key(currency, month),
+                        new HistorySegment(currency, month, 21, month.atEndOfMonth()));
+            }
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Store serving everything from the warm cache and series, repositories and upstream are never reached
+     */
+    static RateHistoryStore warmStore(CacheManager cacheManager, RateSeriesStore seriesStore) {
+        return new RateHistoryStore(cacheManager, null, null, null, seriesStore);
+    }
+
+    /**
+     * Service over the warm store; upstream is absent, so only lookups that never miss can be measured
+     */
+    static CurrencyService service(CacheManager cacheManager, RateHistoryStore store, LatestRateSnapshot snapshot,
+                                   RateSeriesStore seriesStore) {
+        LatestRateRevalidator revalidator = new LatestRateRevalidator(null, cacheManager, new CurrencyApiProperties(),
+                new SchedulerProperties(), snapshot);
+        return new CurrencyService(null, store, cacheManager, snapshot, seriesStore, revalidator);
+    }
+}
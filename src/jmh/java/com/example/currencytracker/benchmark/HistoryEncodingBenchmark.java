@@ -0,0 +1,93 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateColumns;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.HistoryExporter;
+import com.example.currencytracker.service.RateHistoryStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History of 4 currencies as the JSON array the API sends by default against the rate columns
+ * sent for Accept: application/x-rate-columns, both ways. Payload sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryEncodingBenchmark {
+
+    private static final List<CurrencyCode> CURRENCIES = Fixtures.CURRENCIES.subList(0, 4);
+    private static final TypeReference<List<CurrencyRateDTO>> RATES = new TypeReference<>() {
+    };
+
+    @Param({"1", "5", "25"})
+    private int years;
+
+    private ObjectMapper objectMapper;
+    private RateHistoryStore store;
+    private HistoryExporter historyExporter;
+    private LocalDate from;
+    private byte[] json;
+    private byte[] columns;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured like the one Spring Boot gives the message converters
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        RateSeriesStore seriesStore = Fixtures.seededSeries(CURRENCIES, years);
+        CacheManager cacheManager = Fixtures.warmCache(CURRENCIES, years);
+        store = Fixtures.warmStore(cacheManager, seriesStore);
+        historyExporter = new HistoryExporter(store, seriesStore, null);
+
+        from = Fixtures.LAST_DAY.minusYears(years).plusDays(1);
+        Map<CurrencyCode, List<CurrencyRateDTO>> histories = store.getHistories(
+                EnumSet.copyOf(CURRENCIES), from, Fixtures.LAST_DAY);
+        List<CurrencyRateDTO> rates = CURRENCIES.stream().flatMap(c -> histories.get(c).stream()).toList();
+
+        json = objectMapper.writeValueAsBytes(rates);
+        columns = historyExporter.exportColumns(CURRENCIES, from, Fixtures.LAST_DAY);
+        System.out.printf("%n%d years, %d rates: json %d bytes, columns %d bytes (%.1f%%)%n", years, rates.size(),
+                json.length, columns.length, 100.0 * columns.length / json.length);
+    }
+
+    /**
+     * Building the DTOs is part of the JSON path, the columns are written from the series
+     */
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        Map<CurrencyCode, List<CurrencyRateDTO>> histories = store.getHistories(
+                EnumSet.copyOf(CURRENCIES), from, Fixtures.LAST_DAY);
+        return objectMapper.writeValueAsBytes(CURRENCIES.stream().flatMap(c -> histories.get(c).stream()).toList());
+    }
+
+    @Benchmark
+    public byte[] encodeColumns() {
+        return historyExporter.exportColumns(CURRENCIES, from, Fixtures.LAST_DAY);
+    }
+
+    @Benchmark
+    public List<CurrencyRateDTO> decodeJson() throws IOException {
+        return objectMapper.readValue(json, RATES);
+    }
+
+    @Benchmark
+    public List<RateColumns.Block> decodeColumns() {
+        return RateColumns.decode(columns);
+    }
+}
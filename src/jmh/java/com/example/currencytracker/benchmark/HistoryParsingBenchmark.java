@@ -0,0 +1,72 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.client.FixingDecoder;
+import com.example.currencytracker.client.FrankfurterClient;
+import com.example.currencytracker.series.FixingTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding an upstream history body of 10 currencies: the streaming decoder alone, the whole
+ * client call over a canned response, and databinding to maps as the client used to do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryParsingBenchmark {
+
+    @Param({"1", "5", "25"})
+    private int years;
+
+    private byte[] payload;
+    private LocalDate from;
+    private LocalDate to;
+    private FrankfurterClient client;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        to = Fixtures.LAST_DAY;
+        from = to.minusYears(years).plusDays(1);
+        payload = Fixtures.timeSeries(Fixtures.CURRENCIES, from, to);
+        objectMapper = new ObjectMapper();
+
+        RestClient restClient = RestClient.builder()
+                .baseUrl("http://upstream")
+                .requestFactory((uri, method) -> {
+                    MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+                    request.setResponse(new MockClientHttpResponse(payload, HttpStatus.OK));
+                    return request;
+                })
+                .build();
+        client = new FrankfurterClient(restClient);
+    }
+
+    @Benchmark
+    public FixingTable decode() throws IOException {
+        return FixingDecoder.decodeQuoted(new ByteArrayInputStream(payload), Fixtures.CURRENCIES, from, to);
+    }
+
+    @Benchmark
+    public FixingTable fetchRange() {
+        return client.fetchRange(Fixtures.CURRENCIES, from, to);
+    }
+
+    @Benchmark
+    public Map<?, ?> databindBaseline() throws IOException {
+        return objectMapper.readValue(payload, Map.class);
+    }
+}
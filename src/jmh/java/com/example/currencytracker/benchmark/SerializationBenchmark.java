@@ -0,0 +1,68 @@
+package com.example.currencytracker.benchmark;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.HistoryExporter;
+import com.example.currencytracker.service.RateHistoryStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing rates as the API does: one DTO with its @JsonFormat timestamp, a year of DTOs
+ * as a JSON array, and the same year streamed as NDJSON from the series
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CurrencyRateDTO rate;
+    private List<CurrencyRateDTO> year;
+    private HistoryExporter historyExporter;
+    private LocalDate from;
+
+    @Setup
+    public void setUp() {
+        // configured like the one Spring Boot gives the message converters
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<CurrencyCode> currencies = List.of(CurrencyCode.USD);
+        RateSeriesStore seriesStore = Fixtures.seededSeries(currencies, 1);
+        CacheManager cacheManager = Fixtures.warmCache(currencies, 1);
+        RateHistoryStore store = Fixtures.warmStore(cacheManager, seriesStore);
+
+        from = Fixtures.LAST_DAY.minusYears(1).plusDays(1);
+        year = store.getHistory(CurrencyCode.USD, from, Fixtures.LAST_DAY);
+        rate = year.getLast();
+        historyExporter = new HistoryExporter(store, seriesStore, null);
+    }
+
+    @Benchmark
+    public byte[] singleRate() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(rate);
+    }
+
+    @Benchmark
+    public byte[] yearAsArray() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(year);
+    }
+
+    @Benchmark
+    public void yearAsNdjson() throws IOException {
+        historyExporter.exportHistory(List.of(CurrencyCode.USD), from, Fixtures.LAST_DAY, OutputStream.nullOutputStream());
+    }
+}
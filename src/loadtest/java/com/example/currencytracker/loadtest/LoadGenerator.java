@@ -0,0 +1,192 @@
+package com.example.currencytracker.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the rates API. Requests are issued on a fixed schedule at the
+ * target rate whatever the response times are, and latency is measured from the scheduled send
+ * time, so a stalled server shows up in the tail instead of silently lowering the load.
+ * The request sequence is drawn from a seeded random, the same settings replay the same requests.
+ */
+public final class LoadGenerator {
+
+    public static final List<String> ENDPOINTS = List.of("latest", "history", "avg", "trend");
+
+    public record Settings(URI target, int rps, Duration warmup, Duration duration,
+                           List<String> currencies, Map<String, Integer> mix, long seed) {
+
+        public static Settings from(URI target, Map<String, String> args) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String weight : args.getOrDefault("mix", "latest:4,history:2,avg:2,trend:2").split(",")) {
+                String[] parts = weight.split(":");
+                if (!ENDPOINTS.contains(parts[0])) {
+                    throw new IllegalArgumentException("Unknown endpoint in mix: " + parts[0]);
+                }
+                mix.put(parts[0], Integer.parseInt(parts[1]));
+            }
+            return new Settings(target,
+                    Integer.parseInt(args.getOrDefault("rps", "200")),
+                    LoadTest.duration(args.getOrDefault("warmup", "10s")),
+                    LoadTest.duration(args.getOrDefault("duration", "60s")),
+                    List.of(args.getOrDefault("currencies", "USD,EUR,GBP,CHF").split(",")),
+                    mix,
+                    Long.parseLong(args.getOrDefault("seed", "42")));
+        }
+    }
+
+    private record Call(String endpoint, URI uri) {
+    }
+
+    /**
+     * Latencies of one endpoint in the measured window, in milliseconds
+     */
+    public record Result(String endpoint, long requests, long errors, double throughput,
+                         double p50, double p99, double p999, double max) {
+    }
+
+    public record Report(Duration measured, List<Result> results) {
+
+        public void print(PrintStream out) {
+            out.printf("%-8s %9s %7s %10s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            for (Result r : results) {
+                out.printf("%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                        r.endpoint(), r.requests(), r.errors(), r.throughput(), r.p50(), r.p99(), r.p999(), r.max());
+            }
+        }
+    }
+
+    private final Settings settings;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        for (String endpoint : settings.mix().keySet()) {
+            latencies.put(endpoint, new ConcurrentHistogram(3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public Report run() {
+        Random random = new Random(settings.seed());
+        long period = 1_000_000_000L / settings.rps();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduled = start + i * period;
+                if (scheduled >= end) {
+                    break;
+                }
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Call call = next(random);
+                boolean measured = scheduled >= measureFrom;
+                executor.execute(() -> send(call, scheduled, measured));
+            }
+        }
+        return report();
+    }
+
+    private void send(Call call, long scheduled, boolean measured) {
+        boolean failed;
+        try {
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(call.uri())
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (measured) {
+            latencies.get(call.endpoint()).recordValue((System.nanoTime() - scheduled) / 1_000);
+            if (failed) {
+                errors.get(call.endpoint()).increment();
+            }
+        }
+    }
+
+    private Call next(Random random) {
+        String endpoint = pick(random);
+        String currency = settings.currencies().get(random.nextInt(settings.currencies().size()));
+        String query = switch (endpoint) {
+            case "latest" -> "currency=" + currency;
+            case "history" -> {
+                LocalDate to = LocalDate.now().minusDays(random.nextInt(730));
+                LocalDate from = to.minusDays(7 + random.nextInt(358));
+                yield "currency=" + currency + "&from=" + from + "&to=" + to;
+            }
+            default -> "currency=" + currency + "&days=" + List.of(7, 30, 90, 365).get(random.nextInt(4));
+        };
+        return new Call(endpoint, settings.target().resolve("/api/rates/" + endpoint + "?" + query));
+    }
+
+    private String pick(Random random) {
+        int total = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+        int draw = random.nextInt(total);
+        for (Map.Entry<String, Integer> weight : settings.mix().entrySet()) {
+            draw -= weight.getValue();
+            if (draw < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private Report report() {
+        double seconds = settings.duration().toNanos() / 1e9;
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        List<Result> results = new ArrayList<>();
+        for (String endpoint : settings.mix().keySet()) {
+            Histogram histogram = latencies.get(endpoint);
+            long failed = errors.get(endpoint).sum();
+            all.add(histogram);
+            allErrors += failed;
+            results.add(result(endpoint, histogram, failed, seconds));
+        }
+        results.add(result("all", all, allErrors, seconds));
+        return new Report(settings.duration(), results);
+    }
+
+    private static Result result(String endpoint, Histogram histogram, long failed, double seconds) {
+        return new Result(endpoint, histogram.getTotalCount(), failed, histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.currencytracker.loadtest;
+
+import com.example.currencytracker.CurrencyTrackerApplication;
+import com.example.currencytracker.client.UpstreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Offline load test: starts the upstream stand-in, boots the application against it and drives
+ * the rates API at a fixed rate. Options, all --name=value:
+ * <ul>
+ *   <li>rps, warmup, duration, mix (latest:4,history:2,avg:2,trend:2), currencies, seed - the load</li>
+ *   <li>latency, jitter, error-rate - the stand-in</li>
+ *   <li>target - url of an already running application, skips the stand-in and the boot</li>
+ *   <li>out - json report, target/loadtest-result.json by default</li>
+ * </ul>
+ * Every other option is handed to the application, e.g. --spring.datasource.url=...
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = options(args);
+
+        LoadGenerator.Report report;
+        Map<String, Object> upstream = new LinkedHashMap<>();
+        if (options.containsKey("target")) {
+            report = new LoadGenerator(LoadGenerator.Settings.from(URI.create(options.get("target")), options)).run();
+        } else {
+            UpstreamStandIn.Settings standInSettings = UpstreamStandIn.Settings.from(options);
+            try (UpstreamStandIn standIn = UpstreamStandIn.start(0, standInSettings);
+                 ConfigurableApplicationContext context = boot(args, standIn.uri())) {
+                URI target = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+                report = new LoadGenerator(LoadGenerator.Settings.from(target, options)).run();
+
+                upstream.put("standIn", standInSettings);
+                upstream.put("requests", standIn.requests());
+                upstream.put("injectedFailures", standIn.failures());
+                upstream.put("timedCalls", context.getBean(MeterRegistry.class)
+                        .find(UpstreamMetrics.CALLS).timers().stream().mapToLong(Timer::count).sum());
+            }
+        }
+
+        report.print(System.out);
+        upstream.forEach((name, value) -> System.out.println("upstream " + name + ": " + value));
+
+        // application options such as datasource credentials stay out of the report
+        Map<String, String> harnessOptions = new LinkedHashMap<>(options);
+        harnessOptions.keySet().removeIf(name -> name.contains("."));
+
+        File out = new File(options.getOrDefault("out", "target/loadtest-result.json"));
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(out, Map.of("options", harnessOptions, "report", report, "upstream", upstream));
+        System.out.println("Report written to " + out);
+        System.exit(0);
+    }
+
+    static ConfigurableApplicationContext boot(String[] args, URI upstream) {
+        List<String> appArgs = new ArrayList<>(List.of(args));
+        appArgs.add("--currency-api.upstream.url=" + upstream);
+        if (appArgs.stream().noneMatch(arg -> arg.startsWith("--currency-api.url="))) {
+            appArgs.add("--currency-api.url=" + upstream + "/api/exchangerates");
+        }
+        appArgs.add("--server.port=0");
+        appArgs.add("--spring.jpa.show-sql=false");
+        appArgs.add("--logging.level.com.example.currencytracker=INFO");
+        return SpringApplication.run(CurrencyTrackerApplication.class, appArgs.toArray(String[]::new));
+    }
+
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 50ms, 10s, 2m or ISO-8601
+     */
+    static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
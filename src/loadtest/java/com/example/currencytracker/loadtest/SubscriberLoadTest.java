@@ -0,0 +1,157 @@
+package com.example.currencytracker.loadtest;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.service.RateBroadcaster;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscriber load test on one node: boots the application against the upstream stand-in,
+ * opens server-sent event subscriptions and times broadcasts from the publish call until every
+ * subscriber has read the event. Options, all --name=value:
+ * <ul>
+ *   <li>subscribers (5000), broadcasts (20), interval (500ms), currencies (USD,EUR) - the load</li>
+ * </ul>
+ * Every other option is handed to the application, e.g. --spring.datasource.url=...
+ */
+public final class SubscriberLoadTest {
+
+    private SubscriberLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadTest.options(args);
+        int subscribers = Integer.parseInt(options.getOrDefault("subscribers", "5000"));
+        int broadcasts = Integer.parseInt(options.getOrDefault("broadcasts", "20"));
+        Duration interval = LoadTest.duration(options.getOrDefault("interval", "500ms"));
+        List<CurrencyCode> currencies = Arrays.stream(options.getOrDefault("currencies", "USD,EUR").split(","))
+                .map(CurrencyCode::valueOf)
+                .toList();
+
+        List<String> appArgs = new ArrayList<>(List.of(args));
+        appArgs.add("--server.tomcat.max-connections=" + (subscribers + 1000));
+        appArgs.add("--subscriptions.max-subscribers=" + subscribers);
+
+        try (UpstreamStandIn standIn = UpstreamStandIn.start(0, UpstreamStandIn.Settings.from(options));
+             ConfigurableApplicationContext context = LoadTest.boot(appArgs.toArray(String[]::new), standIn.uri())) {
+            URI subscribe = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/rates/subscribe?currency=" + String.join(",", currencies.stream().map(Enum::name).toList()));
+            RateBroadcaster broadcaster = context.getBean(RateBroadcaster.class);
+
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            Map<String, Long> publishedAt = new ConcurrentHashMap<>();
+            Histogram latency = new ConcurrentHistogram(3);
+            AtomicLong received = new AtomicLong();
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            long connectStarted = System.nanoTime();
+            List<CompletableFuture<?>> streams = new ArrayList<>();
+            for (int i = 0; i < subscribers; i++) {
+                // at most 200 subscriptions opening at a time, a burst of connects overflows the accept queue
+                while (i - broadcaster.stats().subscribers() >= 200) {
+                    Thread.sleep(1);
+                }
+                streams.add(client.sendAsync(
+                        HttpRequest.newBuilder(subscribe).header("Accept", "text/event-stream").build(),
+                        HttpResponse.BodyHandlers.fromLineSubscriber(new LineReader(publishedAt, latency, received))));
+            }
+            while (broadcaster.stats().subscribers() < subscribers && System.nanoTime() - connectStarted < 120_000_000_000L) {
+                Thread.sleep(50);
+            }
+            Duration connectTime = Duration.ofNanos(System.nanoTime() - connectStarted);
+            int connected = broadcaster.stats().subscribers();
+            System.gc();
+            long heapUsed = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            int threadsConnected = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            Histogram fanOut = new Histogram(3);
+            long receivedBefore = received.get();
+            for (int b = 1; b <= broadcasts; b++) {
+                Map<CurrencyCode, CurrencyRateDTO> rates = new EnumMap<>(CurrencyCode.class);
+                for (CurrencyCode currency : currencies) {
+                    BigDecimal rate = BigDecimal.valueOf(3_0000 + b, 4);
+                    rates.put(currency, new CurrencyRateDTO(currency.name(), rate, LocalDate.now().atTime(16, 0).plusMinutes(b)));
+                    publishedAt.put(rate.toPlainString(), System.nanoTime());
+                }
+                long started = System.nanoTime();
+                broadcaster.publish(rates);
+                fanOut.recordValue((System.nanoTime() - started) / 1_000);
+                Thread.sleep(interval.toMillis());
+            }
+            long expected = (long) connected * broadcasts * currencies.size();
+
+            System.out.printf("subscribers connected: %d of %d in %d ms%n", connected, subscribers, connectTime.toMillis());
+            System.out.printf("platform threads: %d before, %d with all subscribers connected%n", threadsBefore, threadsConnected);
+            System.out.printf("heap used with subscribers connected: %d MB%n", heapUsed / (1024 * 1024));
+            System.out.printf("broadcasts: %d, events received: %d of %d%n", broadcasts, received.get() - receivedBefore, expected);
+            System.out.printf("publish call (offer to all buffers) ms: p50 %.2f  p99 %.2f  max %.2f%n",
+                    fanOut.getValueAtPercentile(50) / 1000.0, fanOut.getValueAtPercentile(99) / 1000.0,
+                    fanOut.getMaxValue() / 1000.0);
+            System.out.printf("publish to subscriber read ms: p50 %.2f  p99 %.2f  p999 %.2f  max %.2f%n",
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0, latency.getMaxValue() / 1000.0);
+            System.out.println("broadcaster: " + broadcaster.stats());
+
+            streams.forEach(stream -> stream.cancel(true));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Reads one event stream and records the delay of every rate event it was timed for
+     */
+    private record LineReader(Map<String, Long> publishedAt, Histogram latency, AtomicLong received)
+            implements Flow.Subscriber<String> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            int at = line.indexOf("\"rate\":");
+            if (at < 0) {
+                return;
+            }
+            String rate = line.substring(at + 7, line.indexOf(',', at));
+            Long published = publishedAt.get(rate);
+            if (published != null) {
+                latency.recordValue((System.nanoTime() - published) / 1_000);
+                received.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+package com.example.currencytracker.loadtest;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for api.frankfurter.app and api.nbp.pl. Serves /latest and /{from}..{to} for
+ * X -> PLN and PLN -> X quotes, and the NBP /api/exchangerates/rates and /tables resources, with
+ * the same shapes and range limits upstream uses. Rates are a pure function of currency and day,
+ * so every run sees the same data and both APIs agree. Latency, jitter and the share of 503 answers are
+ * configurable; which requests fail is derived from the seed and the request number.
+ */
+public final class UpstreamStandIn implements AutoCloseable {
+
+    public record Settings(Duration latency, Duration jitter, double errorRate, long seed) {
+
+        public static Settings from(Map<String, String> args) {
+            return new Settings(
+                    LoadTest.duration(args.getOrDefault("latency", "50ms")),
+                    LoadTest.duration(args.getOrDefault("jitter", "20ms")),
+                    Double.parseDouble(args.getOrDefault("error-rate", "0")),
+                    Long.parseLong(args.getOrDefault("seed", "42")));
+        }
+    }
+
+    private static final String PLN = "PLN";
+    private static final String NBP = "/api/exchangerates/";
+    private static final LocalDate NBP_FIRST_DAY = LocalDate.of(2002, 1, 2);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private UpstreamStandIn(HttpServer server, ExecutorService executor, Settings settings) {
+        this.server = server;
+        this.executor = executor;
+        this.settings = settings;
+    }
+
+    /**
+     * Start on the given port, 0 picks a free one
+     */
+    public static UpstreamStandIn start(int port, Settings settings) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        UpstreamStandIn standIn = new UpstreamStandIn(server, executor, settings);
+        server.createContext("/", standIn::handle);
+        server.setExecutor(executor);
+        server.start();
+        return standIn;
+    }
+
+    public URI uri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long request = requests.incrementAndGet();
+            long hash = mix(settings.seed() ^ request);
+            sleep(settings.latency().plusNanos((long) (unit(hash) * settings.jitter().toNanos())));
+
+            if (unit(mix(hash)) < settings.errorRate()) {
+                failures.incrementAndGet();
+                respond(exchange, 503, "{\"message\":\"injected failure\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith(NBP)) {
+                nbp(exchange, path.substring(NBP.length()).split("/"));
+                return;
+            }
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String from = query.get("from");
+            List<String> to = query.containsKey("to") ? List.of(query.get("to").split(",")) : List.of();
+            if (from == null || to.isEmpty()) {
+                respond(exchange, 422, "{\"message\":\"from and to are required\"}");
+                return;
+            }
+
+            if (path.equals("/latest")) {
+                respond(exchange, 200, latest(from, to, lastFixing(LocalDate.now())));
+            } else if (path.matches("/\\d{4}-\\d{2}-\\d{2}\\.\\.\\d{4}-\\d{2}-\\d{2}")) {
+                LocalDate start = LocalDate.parse(path.substring(1, 11));
+                LocalDate end = LocalDate.parse(path.substring(13));
+                respond(exchange, 200, range(from, to, start, end.isAfter(LocalDate.now()) ? LocalDate.now() : end));
+            } else {
+                respond(exchange, 404, "{\"message\":\"not found\"}");
+            }
+        }
+    }
+
+    /**
+     * rates/{table}/{code}/[{from}/{to}/] or tables/{table}/[{from}/{to}/]
+     */
+    private static void nbp(HttpExchange exchange, String[] parts) throws IOException {
+        boolean series = parts.length > 0 && parts[0].equals("rates");
+        int rangeAt = series ? 3 : 2;
+        if (parts.length != rangeAt && parts.length != rangeAt + 2 || !series && !parts[0].equals("tables")) {
+            respond(exchange, 404, "404 NotFound");
+            return;
+        }
+        LocalDate start;
+        LocalDate end;
+        if (parts.length == rangeAt) {
+            start = end = lastFixing(LocalDate.now());
+        } else {
+            start = LocalDate.parse(parts[rangeAt]);
+            end = LocalDate.parse(parts[rangeAt + 1]);
+            if (end.isAfter(LocalDate.now())) {
+                end = LocalDate.now();
+            }
+        }
+        long days = end.toEpochDay() - start.toEpochDay() + 1;
+        if (start.isBefore(NBP_FIRST_DAY) || days < 1) {
+            respond(exchange, 400, "400 BadRequest - Błędny zakres dat / Invalid date range");
+            return;
+        }
+        if (days > (series ? 367 : 93)) {
+            respond(exchange, 400, "400 BadRequest - Przekroczony limit " + (series ? 367 : 93) + " dni / Limit exceeded");
+            return;
+        }
+
+        List<LocalDate> fixings = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            if (!isWeekend(day)) {
+                fixings.add(day);
+            }
+        }
+        if (fixings.isEmpty()) {
+            respond(exchange, 404, "404 NotFound - Brak danych / No data");
+            return;
+        }
+
+        String table = parts[1];
+        StringBuilder json = new StringBuilder();
+        if (series) {
+            String code = parts[2];
+            json.append("{\"table\":\"").append(table).append("\",\"code\":\"").append(code).append("\",\"rates\":[");
+            for (int i = 0; i < fixings.size(); i++) {
+                json.append(i == 0 ? "" : ",").append("{\"no\":\"").append(number(fixings.get(i), table))
+                        .append("\",\"effectiveDate\":\"").append(fixings.get(i))
+                        .append("\",\"mid\":").append(rate(code, fixings.get(i))).append('}');
+            }
+            json.append("]}");
+        } else {
+            json.append('[');
+            for (int i = 0; i < fixings.size(); i++) {
+                LocalDate day = fixings.get(i);
+                json.append(i == 0 ? "" : ",").append("{\"table\":\"").append(table)
+                        .append("\",\"no\":\"").append(number(day, table))
+                        .append("\",\"effectiveDate\":\"").append(day).append("\",\"rates\":[");
+                CurrencyCode[] codes = CurrencyCode.values();
+                for (int c = 0; c < codes.length; c++) {
+                    json.append(c == 0 ? "" : ",").append("{\"code\":\"").append(codes[c].name())
+                            .append("\",\"mid\":").append(rate(codes[c].name(), day)).append('}');
+                }
+                json.append("]}");
+            }
+            json.append(']');
+        }
+        respond(exchange, 200, json.toString());
+    }
+
+    private static String number(LocalDate day, String table) {
+        return day.getDayOfYear() + "/" + table + "/NBP/" + day.getYear();
+    }
+
+    private static String latest(String from, List<String> to, LocalDate day) {
+        StringBuilder json = new StringBuilder("{\"amount\":1.0,\"base\":\"").append(from)
+                .append("\",\"date\":\"").append(day).append("\",\"rates\":");
+        quotes(json, from, to, day);
+        return json.append('}').toString();
+    }
+
+    private static String range(String from, List<String> to, LocalDate start, LocalDate end) {
+        StringBuilder json = new StringBuilder("{\"amount\":1.0,\"base\":\"").append(from)
+                .append("\",\"start_date\":\"").append(start).append("\",\"end_date\":\"").append(end)
+                .append("\",\"rates\":{");
+        boolean first = true;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            if (isWeekend(day)) {
+                continue;
+            }
+            json.append(first ? "\"" : ",\"").append(day).append("\":");
+            quotes(json, from, to, day);
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void quotes(StringBuilder json, String from, List<String> to, LocalDate day) {
+        json.append('{');
+        for (int i = 0; i < to.size(); i++) {
+            String currency = to.get(i);
+            double quote = from.equals(PLN) ? round(1 / rate(currency, day), 5) : rate(from, day);
+            json.append(i == 0 ? "\"" : ",\"").append(currency).append("\":").append(quote);
+        }
+        json.append('}');
+    }
+
+    /**
+     * X -> PLN rate of the day: a slow seasonal swing around a per-currency level plus daily noise
+     */
+    static double rate(String currency, LocalDate day) {
+        long currencyHash = mix(currency.hashCode());
+        double level = 0.5 + 4.5 * unit(currencyHash);
+        double swing = 0.05 * Math.sin(day.toEpochDay() / 60.0 + unit(mix(currencyHash)) * 2 * Math.PI);
+        double noise = 0.004 * (unit(mix(currencyHash ^ day.toEpochDay())) - 0.5);
+        return round(level * (1 + swing + noise), 4);
+    }
+
+    private static LocalDate lastFixing(LocalDate day) {
+        while (isWeekend(day)) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    private static boolean isWeekend(LocalDate day) {
+        return day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private static double round(double value, int scale) {
+        double factor = Math.pow(10, scale);
+        return Math.rint(value * factor) / factor;
+    }
+
+    /**
+     * SplitMix64 finalizer, a cheap stateless hash
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the stand-in alone: --port=8089 --latency=50ms --jitter=20ms --error-rate=0.01
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadTest.options(args);
+        UpstreamStandIn standIn = start(Integer.parseInt(options.getOrDefault("port", "8089")), Settings.from(options));
+        System.out.println("Upstream stand-in listening on " + standIn.uri());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.exception.UpstreamUnavailableException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling a failing dependency. After the given number of consecutive failures the
+ * circuit opens and calls fail at once for the open duration; then a single trial call is let
+ * through, its success closes the circuit and its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public record Stats(State state, int consecutiveFailures, long rejected, Instant openedAt) {
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean trialInFlight;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, Clock clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Run the call unless the circuit is open. Only exceptions matching isFailure count
+     * against the dependency, others are rethrown as they are. Errors always count.
+     */
+    public <T> T execute(Supplier<T> call, Predicate<RuntimeException> isFailure) {
+        acquire();
+        try {
+            T value = call.get();
+            onSuccess();
+            return value;
+        } catch (RuntimeException e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        } catch (Error e) {
+            // counted so a HALF_OPEN trial ending in an error does not hold the trial slot forever
+            onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Fail at once when the call would be rejected now, without taking the trial of a half open
+     * circuit. Lets callers skip waiting for a quota token on a call that cannot go out.
+     */
+    public synchronized void rejectIfOpen() {
+        if (state == State.OPEN) {
+            Duration remaining = Duration.between(clock.instant(), openedAt.plus(openDuration));
+            if (remaining.isPositive()) {
+                reject(remaining);
+            }
+        } else if (state == State.HALF_OPEN && trialInFlight) {
+            reject(openDuration);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, consecutiveFailures, rejected.sum(), openedAt);
+    }
+
+    private synchronized void acquire() {
+        if (state == State.OPEN) {
+            Duration remaining = Duration.between(clock.instant(), openedAt.plus(openDuration));
+            if (remaining.isPositive()) {
+                reject(remaining);
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                reject(openDuration);
+            }
+            trialInFlight = true;
+        }
+    }
+
+    private void reject(Duration retryAfter) {
+        rejected.increment();
+        throw new UpstreamUnavailableException("Circuit " + name + " is open after " + consecutiveFailures
+                + " consecutive failures", retryAfter);
+    }
+
+    private synchronized void onSuccess() {
+        // a slow call finishing after the circuit opened says nothing about the dependency now
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+            trialInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams an upstream time series response token by token straight into a FixingTable.
+ * Dates and rates are read as primitives, so apart from the table columns a parsed day
+ * allocates nothing but the date key Jackson interns.
+ */
+public final class FixingDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Rates are persisted with 6 decimals
+     */
+    private static final double RATE_SCALE = 1_000_000;
+
+    /**
+     * Powers of ten that are exact doubles
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixingDecoder() {
+    }
+
+    /**
+     * Decode X -> PLN rates of one currency, null when the response holds no rates
+     */
+    public static FixingTable decodeBase(InputStream body, CurrencyCode currency,
+                                         LocalDate from, LocalDate to) throws IOException {
+        return decode(body, List.of(currency), Map.of("PLN", 0), false, from, to);
+    }
+
+    /**
+     * Decode PLN -> X rates of many currencies inverted to X -> PLN, null when the response holds no rates
+     */
+    public static FixingTable decodeQuoted(InputStream body, Collection<CurrencyCode> currencies,
+                                           LocalDate from, LocalDate to) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        int column = 0;
+        for (CurrencyCode currency : currencies) {
+            columns.put(currency.name(), column++);
+        }
+        return decode(body, currencies, columns, true, from, to);
+    }
+
+    private static FixingTable decode(InputStream body, Collection<CurrencyCode> currencies,
+                                      Map<String, Integer> columns, boolean invert,
+                                      LocalDate from, LocalDate to) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+
+            FixingTable table = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("rates".equals(field) && value == JsonToken.START_OBJECT) {
+                    table = new FixingTable(currencies, expectedRows(from, to));
+                    readRates(parser, table, columns, invert);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (table != null) {
+                table.sortByDay();
+            }
+            return table;
+        }
+    }
+
+    private static void readRates(JsonParser parser, FixingTable table,
+                                  Map<String, Integer> columns, boolean invert) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int row = table.addRow(epochDay(parser));
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected the rates of a day");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Integer column = columns.get(parser.currentName());
+                JsonToken value = parser.nextToken();
+                if (column != null && value.isNumeric()) {
+                    double rate = number(parser);
+                    table.set(row, column, invert ? invert(rate) : rate);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Epoch day of a yyyy-MM-dd field name, without building a LocalDate
+     */
+    static long epochDay(JsonParser parser) throws IOException {
+        return epochDay(parser, parser.currentName());
+    }
+
+    /**
+     * Epoch day of a yyyy-MM-dd text
+     */
+    static long epochDay(JsonParser parser, String date) throws IOException {
+        if (date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            throw new JsonParseException(parser, "Expected a yyyy-MM-dd date, got " + date);
+        }
+        int year = digits(parser, date, 0, 4);
+        int month = digits(parser, date, 5, 7);
+        int day = digits(parser, date, 8, 10);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new JsonParseException(parser, "Expected a yyyy-MM-dd date, got " + date);
+        }
+
+        // days from civil, counting years from March so the leap day ends the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(JsonParser parser, String text, int from, int to) throws IOException {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new JsonParseException(parser, "Expected a yyyy-MM-dd date, got " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Value of the current number token read from the parser's text buffer. Plain decimals of up to
+     * 15 significant digits and 22 decimals are exact as digits / 10^n, the rare other forms go
+     * through Jackson.
+     */
+    static double number(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+
+        boolean negative = offset < end && text[offset] == '-';
+        long digits = 0;
+        int significant = 0;
+        int decimals = -1;
+        for (int i = negative ? offset + 1 : offset; i < end; i++) {
+            char c = text[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9' && significant < 15) {
+                digits = digits * 10 + (c - '0');
+                if (digits > 0) {
+                    significant++;
+                }
+                if (decimals >= 0 && ++decimals == POWERS_OF_TEN.length) {
+                    // leading zeros after the point run past the exact powers of ten
+                    return parser.getDoubleValue();
+                }
+            } else {
+                return parser.getDoubleValue();
+            }
+        }
+
+        double value = decimals > 0 ? digits / POWERS_OF_TEN[decimals] : digits;
+        return negative ? -value : value;
+    }
+
+    /**
+     * PLN -> X rate to X -> PLN, rounded half even at the persisted scale
+     */
+    private static double invert(double plnRate) {
+        return Math.rint(RATE_SCALE / plnRate) / RATE_SCALE;
+    }
+
+    /**
+     * Publication days of the range, fixings are only published on weekdays
+     */
+    private static int expectedRows(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        return (int) Math.max(1, days * 5 / 7 + 2);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.series.FixingTable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+
+@Component
+@RequiredArgsConstructor
+public class FrankfurterClient implements RateProvider {
+
+    public static final String NAME = "frankfurter";
+
+    /**
+     * Bound to the upstream base url, see AppConfig. Dates are passed as template variables, so the
+     * http.client.requests metrics are tagged by endpoint and not by every distinct range. Currency
+     * lists stay literal: upstream expects the commas unencoded and the configured sets are few.
+     */
+    private final RestClient upstreamRestClient;
+
+    private static final int RATE_SCALE = 6;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Fetch latest X -> PLN rate from upstream, asked the same way as for many currencies
+     * so a fixing has one value however it was batched
+     */
+    @Override
+    public CurrencyRateDTO fetchLatest(CurrencyCode currency) {
+        CurrencyRateDTO rate = fetchLatest(List.of(currency)).get(currency);
+        if (rate == null) {
+            throw new RuntimeException("No rates found for " + currency);
+        }
+        return rate;
+    }
+
+    /**
+     * Fetch X -> PLN rates published in a period from upstream, asked the same way as for many currencies
+     */
+    @Override
+    public FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to) {
+        return fetchRange(List.of(currency), from, to);
+    }
+
+    /**
+     * Fetch latest rates of many currencies in one call.
+     * Upstream is asked for PLN -> X and the rates are inverted, whatever the currencies.
+     */
+    @Override
+    public Map<CurrencyCode, CurrencyRateDTO> fetchLatest(Collection<CurrencyCode> currencies) {
+        try {
+            Map<String, Object> response = upstreamRestClient.get().uri("/latest?from=PLN&to=" + joinCodes(currencies))
+                    .retrieve().body(Map.class);
+
+            if (response == null || !response.containsKey("rates")) {
+                throw new RuntimeException("No rates found for " + currencies);
+            }
+
+            Map<String, Number> rates = (Map<String, Number>) response.get("rates");
+            LocalDate date = LocalDate.parse((String) response.get("date"));
+
+            Map<CurrencyCode, CurrencyRateDTO> latest = new EnumMap<>(CurrencyCode.class);
+            for (CurrencyCode currency : currencies) {
+                Number plnRate = rates.get(currency.name());
+                if (plnRate != null) {
+                    latest.put(currency, CurrencyRateDTO.builder()
+                            .currency(currency.name())
+                            .rate(invert(plnRate))
+                            .timestamp(date.atTime(FixingCalendar.FIXING_TIME))
+                            .build());
+                }
+            }
+            return latest;
+
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch latest rates for " + currencies, e);
+        }
+    }
+
+    /**
+     * Fetch rates of many currencies published in a period in one call.
+     * Upstream is asked for PLN -> X and the rates are inverted.
+     */
+    @Override
+    public FixingTable fetchRange(Collection<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        try {
+            FixingTable history = upstreamRestClient.get()
+                    .uri("/{from}..{to}?from=PLN&to=" + joinCodes(currencies), from, to)
+                    .exchange((request, response) -> {
+                        checkStatus(response);
+                        return FixingDecoder.decodeQuoted(response.getBody(), currencies, from, to);
+                    });
+
+            if (history == null) {
+                throw new RuntimeException("No historical rates found for " + currencies);
+            }
+            return history;
+
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch history for " + currencies, e);
+        }
+    }
+
+    /**
+     * Streamed responses bypass the default status handling
+     */
+    static void checkStatus(ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode().isError()) {
+            throw new RestClientResponseException("Upstream answered " + response.getStatusCode(),
+                    response.getStatusCode(), response.getStatusText(), response.getHeaders(), null, null);
+        }
+    }
+
+    private static String joinCodes(Collection<CurrencyCode> currencies) {
+        StringJoiner joiner = new StringJoiner(",");
+        currencies.forEach(currency -> joiner.add(currency.name()));
+        return joiner.toString();
+    }
+
+    /**
+     * PLN -> X rate to X -> PLN, at the scale rates are persisted with
+     */
+    private static BigDecimal invert(Number plnRate) {
+        return BigDecimal.ONE.divide(new BigDecimal(plnRate.toString()), RATE_SCALE, RoundingMode.HALF_EVEN);
+    }
+}
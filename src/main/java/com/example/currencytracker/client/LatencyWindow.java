@@ -0,0 +1,47 @@
+package com.example.currencytracker.client;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the last calls to one provider in a ring, percentiles are taken over them.
+ * Upstream calls are few, so a percentile sorts a copy of the ring instead of keeping a histogram.
+ */
+public final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile in nanos, -1 while nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
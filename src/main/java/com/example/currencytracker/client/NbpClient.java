@@ -0,0 +1,197 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.series.FixingTable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Rates of the National Bank of Poland, mid rates of currency-api.table. NBP answers a range
+ * of at most 367 days per currency and 93 days of whole tables, longer ranges are asked for in
+ * pieces. A range without any table is answered with 404, which is read as no fixings.
+ */
+@Component
+@RequiredArgsConstructor
+public class NbpClient implements RateProvider {
+
+    public static final String NAME = "nbp";
+
+    /**
+     * First table the API publishes, earlier ranges are refused rather than answered in part
+     */
+    public static final LocalDate FIRST_DAY = LocalDate.of(2002, 1, 2);
+
+    static final int MAX_SERIES_DAYS = 367;
+    static final int MAX_TABLES_DAYS = 93;
+
+    /**
+     * Bound to currency-api.url, see AppConfig
+     */
+    private final RestClient nbpRestClient;
+    private final CurrencyApiProperties currencyApiProperties;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Fetch the latest X -> PLN mid rate
+     */
+    @Override
+    public CurrencyRateDTO fetchLatest(CurrencyCode currency) {
+        try {
+            Map<String, Object> response = nbpRestClient.get()
+                    .uri("/rates/{table}/{currency}/?format=json", table(), currency.name())
+                    .retrieve().body(Map.class);
+
+            List<Map<String, Object>> rates = response == null ? null : (List<Map<String, Object>>) response.get("rates");
+            if (rates == null || rates.isEmpty()) {
+                throw new RuntimeException("No rates found for " + currency);
+            }
+            return rate(currency, rates.getFirst(), (String) rates.getFirst().get("effectiveDate"));
+
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch latest rate for " + currency, e);
+        }
+    }
+
+    @Override
+    public FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to) {
+        checkRange(from);
+        FixingTable history = new FixingTable(List.of(currency), expectedRows(from, to));
+        try {
+            for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(MAX_SERIES_DAYS)) {
+                LocalDate end = min(start.plusDays(MAX_SERIES_DAYS - 1), to);
+                nbpRestClient.get()
+                        .uri("/rates/{table}/{currency}/{from}/{to}/?format=json", table(), currency.name(), start, end)
+                        .exchange((request, response) -> {
+                            if (hasRates(response)) {
+                                NbpDecoder.decodeSeries(response.getBody(), history, 0);
+                            }
+                            return null;
+                        });
+            }
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch history for " + currency, e);
+        }
+        history.sortByDay();
+        return history;
+    }
+
+    /**
+     * Fetch the latest table and take the currencies from it
+     */
+    @Override
+    public Map<CurrencyCode, CurrencyRateDTO> fetchLatest(Collection<CurrencyCode> currencies) {
+        try {
+            List<Map<String, Object>> response = nbpRestClient.get()
+                    .uri("/tables/{table}/?format=json", table())
+                    .retrieve().body(List.class);
+
+            if (response == null || response.isEmpty() || !response.getFirst().containsKey("rates")) {
+                throw new RuntimeException("No rates found for " + currencies);
+            }
+
+            Map<String, Object> latestTable = response.getFirst();
+            String date = (String) latestTable.get("effectiveDate");
+            Map<String, Map<String, Object>> byCode = new HashMap<>();
+            for (Map<String, Object> rate : (List<Map<String, Object>>) latestTable.get("rates")) {
+                byCode.put((String) rate.get("code"), rate);
+            }
+
+            Map<CurrencyCode, CurrencyRateDTO> latest = new EnumMap<>(CurrencyCode.class);
+            for (CurrencyCode currency : currencies) {
+                Map<String, Object> rate = byCode.get(currency.name());
+                if (rate != null) {
+                    latest.put(currency, rate(currency, rate, date));
+                }
+            }
+            return latest;
+
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch latest rates for " + currencies, e);
+        }
+    }
+
+    @Override
+    public FixingTable fetchRange(Collection<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        checkRange(from);
+        FixingTable history = new FixingTable(currencies, expectedRows(from, to));
+        Map<String, Integer> columns = new HashMap<>();
+        for (CurrencyCode currency : history.currencies()) {
+            columns.put(currency.name(), history.column(currency));
+        }
+        try {
+            for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(MAX_TABLES_DAYS)) {
+                LocalDate end = min(start.plusDays(MAX_TABLES_DAYS - 1), to);
+                nbpRestClient.get()
+                        .uri("/tables/{table}/{from}/{to}/?format=json", table(), start, end)
+                        .exchange((request, response) -> {
+                            if (hasRates(response)) {
+                                NbpDecoder.decodeTables(response.getBody(), history, columns);
+                            }
+                            return null;
+                        });
+            }
+        } catch (RestClientException e) {
+            throw new RuntimeException("Failed to fetch history for " + currencies, e);
+        }
+        history.sortByDay();
+        return history;
+    }
+
+    private String table() {
+        return currencyApiProperties.getTable();
+    }
+
+    private static void checkRange(LocalDate from) {
+        if (from.isBefore(FIRST_DAY)) {
+            throw new RuntimeException("NBP publishes no rates before " + FIRST_DAY + ", asked from " + from);
+        }
+    }
+
+    /**
+     * False for 404, the piece of the range holds no table
+     */
+    private static boolean hasRates(ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+            return false;
+        }
+        FrankfurterClient.checkStatus(response);
+        return true;
+    }
+
+    private static CurrencyRateDTO rate(CurrencyCode currency, Map<String, Object> rate, String date) {
+        return CurrencyRateDTO.builder()
+                .currency(currency.name())
+                .rate(new BigDecimal(rate.get("mid").toString()))
+                .timestamp(LocalDate.parse(date).atTime(FixingCalendar.FIXING_TIME))
+                .build();
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Publication days of the range, tables are only published on weekdays
+     */
+    private static int expectedRows(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        return (int) Math.max(1, days * 5 / 7 + 2);
+    }
+}
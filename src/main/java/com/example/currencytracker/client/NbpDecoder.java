@@ -0,0 +1,124 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.series.FixingTable;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Streams NBP responses into a FixingTable. NBP quotes mid rates X -> PLN, so unlike
+ * Frankfurter's PLN -> X tables nothing is inverted. Rows are appended, a range asked
+ * for in several requests is decoded into one table.
+ */
+public final class NbpDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private NbpDecoder() {
+    }
+
+    /**
+     * Append a series of one currency: {"code":"USD","rates":[{"effectiveDate":"2025-12-09","mid":3.6543},...]}
+     */
+    public static void decodeSeries(InputStream body, FixingTable table, int column) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("rates".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        long day = Long.MIN_VALUE;
+                        double mid = Double.NaN;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.currentName();
+                            JsonToken token = parser.nextToken();
+                            if ("effectiveDate".equals(name) && token == JsonToken.VALUE_STRING) {
+                                day = FixingDecoder.epochDay(parser, parser.getText());
+                            } else if ("mid".equals(name) && token.isNumeric()) {
+                                mid = FixingDecoder.number(parser);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        if (day == Long.MIN_VALUE) {
+                            throw new JsonParseException(parser, "Expected the effectiveDate of a rate");
+                        }
+                        table.set(table.addRow(day), column, mid);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Append daily tables: [{"effectiveDate":"2025-12-09","rates":[{"code":"USD","mid":3.6543},...]},...],
+     * columns maps the codes wanted to their table column
+     */
+    public static void decodeTables(InputStream body, FixingTable table, Map<String, Integer> columns) throws IOException {
+        double[] mids = new double[table.currencies().size()];
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long day = Long.MIN_VALUE;
+                Arrays.fill(mids, Double.NaN);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("effectiveDate".equals(field) && value == JsonToken.VALUE_STRING) {
+                        day = FixingDecoder.epochDay(parser, parser.getText());
+                    } else if ("rates".equals(field) && value == JsonToken.START_ARRAY) {
+                        readMids(parser, columns, mids);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (day == Long.MIN_VALUE) {
+                    throw new JsonParseException(parser, "Expected the effectiveDate of a table");
+                }
+                int row = table.addRow(day);
+                for (int column = 0; column < mids.length; column++) {
+                    table.set(row, column, mids[column]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mid rates of one table, the table's date may come before or after them
+     */
+    private static void readMids(JsonParser parser, Map<String, Integer> columns, double[] mids) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Integer column = null;
+            double mid = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("code".equals(name) && token == JsonToken.VALUE_STRING) {
+                    column = columns.get(parser.getText());
+                } else if ("mid".equals(name) && token.isNumeric()) {
+                    mid = FixingDecoder.number(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (column != null) {
+                mids[column] = mid;
+            }
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + ", got " + actual);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends upstream calls to the rate providers, fastest first. A call goes to the provider with
+ * the lowest p95 over its last latencies; when that one has not answered within its p95, the
+ * call is also sent to the next provider, and so on. The first complete answer is used and the
+ * calls still running are cancelled. A provider that fails is followed by the next one at once,
+ * and an outage counts as a latency of the read timeout, so a provider that keeps failing
+ * falls back in the order. Every currency-api.hedge.probe-every-th call asks all providers at
+ * once, otherwise a faster provider behind one that always answers in time would never be measured.
+ */
+@Slf4j
+@Component
+public class ProviderRouter {
+
+    public record ProviderStats(String provider, int samples, double p50Millis, double p95Millis,
+                                long calls, long wins, long hedged, long failures, long cancelled) {
+    }
+
+    private record Attempt<T>(Route route, T value, RuntimeException error) {
+    }
+
+    private final List<Route> routes;
+    private final CurrencyApiProperties.Hedge hedge;
+    private final long outageNanos;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong callCount = new AtomicLong();
+
+    public ProviderRouter(List<RateProvider> providers, CurrencyApiProperties properties, UpstreamMetrics upstreamMetrics) {
+        this.hedge = properties.getHedge();
+        this.outageNanos = properties.getUpstream().getReadTimeout().toNanos();
+        this.upstreamMetrics = upstreamMetrics;
+
+        Map<String, RateProvider> byName = new LinkedHashMap<>();
+        providers.forEach(provider -> byName.put(provider.name(), provider));
+        List<Route> configured = new ArrayList<>();
+        for (String name : properties.getProviders()) {
+            RateProvider provider = byName.get(name);
+            if (provider == null) {
+                throw new IllegalStateException("Unknown rate provider " + name + ", known are " + byName.keySet());
+            }
+            configured.add(new Route(provider, new LatencyWindow(hedge.getWindow())));
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalStateException("No rate provider in currency-api.providers");
+        }
+        this.routes = List.copyOf(configured);
+    }
+
+    public CurrencyRateDTO fetchLatest(CurrencyCode currency) {
+        return call(provider -> provider.fetchLatest(currency), rate -> rate != null && rate.getRate() != null);
+    }
+
+    public FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to) {
+        return call(provider -> labelled(provider.fetchRange(currency, from, to), provider),
+                covering(List.of(currency)));
+    }
+
+    /**
+     * Latest rates of many currencies, an answer missing some of them is used only when no provider has them all
+     */
+    public Map<CurrencyCode, CurrencyRateDTO> fetchLatest(Collection<CurrencyCode> currencies) {
+        return call(provider -> provider.fetchLatest(currencies),
+                latest -> latest != null && latest.keySet().containsAll(currencies));
+    }
+
+    /**
+     * Fixings of many currencies, an answer leaving some of them without fixings is used only when no provider has them all
+     */
+    public FixingTable fetchRange(Collection<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        return call(provider -> labelled(provider.fetchRange(currencies, from, to), provider), covering(currencies));
+    }
+
+    /**
+     * Provider names in the order the next call asks them
+     */
+    public List<String> order() {
+        return route().stream().map(route -> route.provider.name()).toList();
+    }
+
+    /**
+     * Stats in the order the next call asks the providers
+     */
+    public List<ProviderStats> stats() {
+        return route().stream()
+                .map(route -> new ProviderStats(route.provider.name(), route.latency.count(),
+                        millis(route.latency.percentile(50)), millis(route.latency.percentile(95)),
+                        route.calls.sum(), route.wins.sum(), route.hedged.sum(),
+                        route.failures.sum(), route.cancelled.sum()))
+                .toList();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T call(Function<RateProvider, T> call, Predicate<T> complete) {
+        List<Route> order = route();
+        if (order.size() == 1) {
+            Attempt<T> attempt = attempt(order.getFirst(), call, new AtomicBoolean());
+            if (attempt.error() != null) {
+                throw attempt.error();
+            }
+            attempt.route().wins.increment();
+            return attempt.value();
+        }
+
+        BlockingQueue<Attempt<T>> answers = new LinkedBlockingQueue<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        List<Future<?>> running = new ArrayList<>(order.size());
+        Attempt<T> incomplete = null;
+        RuntimeException failure = null;
+        int started = 0;
+        int answered = 0;
+        try {
+            running.add(start(order.get(started++), call, answers, settled));
+            boolean probe = probe();
+            long hedgeAt = probe ? System.nanoTime() : System.nanoTime() + hedgeDelay(order.getFirst());
+            while (answered < started) {
+                Attempt<T> attempt = started < order.size()
+                        ? answers.poll(Math.max(0, hedgeAt - System.nanoTime()), TimeUnit.NANOSECONDS)
+                        : answers.take();
+                if (attempt != null) {
+                    answered++;
+                    if (attempt.error() == null && complete.test(attempt.value())) {
+                        attempt.route().wins.increment();
+                        return attempt.value();
+                    }
+                    if (attempt.error() != null) {
+                        failure = firstOrSuppressed(failure, attempt.error());
+                    } else if (incomplete == null) {
+                        incomplete = attempt;
+                    }
+                }
+                // no answer within the hedge delay, or none of the providers asked so far had one
+                if ((attempt == null || answered == started) && started < order.size()) {
+                    Route next = order.get(started++);
+                    next.hedged.increment();
+                    upstreamMetrics.countHedge(next.provider.name());
+                    log.debug("Asking {} as well, the providers before it are slow or failed", next.provider.name());
+                    running.add(start(next, call, answers, settled));
+                    hedgeAt = probe ? System.nanoTime() : System.nanoTime() + hedgeDelay(next);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the rate providers", e);
+        } finally {
+            settled.set(true);
+            running.forEach(future -> future.cancel(true));
+        }
+
+        if (incomplete != null) {
+            incomplete.route().wins.increment();
+            return incomplete.value();
+        }
+        throw failure;
+    }
+
+    private <T> Future<?> start(Route route, Function<RateProvider, T> call,
+                                BlockingQueue<Attempt<T>> answers, AtomicBoolean settled) {
+        return executor.submit(() -> answers.add(attempt(route, call, settled)));
+    }
+
+    /**
+     * Call one provider and record its latency, a failure after the call was settled is the cancellation
+     */
+    private <T> Attempt<T> attempt(Route route, Function<RateProvider, T> call, AtomicBoolean settled) {
+        route.calls.increment();
+        long started = System.nanoTime();
+        try {
+            T value = call.apply(route.provider);
+            long elapsed = System.nanoTime() - started;
+            route.latency.record(elapsed);
+            upstreamMetrics.recordProvider(route.provider.name(), "success", elapsed);
+            return new Attempt<>(route, value, null);
+        } catch (RuntimeException e) {
+            long elapsed = System.nanoTime() - started;
+            if (settled.get()) {
+                route.cancelled.increment();
+                upstreamMetrics.recordProvider(route.provider.name(), "cancelled", elapsed);
+            } else {
+                route.failures.increment();
+                upstreamMetrics.recordProvider(route.provider.name(), "error", elapsed);
+                if (UpstreamGateway.isOutage(e)) {
+                    route.latency.record(outageNanos);
+                }
+            }
+            return new Attempt<>(route, null, e);
+        }
+    }
+
+    /**
+     * Routes by p95, a provider with too few latencies is ranked at initial-delay, ties keep the configured order
+     */
+    private List<Route> route() {
+        if (routes.size() == 1) {
+            return routes;
+        }
+        List<Route> order = new ArrayList<>(routes);
+        Map<Route, Long> ranks = new IdentityHashMap<>();
+        routes.forEach(route -> ranks.put(route, rank(route)));
+        order.sort(Comparator.comparingLong(ranks::get));
+        return order;
+    }
+
+    private boolean probe() {
+        return hedge.getProbeEvery() > 0 && callCount.incrementAndGet() % hedge.getProbeEvery() == 0;
+    }
+
+    private long rank(Route route) {
+        return route.latency.count() >= hedge.getMinSamples()
+                ? route.latency.percentile(95)
+                : hedge.getInitialDelay().toNanos();
+    }
+
+    private long hedgeDelay(Route route) {
+        return Math.clamp(rank(route), hedge.getMinDelay().toNanos(), hedge.getMaxDelay().toNanos());
+    }
+
+    /**
+     * Complete when every currency has fixings, or when the range had no publication day at all
+     */
+    private static Predicate<FixingTable> covering(Collection<CurrencyCode> currencies) {
+        return table -> table != null && (table.size() == 0 || currencies.stream().allMatch(table::hasFixings));
+    }
+
+    /**
+     * Tag the fixings with the provider, stored history keeps the rates of the provider that published them first
+     */
+    private static FixingTable labelled(FixingTable table, RateProvider provider) {
+        return table == null ? null : table.provider(provider.name());
+    }
+
+    private static RuntimeException firstOrSuppressed(RuntimeException first, RuntimeException next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+    private static double millis(long nanos) {
+        return nanos < 0 ? 0 : nanos / 1_000_000.0;
+    }
+
+    private static final class Route {
+
+        private final RateProvider provider;
+        private final LatencyWindow latency;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder hedged = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+
+        private Route(RateProvider provider, LatencyWindow latency) {
+            this.provider = provider;
+            this.latency = latency;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * One upstream publishing X -> PLN rates. Failures are RuntimeExceptions carrying the
+ * RestClientException as cause, so a failed call can be told apart from an outage.
+ */
+public interface RateProvider {
+
+    /**
+     * Name in currency-api.providers, metrics and the admin stats
+     */
+    String name();
+
+    CurrencyRateDTO fetchLatest(CurrencyCode currency);
+
+    FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to);
+
+    Map<CurrencyCode, CurrencyRateDTO> fetchLatest(Collection<CurrencyCode> currencies);
+
+    FixingTable fetchRange(Collection<CurrencyCode> currencies, LocalDate from, LocalDate to);
+}
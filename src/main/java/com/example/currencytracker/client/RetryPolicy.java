@@ -0,0 +1,48 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.config.CurrencyApiProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries of background upstream work, from currency-api.retry. The pause doubles with every
+ * attempt up to the max delay, and half of it is random so instances do not retry in lockstep.
+ */
+public class RetryPolicy {
+
+    private final int attempts;
+    private final long delayMs;
+    private final long maxDelayMs;
+
+    public RetryPolicy(CurrencyApiProperties.Retry retry) {
+        this.attempts = Math.max(1, retry.getAttempts());
+        this.delayMs = Math.max(0, retry.getDelay());
+        this.maxDelayMs = Math.max(delayMs, retry.getMaxDelay());
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    /**
+     * Pause after the given failed attempt, counted from 1
+     */
+    public long delayMillis(int attempt) {
+        long capped = Math.min(delayMs << Math.min(attempt - 1, 20), maxDelayMs);
+        long half = capped / 2;
+        return half + (half == 0 ? 0 : ThreadLocalRandom.current().nextLong(capped - half + 1));
+    }
+
+    /**
+     * Sleep before the next attempt, false when interrupted
+     */
+    public boolean pause(int attempt) {
+        try {
+            Thread.sleep(delayMillis(attempt));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.currencytracker.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution.
+ * The first caller runs the call, callers arriving while it is in flight wait for its result.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public record Stats(long calls, long executions, long coalesced, long failures,
+                        int inFlight, double avgLatencyMs, double maxLatencyMs) {
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        calls.increment();
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        long start = System.nanoTime();
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // waiters are released on errors too, not only on runtime exceptions
+            failures.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+            long elapsed = System.nanoTime() - start;
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+        }
+    }
+
+    public Stats stats() {
+        long executed = executions.sum();
+        return new Stats(
+                calls.sum(),
+                executed,
+                coalesced.sum(),
+                failures.sum(),
+                inFlight.size(),
+                executed == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / executed,
+                maxNanos.get() / 1_000_000.0
+        );
+    }
+
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.currencytracker.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Budget of upstream calls: at most burst tokens, refilled at rate per second. A caller
+ * takes its token even when none is left and waits until it would have been refilled,
+ * so callers are served in the order they came and the rate holds over any period.
+ * A rate of 0 or less puts no limit on the calls.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double ratePerSecond, int burst, LongSupplier clock) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1, was " + burst);
+        }
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.clock = clock;
+        this.tokens = burst;
+        this.refilledAt = clock.getAsLong();
+    }
+
+    /**
+     * Take a token, returns how many nanos to wait before using it, 0 when it can be used now
+     */
+    public synchronized long reserve() {
+        if (tokensPerNano <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Take a token and wait until it can be used
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Tokens left now, negative while callers wait for theirs
+     */
+    public synchronized double available() {
+        if (tokensPerNano <= 0) {
+            return burst;
+        }
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.series.FixingTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for every upstream call, answered by the fastest rate provider, see ProviderRouter.
+ * Concurrent callers asking for the same currency and range share one in-flight request,
+ * and while the circuit breaker is open calls fail at once instead of waiting on timeouts.
+ * Every call the breaker lets through takes a token of the quota. History requests are queued by the UpstreamScheduler,
+ * which merges adjoining ranges into one call and sends interactive requests before background ones.
+ */
+@Component
+public class UpstreamGateway {
+
+    private final ProviderRouter providerRouter;
+    private final UpstreamMetrics upstreamMetrics;
+    private final CircuitBreaker upstreamCircuitBreaker;
+    private final TokenBucket upstreamQuota;
+    private final UpstreamScheduler upstreamScheduler;
+
+    private final SingleFlight<CurrencyCode, CurrencyRateDTO> latestFlights = new SingleFlight<>();
+    private final SingleFlight<RangeKey, FixingTable> historyFlights = new SingleFlight<>();
+
+    private final SingleFlight<Set<CurrencyCode>, Map<CurrencyCode, CurrencyRateDTO>> latestTableFlights = new SingleFlight<>();
+    private final SingleFlight<TableRangeKey, FixingTable> historyTableFlights = new SingleFlight<>();
+
+    private record RangeKey(CurrencyCode currency, LocalDate from, LocalDate to, UpstreamPriority priority) {
+    }
+
+    private record TableRangeKey(Set<CurrencyCode> currencies, LocalDate from, LocalDate to, UpstreamPriority priority) {
+    }
+
+    public UpstreamGateway(ProviderRouter providerRouter, UpstreamMetrics upstreamMetrics,
+                           CircuitBreaker upstreamCircuitBreaker, CurrencyApiProperties currencyApiProperties) {
+        this.providerRouter = providerRouter;
+        this.upstreamMetrics = upstreamMetrics;
+        this.upstreamCircuitBreaker = upstreamCircuitBreaker;
+        this.upstreamQuota = new TokenBucket(currencyApiProperties.getQuota().getRate(),
+                currencyApiProperties.getQuota().getBurst());
+        CurrencyApiProperties.Merge merge = currencyApiProperties.getMerge();
+        this.upstreamScheduler = new UpstreamScheduler(this::callRange, upstreamQuota, upstreamCircuitBreaker,
+                merge.getMaxDays(), Map.of(
+                        UpstreamPriority.INTERACTIVE, merge.getInteractiveQueueWait(),
+                        UpstreamPriority.BACKGROUND, merge.getBackgroundQueueWait()),
+                currencyApiProperties.getUpstream().getReadTimeout(), upstreamMetrics);
+    }
+
+    @PostConstruct
+    void bindMetrics() {
+        upstreamMetrics.bindCircuitBreaker(upstreamCircuitBreaker);
+        upstreamMetrics.bindScheduler(upstreamScheduler, upstreamQuota);
+    }
+
+    @PreDestroy
+    public void close() {
+        upstreamScheduler.close();
+    }
+
+    public CurrencyRateDTO fetchLatest(CurrencyCode currency) {
+        return latestFlights.execute(currency, () -> guarded(() -> upstreamMetrics.record(UpstreamMetrics.LATEST,
+                currency.name(), () -> providerRouter.fetchLatest(currency))));
+    }
+
+    public FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to) {
+        return fetchRange(currency, from, to, UpstreamPriority.INTERACTIVE);
+    }
+
+    public FixingTable fetchRange(CurrencyCode currency, LocalDate from, LocalDate to, UpstreamPriority priority) {
+        return historyFlights.execute(new RangeKey(currency, from, to, priority),
+                () -> upstreamScheduler.fetch(EnumSet.of(currency), from, to, priority));
+    }
+
+    /**
+     * Latest rates of many currencies with one upstream call
+     */
+    public Map<CurrencyCode, CurrencyRateDTO> fetchLatest(Set<CurrencyCode> currencies) {
+        if (currencies.isEmpty()) {
+            return Map.of();
+        }
+        if (currencies.size() == 1) {
+            CurrencyCode currency = currencies.iterator().next();
+            return Map.of(currency, fetchLatest(currency));
+        }
+        Set<CurrencyCode> key = Collections.unmodifiableSet(EnumSet.copyOf(currencies));
+        return latestTableFlights.execute(key, () -> guarded(() -> upstreamMetrics.record(UpstreamMetrics.LATEST, key,
+                () -> providerRouter.fetchLatest(key))));
+    }
+
+    public FixingTable fetchRange(Set<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        return fetchRange(currencies, from, to, UpstreamPriority.INTERACTIVE);
+    }
+
+    /**
+     * Rates of many currencies in a period with one upstream call, which may be shared with other requests
+     */
+    public FixingTable fetchRange(Set<CurrencyCode> currencies, LocalDate from, LocalDate to, UpstreamPriority priority) {
+        if (currencies.isEmpty()) {
+            return new FixingTable(currencies, 0);
+        }
+        if (currencies.size() == 1) {
+            return fetchRange(currencies.iterator().next(), from, to, priority);
+        }
+        TableRangeKey key = new TableRangeKey(Collections.unmodifiableSet(EnumSet.copyOf(currencies)), from, to, priority);
+        return historyTableFlights.execute(key, () -> upstreamScheduler.fetch(key.currencies(), from, to, priority));
+    }
+
+    public CircuitBreaker.Stats circuitStats() {
+        return upstreamCircuitBreaker.stats();
+    }
+
+    public List<ProviderRouter.ProviderStats> providerStats() {
+        return providerRouter.stats();
+    }
+
+    public UpstreamScheduler.Stats schedulerStats() {
+        return upstreamScheduler.stats();
+    }
+
+    public Map<String, SingleFlight.Stats> stats() {
+        return Map.of(
+                "latest", latestFlights.stats(),
+                "history", historyFlights.stats(),
+                "latestTable", latestTableFlights.stats(),
+                "historyTable", historyTableFlights.stats()
+        );
+    }
+
+    /**
+     * The call of a range merged by the scheduler, it has taken its token already
+     */
+    private FixingTable callRange(Set<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        return upstreamCircuitBreaker.execute(() -> upstreamMetrics.record(UpstreamMetrics.HISTORY, currencies,
+                () -> currencies.size() == 1
+                        ? providerRouter.fetchRange(currencies.iterator().next(), from, to)
+                        : providerRouter.fetchRange(currencies, from, to)), UpstreamGateway::isOutage);
+    }
+
+    /**
+     * Take a token of the quota, then call through the circuit breaker. While the circuit is
+     * open the call fails before a token is taken, so rejected calls never wait on the quota.
+     */
+    private <T> T guarded(Supplier<T> call) {
+        upstreamCircuitBreaker.rejectIfOpen();
+        try {
+            upstreamQuota.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the upstream quota", e);
+        }
+        return upstreamCircuitBreaker.execute(call, UpstreamGateway::isOutage);
+    }
+
+    /**
+     * Failures saying upstream is down or overloaded: no answer, 5xx or 429.
+     * Other errors, like an unknown currency, come from a working upstream.
+     */
+    static boolean isOutage(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResourceAccessException) {
+                return true;
+            }
+            if (cause instanceof RestClientResponseException response) {
+                return response.getStatusCode().is5xxServerError()
+                        || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+            }
+        }
+        return false;
+    }
+}
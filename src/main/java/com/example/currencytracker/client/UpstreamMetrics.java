@@ -0,0 +1,155 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.enums.UpstreamPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times every call that actually reaches upstream and counts the failed ones.
+ * Calls answered by a coalesced in-flight request are not recorded again.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamMetrics {
+
+    public static final String CALLS = "upstream.requests";
+    public static final String ERRORS = "upstream.errors";
+    public static final String CIRCUIT_STATE = "upstream.circuit.state";
+    public static final String CIRCUIT_REJECTED = "upstream.circuit.rejected";
+    public static final String PROVIDER_CALLS = "upstream.provider.requests";
+    public static final String HEDGES = "upstream.hedges";
+    public static final String SCHEDULER_QUEUE = "upstream.scheduler.queue";
+    public static final String SCHEDULER_REQUESTS = "upstream.scheduler.requests";
+    public static final String SCHEDULER_CALLS = "upstream.scheduler.calls";
+    public static final String SCHEDULER_MERGE_RATIO = "upstream.scheduler.merge.ratio";
+    public static final String SCHEDULER_WAIT = "upstream.scheduler.wait";
+    public static final String QUOTA_TOKENS = "upstream.quota.tokens";
+
+    public static final String LATEST = "latest";
+    public static final String HISTORY = "history";
+
+    /**
+     * Currency tag of calls for several currencies, the sets themselves would explode the tag values
+     */
+    static final String MANY = "multi";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(String endpoint, Collection<?> currencies, Supplier<T> call) {
+        return record(endpoint, currencies.size() == 1 ? currencies.iterator().next().toString() : MANY, call);
+    }
+
+    public <T> T record(String endpoint, String currency, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T value = call.get();
+            sample.stop(timer(endpoint, currency, "success"));
+            return value;
+        } catch (RuntimeException e) {
+            sample.stop(timer(endpoint, currency, "error"));
+            Counter.builder(ERRORS)
+                    .description("Upstream calls that failed")
+                    .tag("endpoint", endpoint)
+                    .tag("currency", currency)
+                    .tag("exception", (e.getCause() != null ? e.getCause() : e).getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Time one provider's part of a call, outcome success, error or cancelled when another provider answered first
+     */
+    public void recordProvider(String provider, String outcome, long nanos) {
+        Timer.builder(PROVIDER_CALLS)
+                .description("Latency of the calls to one rate provider")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count a call sent to a further provider because the ones before it were slow or failed
+     */
+    public void countHedge(String provider) {
+        Counter.builder(HEDGES)
+                .description("Upstream calls also sent to a further provider")
+                .tag("provider", provider)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * State as 0 closed, 1 half open, 2 open, and the calls rejected while open
+     */
+    public void bindCircuitBreaker(CircuitBreaker circuitBreaker) {
+        Gauge.builder(CIRCUIT_STATE, circuitBreaker, breaker -> switch (breaker.state()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .description("Upstream circuit breaker state")
+                .register(meterRegistry);
+        FunctionCounter.builder(CIRCUIT_REJECTED, circuitBreaker, breaker -> breaker.stats().rejected())
+                .description("Upstream calls failed fast by the open circuit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Time a history request spent queued before its call was sent
+     */
+    public void recordSchedulerWait(UpstreamPriority priority, long nanos) {
+        Timer.builder(SCHEDULER_WAIT)
+                .description("Wait of upstream history requests in the scheduler queue")
+                .tag("priority", priority.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queue depth per priority, requests and the calls they were merged into, and the tokens left
+     */
+    public void bindScheduler(UpstreamScheduler scheduler, TokenBucket quota) {
+        for (UpstreamPriority priority : UpstreamPriority.values()) {
+            Gauge.builder(SCHEDULER_QUEUE, scheduler, s -> s.queued(priority))
+                    .description("Upstream history requests waiting for a call")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder(SCHEDULER_REQUESTS, scheduler, s -> s.stats().requests())
+                .description("Upstream history requests sent")
+                .register(meterRegistry);
+        FunctionCounter.builder(SCHEDULER_CALLS, scheduler, s -> s.stats().calls())
+                .description("Upstream history calls the requests were merged into")
+                .register(meterRegistry);
+        Gauge.builder(SCHEDULER_MERGE_RATIO, scheduler, s -> s.stats().mergeRatio())
+                .description("Upstream history requests per call")
+                .register(meterRegistry);
+        Gauge.builder(QUOTA_TOKENS, quota, TokenBucket::available)
+                .description("Upstream calls that may go now, negative while calls wait")
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String endpoint, String currency, String outcome) {
+        return Timer.builder(CALLS)
+                .description("Upstream call latency")
+                .tag("endpoint", endpoint)
+                .tag("currency", currency)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
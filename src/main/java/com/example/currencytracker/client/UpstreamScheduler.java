@@ -0,0 +1,360 @@
+package com.example.currencytracker.client;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.exception.UpstreamUnavailableException;
+import com.example.currencytracker.model.DateRange;
+import com.example.currencytracker.series.FixingTable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues upstream history requests and sends them as few calls as it can. Whenever the token
+ * bucket lets a call go, the oldest interactive request is taken, or the oldest background one
+ * when no interactive request waits, and every queued request whose range overlaps or adjoins
+ * it joins the call, its currencies added, as long as the call spans at most maxMergedDays.
+ * Ranges only a weekend apart adjoin. Requests queued while the bucket refills are merged into
+ * the next call, and every request of a call is answered with its table. While the circuit
+ * breaker is open queued requests fail at once, without taking tokens. A caller waits for its
+ * request to be sent up to the queue wait of its priority, and for the answer up to the timeout.
+ */
+public class UpstreamScheduler {
+
+    private final RangeCall rangeCall;
+    private final TokenBucket quota;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxMergedDays;
+    private final Map<UpstreamPriority, Duration> queueWaits;
+    private final Duration timeout;
+    private final UpstreamMetrics upstreamMetrics;
+
+    private final Map<UpstreamPriority, List<Request>> queues = new EnumMap<>(UpstreamPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+
+    private volatile Thread dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * The upstream call of a merged range
+     */
+    @FunctionalInterface
+    public interface RangeCall {
+        FixingTable fetch(Set<CurrencyCode> currencies, LocalDate from, LocalDate to);
+    }
+
+    /**
+     * Queued requests per priority, and requests sent per upstream call so far
+     */
+    public record Stats(int interactiveQueued, int backgroundQueued, long requests, long calls,
+                        double mergeRatio, double tokens) {
+    }
+
+    private record Request(Set<CurrencyCode> currencies, LocalDate from, LocalDate to, UpstreamPriority priority,
+                           long queuedAt, CompletableFuture<Void> sent, CompletableFuture<FixingTable> result) {
+    }
+
+    /**
+     * Callers give up on a request still queued after the queue wait of its priority, and on one
+     * sent after the timeout, counted from the moment its call went out
+     */
+    public UpstreamScheduler(RangeCall rangeCall, TokenBucket quota, CircuitBreaker circuitBreaker, int maxMergedDays,
+                             Map<UpstreamPriority, Duration> queueWaits, Duration timeout,
+                             UpstreamMetrics upstreamMetrics) {
+        this.rangeCall = rangeCall;
+        this.quota = quota;
+        this.circuitBreaker = circuitBreaker;
+        this.maxMergedDays = maxMergedDays;
+        this.queueWaits = new EnumMap<>(queueWaits);
+        this.timeout = timeout;
+        this.upstreamMetrics = upstreamMetrics;
+        for (UpstreamPriority priority : UpstreamPriority.values()) {
+            queues.put(priority, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Rates of the currencies in the range, from a call that may cover more currencies and days
+     */
+    public FixingTable fetch(Set<CurrencyCode> currencies, LocalDate from, LocalDate to, UpstreamPriority priority) {
+        Request request = new Request(Collections.unmodifiableSet(EnumSet.copyOf(currencies)), from, to, priority,
+                System.nanoTime(), new CompletableFuture<>(), new CompletableFuture<>());
+        enqueue(request);
+        try {
+            awaitSent(request);
+            return request.result().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new UpstreamUnavailableException("No upstream history of " + currencies + " within " + timeout,
+                    timeout);
+        } catch (InterruptedException e) {
+            withdraw(request);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for upstream history of " + currencies, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException("Upstream history of " + currencies + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Wait until the call of the request goes out, or the request failed in the queue
+     */
+    private void awaitSent(Request request) throws InterruptedException, ExecutionException {
+        Duration queueWait = queueWaits.getOrDefault(request.priority(), timeout);
+        try {
+            CompletableFuture.anyOf(request.sent(), request.result()).get(queueWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // taken for a call meanwhile, then the answer is waited for like any other
+            if (withdraw(request)) {
+                throw new UpstreamUnavailableException("Upstream history of " + request.currencies()
+                        + " still queued after " + queueWait, queueWait);
+            }
+        }
+    }
+
+    public int queued(UpstreamPriority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long sent = upstreamCalls.get();
+        long asked = requests.get();
+        return new Stats(queued(UpstreamPriority.INTERACTIVE), queued(UpstreamPriority.BACKGROUND), asked, sent,
+                sent == 0 ? 0 : (double) asked / sent, quota.available());
+    }
+
+    /**
+     * Stop sending calls, queued requests fail
+     */
+    public void close() {
+        closed = true;
+        Thread running = dispatcher;
+        if (running != null) {
+            running.interrupt();
+        }
+        lock.lock();
+        try {
+            // wakes a dispatcher that started too late to be interrupted
+            queued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        failQueued(new IllegalStateException("Upstream scheduler is closed"));
+        calls.shutdown();
+    }
+
+    private void enqueue(Request request) {
+        if (closed) {
+            throw new IllegalStateException("Upstream scheduler is closed");
+        }
+        if (started.compareAndSet(false, true)) {
+            dispatcher = Thread.ofVirtual().name("upstream-scheduler").start(this::dispatch);
+        }
+        lock.lock();
+        try {
+            // checked under the lock, so close fails every request queued before it
+            if (closed) {
+                throw new IllegalStateException("Upstream scheduler is closed");
+            }
+            queues.get(request.priority()).add(request);
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the request off its queue, false when a call already took it
+     */
+    private boolean withdraw(Request request) {
+        lock.lock();
+        try {
+            return queues.get(request.priority()).remove(request);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs until closed. A failure sending one batch fails that batch only, the dispatcher goes on
+     * with the next, and whatever is still queued when it stops fails.
+     */
+    private void dispatch() {
+        while (!closed) {
+            List<Request> batch = List.of();
+            try {
+                awaitQueued();
+                if (rejectedWhileOpen()) {
+                    continue;
+                }
+                long wait = quota.reserve();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                // taken after the wait, so everything queued meanwhile can join
+                batch = nextBatch();
+                send(batch);
+            } catch (InterruptedException e) {
+                // only close interrupts the dispatcher
+            } catch (RuntimeException e) {
+                for (Request request : batch) {
+                    request.result().completeExceptionally(e);
+                }
+            }
+        }
+        failQueued(new IllegalStateException("Upstream scheduler is closed"));
+    }
+
+    private void send(List<Request> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        batch.forEach(request -> {
+            upstreamMetrics.recordSchedulerWait(request.priority(), now - request.queuedAt());
+            request.sent().complete(null);
+        });
+        requests.addAndGet(batch.size());
+        upstreamCalls.incrementAndGet();
+        calls.execute(() -> call(batch));
+    }
+
+    /**
+     * Fail everything queued when the circuit breaker would reject the call anyway
+     */
+    private boolean rejectedWhileOpen() {
+        try {
+            circuitBreaker.rejectIfOpen();
+            return false;
+        } catch (UpstreamUnavailableException e) {
+            failQueued(e);
+            return true;
+        }
+    }
+
+    private void failQueued(RuntimeException failure) {
+        lock.lock();
+        try {
+            queues.values().forEach(queue -> {
+                queue.forEach(request -> request.result().completeExceptionally(failure));
+                queue.clear();
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitQueued() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed && queues.values().stream().allMatch(List::isEmpty)) {
+                queued.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The oldest request of the first priority with any, and every queued request its range can take in
+     */
+    private List<Request> nextBatch() {
+        lock.lock();
+        try {
+            List<Request> batch = new ArrayList<>();
+            for (List<Request> queue : queues.values()) {
+                if (!queue.isEmpty()) {
+                    batch.add(queue.removeFirst());
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                return batch;
+            }
+
+            LocalDate from = batch.getFirst().from();
+            LocalDate to = batch.getFirst().to();
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                for (List<Request> queue : queues.values()) {
+                    for (Iterator<Request> it = queue.iterator(); it.hasNext(); ) {
+                        Request request = it.next();
+                        LocalDate mergedFrom = request.from().isBefore(from) ? request.from() : from;
+                        LocalDate mergedTo = request.to().isAfter(to) ? request.to() : to;
+                        if (adjoins(from, to, request.from(), request.to())
+                                && ChronoUnit.DAYS.between(mergedFrom, mergedTo) < maxMergedDays) {
+                            it.remove();
+                            batch.add(request);
+                            from = mergedFrom;
+                            to = mergedTo;
+                            grown = true;
+                        }
+                    }
+                }
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void call(List<Request> batch) {
+        Set<CurrencyCode> currencies = EnumSet.noneOf(CurrencyCode.class);
+        LocalDate from = batch.getFirst().from();
+        LocalDate to = batch.getFirst().to();
+        for (Request request : batch) {
+            currencies.addAll(request.currencies());
+            from = request.from().isBefore(from) ? request.from() : from;
+            to = request.to().isAfter(to) ? request.to() : to;
+        }
+
+        try {
+            FixingTable table = rangeCall.fetch(Collections.unmodifiableSet(currencies), from, to);
+            batch.forEach(request -> request.result().complete(table));
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * True when the ranges overlap, touch, or only a weekend lies between them
+     */
+    private static boolean adjoins(LocalDate from, LocalDate to, LocalDate otherFrom, LocalDate otherTo) {
+        if (otherFrom.isAfter(to)) {
+            return noFixingBetween(to.plusDays(1), otherFrom.minusDays(1));
+        }
+        if (otherTo.isBefore(from)) {
+            return noFixingBetween(otherTo.plusDays(1), from.minusDays(1));
+        }
+        return true;
+    }
+
+    private static boolean noFixingBetween(LocalDate from, LocalDate to) {
+        return to.isBefore(from) || new DateRange(from, to).isWeekendOnly();
+    }
+}
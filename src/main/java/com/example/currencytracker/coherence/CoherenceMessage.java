@@ -0,0 +1,37 @@
+package com.example.currencytracker.coherence;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What one instance tells the others:
+ * <ul>
+ *   <li>REFRESH - the leader's prefetched latest rates, and for those that are the newest fixing of
+ *       a series the number of fixings the leader holds in that month, plus the latest rates of the
+ *       other currencies the leader built its cross rates from</li>
+ *   <li>LATEST - latest rates some instance fetched on demand</li>
+ *   <li>INTEREST - currencies the subscribers of an instance follow, the leader prefetches them too</li>
+ *   <li>SYNC - a starting instance asks the leader for its last refresh</li>
+ * </ul>
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record CoherenceMessage(Type type, String node, Instant at, Map<CurrencyCode, CurrencyRateDTO> rates,
+                               Map<CurrencyCode, Integer> monthFixings, Set<CurrencyCode> currencies,
+                               Map<CurrencyCode, CurrencyRateDTO> crossRates) {
+
+    public enum Type {
+        REFRESH, LATEST, INTEREST, SYNC
+    }
+
+    public CoherenceMessage {
+        rates = rates == null ? Map.of() : rates;
+        monthFixings = monthFixings == null ? Map.of() : monthFixings;
+        currencies = currencies == null ? Set.of() : currencies;
+        crossRates = crossRates == null ? Map.of() : crossRates;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.currencytracker.coherence;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries coherence messages between the instances of a deployment and elects the one instance
+ * that talks to upstream on a schedule
+ */
+public interface CoherenceTransport {
+
+    /**
+     * Send the payload to every listening instance, this one included
+     */
+    void publish(String payload);
+
+    /**
+     * Receive every payload published from now on
+     */
+    void subscribe(Consumer<String> listener);
+
+    /**
+     * True while this instance leads, the lead is taken when no instance holds it
+     */
+    boolean tryLead();
+
+    void close();
+}
@@ -0,0 +1,65 @@
+package com.example.currencytracker.coherence;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport: instances sharing a Bus hear each other, a payload is delivered on the
+ * publishing thread before publish returns. The first instance asking leads until it is closed.
+ * An instance on a bus of its own is a single-instance deployment and always leads.
+ */
+public class LocalCoherenceTransport implements CoherenceTransport {
+
+    private final Bus bus;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Instances of one process that see each other
+     */
+    public static final class Bus {
+
+        private final List<LocalCoherenceTransport> members = new CopyOnWriteArrayList<>();
+        private LocalCoherenceTransport leader;
+
+        private synchronized boolean lead(LocalCoherenceTransport member) {
+            if (leader == null || leader.closed) {
+                leader = member;
+            }
+            return leader == member;
+        }
+    }
+
+    public LocalCoherenceTransport(Bus bus) {
+        this.bus = bus;
+        bus.members.add(this);
+    }
+
+    @Override
+    public void publish(String payload) {
+        if (closed) {
+            throw new IllegalStateException("Coherence transport is closed");
+        }
+        for (LocalCoherenceTransport member : bus.members) {
+            member.listeners.forEach(listener -> listener.accept(payload));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public boolean tryLead() {
+        return !closed && bus.lead(this);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        bus.members.remove(this);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.currencytracker.coherence;
+
+import com.example.currencytracker.config.CoherenceProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Transport over the application database. Payloads are NOTIFY messages on the channel, read by a
+ * virtual thread on a connection of its own that LISTENs. The leader holds a session advisory lock
+ * on a second connection, which also sends the notifications; when that connection is lost the
+ * lock goes with it and the next instance asking takes the lead.
+ */
+@Slf4j
+public class PostgresCoherenceTransport implements CoherenceTransport {
+
+    /**
+     * NOTIFY refuses payloads of 8000 bytes and more
+     */
+    static final int MAX_PAYLOAD_BYTES = 7999;
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final CoherenceProperties coherenceProperties;
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private Connection session;
+    private volatile boolean leader;
+    private volatile boolean closed;
+    private Thread listener;
+
+    public PostgresCoherenceTransport(String url, String username, String password,
+                                      CoherenceProperties coherenceProperties) {
+        if (!CHANNEL.matcher(coherenceProperties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Coherence channel must be a lower case identifier: "
+                    + coherenceProperties.getChannel());
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.coherenceProperties = coherenceProperties;
+    }
+
+    @Override
+    public synchronized void publish(String payload) {
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Coherence payload of " + payload.length()
+                    + " characters is too long for NOTIFY");
+        }
+        try (PreparedStatement statement = session().prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, coherenceProperties.getChannel());
+            statement.setString(2, payload);
+            statement.execute();
+        } catch (SQLException e) {
+            dropSession();
+            throw new IllegalStateException("Coherence notification could not be sent: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> consumer) {
+        listeners.add(consumer);
+        if (listener == null && !closed) {
+            listener = Thread.ofVirtual().name("coherence-listener").start(this::listen);
+        }
+    }
+
+    @Override
+    public synchronized boolean tryLead() {
+        if (closed) {
+            return false;
+        }
+        try {
+            Connection connection = session();
+            if (leader) {
+                return true;
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, coherenceProperties.getLockKey());
+                try (ResultSet result = statement.executeQuery()) {
+                    leader = result.next() && result.getBoolean(1);
+                }
+            }
+            if (leader) {
+                log.info("Took the coherence lead");
+            }
+            return leader;
+        } catch (SQLException e) {
+            log.warn("Coherence lead could not be checked: {}", e.getMessage());
+            dropSession();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        dropSession();
+    }
+
+    /**
+     * The lock and notify connection, opened again when it was lost, and the lead with it
+     */
+    private Connection session() throws SQLException {
+        if (session != null && !session.isValid(1)) {
+            if (leader) {
+                log.warn("Coherence lead lost with its connection");
+            }
+            dropSession();
+        }
+        if (session == null) {
+            session = DriverManager.getConnection(url, username, password);
+        }
+        return session;
+    }
+
+    private void dropSession() {
+        leader = false;
+        if (session != null) {
+            try {
+                session.close();
+            } catch (SQLException e) {
+                // closing a broken connection
+            }
+            session = null;
+        }
+    }
+
+    private void listen() {
+        int pollMillis = (int) coherenceProperties.getPollInterval().toMillis();
+        while (!closed) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + coherenceProperties.getChannel());
+                }
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] received = notifications.getNotifications(pollMillis);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Coherence listener lost its connection, reconnecting in {}: {}",
+                        coherenceProperties.getReconnectDelay(), e.getMessage());
+                try {
+                    Thread.sleep(coherenceProperties.getReconnectDelay());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        for (Consumer<String> consumer : listeners) {
+            try {
+                consumer.accept(payload);
+            } catch (RuntimeException e) {
+                log.warn("Coherence message not applied: {}", e.getMessage());
+            }
+        }
+    }
+}
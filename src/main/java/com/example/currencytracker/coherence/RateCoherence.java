@@ -0,0 +1,159 @@
+package com.example.currencytracker.coherence;
+
+import com.example.currencytracker.config.CoherenceProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the caches of horizontally scaled instances coherent, so upstream load does not grow with
+ * them. The leader elected by the transport alone runs the prefetch and publishes what it fetched,
+ * every instance publishes the latest rates it fetched on demand, and the listeners apply what the
+ * other instances published. History needs nothing: what one instance fetched is in the shared database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateCoherence {
+
+    private final CoherenceTransport coherenceTransport;
+    private final CoherenceProperties coherenceProperties;
+    private final ObjectMapper objectMapper;
+    private final RateSeriesStore rateSeriesStore;
+
+    private final String node = UUID.randomUUID().toString();
+    private final List<Consumer<CoherenceMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Interest> peerInterest = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public record Stats(String node, boolean leader, long published, long received, long failed, int peersInterested) {
+    }
+
+    private record Interest(Set<CurrencyCode> currencies, Instant heardAt) {
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        coherenceTransport.subscribe(this::receive);
+    }
+
+    /**
+     * Messages published by the other instances
+     */
+    public void addListener(Consumer<CoherenceMessage> listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isLeader() {
+        return coherenceTransport.tryLead();
+    }
+
+    /**
+     * Publish the rates of a prefetch, with the fixing count of the month of each series' newest fixing,
+     * and the other latest rates the cross rates were built from, so the others build the same matrix
+     */
+    public void publishRefresh(Map<CurrencyCode, CurrencyRateDTO> rates, Map<CurrencyCode, CurrencyRateDTO> crossRates,
+                               Instant refreshedAt) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        Map<CurrencyCode, Integer> monthFixings = new EnumMap<>(CurrencyCode.class);
+        rates.forEach((currency, rate) -> {
+            RateSeries series = rateSeriesStore.get(currency);
+            long day = rate.getTimestamp().toLocalDate().toEpochDay();
+            if (!Double.isNaN(series.get(day))) {
+                YearMonth month = YearMonth.from(rate.getTimestamp());
+                monthFixings.put(currency, series.count(month.atDay(1).toEpochDay(), month.atEndOfMonth().toEpochDay()));
+            }
+        });
+        Map<CurrencyCode, CurrencyRateDTO> otherRates = new EnumMap<>(CurrencyCode.class);
+        crossRates.forEach((currency, rate) -> {
+            if (!rates.containsKey(currency)) {
+                otherRates.put(currency, rate);
+            }
+        });
+        publish(new CoherenceMessage(CoherenceMessage.Type.REFRESH, node, refreshedAt, rates, monthFixings, null,
+                otherRates));
+    }
+
+    public void shareLatest(Map<CurrencyCode, CurrencyRateDTO> rates, Instant fetchedAt) {
+        if (!rates.isEmpty()) {
+            publish(new CoherenceMessage(CoherenceMessage.Type.LATEST, node, fetchedAt, rates, null, null, null));
+        }
+    }
+
+    public void announceInterest(Set<CurrencyCode> currencies) {
+        publish(new CoherenceMessage(CoherenceMessage.Type.INTEREST, node, Instant.now(), null, null, currencies, null));
+    }
+
+    public void requestSync() {
+        publish(new CoherenceMessage(CoherenceMessage.Type.SYNC, node, Instant.now(), null, null, null, null));
+    }
+
+    /**
+     * Currencies followed by subscribers of other instances heard from lately
+     */
+    public Set<CurrencyCode> peerInterest() {
+        Instant heardAfter = Instant.now().minus(Duration.ofMillis(3 * coherenceProperties.getInterestInterval()));
+        peerInterest.values().removeIf(interest -> interest.heardAt().isBefore(heardAfter));
+        Set<CurrencyCode> currencies = EnumSet.noneOf(CurrencyCode.class);
+        peerInterest.values().forEach(interest -> currencies.addAll(interest.currencies()));
+        return currencies;
+    }
+
+    public Stats stats() {
+        return new Stats(node, isLeader(), published.get(), received.get(), failed.get(), peerInterest.size());
+    }
+
+    private void publish(CoherenceMessage message) {
+        try {
+            coherenceTransport.publish(objectMapper.writeValueAsString(message));
+            published.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // the others catch up with the next refresh, or fetch for themselves
+            failed.incrementAndGet();
+            log.warn("Coherence {} message not published: {}", message.type(), e.getMessage());
+        }
+    }
+
+    private void receive(String payload) {
+        CoherenceMessage message;
+        try {
+            message = objectMapper.readValue(payload, CoherenceMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Coherence message could not be read: {}", e.getOriginalMessage());
+            return;
+        }
+        if (node.equals(message.node())) {
+            return;
+        }
+        received.incrementAndGet();
+        if (message.type() == CoherenceMessage.Type.INTEREST) {
+            if (message.currencies().isEmpty()) {
+                peerInterest.remove(message.node());
+            } else {
+                peerInterest.put(message.node(), new Interest(message.currencies(), Instant.now()));
+            }
+            return;
+        }
+        listeners.forEach(listener -> listener.accept(message));
+    }
+}
@@ -1,14 +1,72 @@
 package com.example.currencytracker.config;
 
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.coherence.CoherenceTransport;
+import com.example.currencytracker.coherence.LocalCoherenceTransport;
+import com.example.currencytracker.coherence.PostgresCoherenceTransport;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
 
 @Configuration
+@EnableConfigurationProperties({CurrencyApiProperties.class, SchedulerProperties.class, IndicatorProperties.class,
+        HttpCacheProperties.class, ArchiveProperties.class, BackfillProperties.class,
+        SubscriptionProperties.class, CoherenceProperties.class})
 public class AppConfig {
 
+    /**
+     * Frankfurter client on the JDK HttpClient: connections are kept alive and pooled,
+     * HTTP/2 multiplexes concurrent calls over one connection where the server offers it
+     */
+    @Bean
+    public RestClient upstreamRestClient(RestClient.Builder builder, CurrencyApiProperties properties) {
+        return restClient(builder, properties.getUpstream().getUrl(), properties.getUpstream());
+    }
+
+    /**
+     * NBP client, pooled the same way with the same timeouts
+     */
+    @Bean
+    public RestClient nbpRestClient(RestClient.Builder builder, CurrencyApiProperties properties) {
+        return restClient(builder, properties.getUrl(), properties.getUpstream());
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public CircuitBreaker upstreamCircuitBreaker(CurrencyApiProperties properties) {
+        CurrencyApiProperties.CircuitBreaker circuitBreaker = properties.getCircuitBreaker();
+        return new CircuitBreaker("upstream", circuitBreaker.getFailureThreshold(), circuitBreaker.getOpenDuration());
+    }
+
+    /**
+     * Transport of the coherence messages, Postgres when instances share the database
+     */
+    @Bean(destroyMethod = "close")
+    public CoherenceTransport coherenceTransport(CoherenceProperties properties, DataSourceProperties dataSourceProperties) {
+        return switch (properties.getTransport()) {
+            case LOCAL -> new LocalCoherenceTransport(new LocalCoherenceTransport.Bus());
+            case POSTGRES -> new PostgresCoherenceTransport(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(), properties);
+        };
+    }
+
+    private static RestClient restClient(RestClient.Builder builder, String url, CurrencyApiProperties.Upstream upstream) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(upstream.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(upstream.getReadTimeout());
+
+        return builder.clone()
+                .baseUrl(url)
+                .requestFactory(requestFactory)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "archive")
+public class ArchiveProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Holds the snapshot of the rate series and the logs of fixings stored since
+     */
+    private Path directory = Path.of("data", "archive");
+
+    private String snapshotCron = "0 30 * * * *";
+
+    /**
+     * Milliseconds between two writes of the append log
+     */
+    private long flushInterval = 1000;
+}
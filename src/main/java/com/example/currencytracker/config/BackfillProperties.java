@@ -0,0 +1,31 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+
+@Data
+@ConfigurationProperties(prefix = "backfill")
+public class BackfillProperties {
+
+    /**
+     * First day of the archive, upstream publishes nothing earlier
+     */
+    private LocalDate from = LocalDate.of(1999, 1, 4);
+
+    /**
+     * Upstream calls the backfill makes at the same time
+     */
+    private int concurrency = 4;
+
+    /**
+     * Continue an unfinished backfill when the application starts, or takes the coherence lead
+     */
+    private boolean resumeOnStartup = true;
+
+    /**
+     * Milliseconds between two checks of the coherence lead, to resume when it is taken and stop when it is lost
+     */
+    private long leadCheckInterval = 30_000;
+}
@@ -5,23 +5,43 @@ import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class CacheConfig {
 
+    public static final String HISTORY_SEGMENTS = "historySegments";
+    public static final String LATEST_RATES = "latestRates";
+
+    /**
+     * 30 currencies x 25+ years of month segments
+     */
+    private static final long MAX_HISTORY_SEGMENTS = 12_000;
+
     @Bean
     public Caffeine<Object, Object> caffeineConfig() {
         return Caffeine.newBuilder()
                 .expireAfterWrite(1, TimeUnit.HOURS)
-                .maximumSize(1000);
+                .maximumSize(1000)
+                .recordStats();
     }
 
+    /**
+     * Both caches are registered up front, so the cache metrics binder finds them at startup
+     * and publishes their hit, miss, eviction and load counts
+     */
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
+    public CacheManager cacheManager(Caffeine<Object, Object> caffeine, CurrencyApiProperties currencyApiProperties) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(caffeine);
         cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(LATEST_RATES, caffeine.build());
+        cacheManager.registerCustomCache(HISTORY_SEGMENTS, Caffeine.newBuilder()
+                .expireAfter(new HistorySegmentExpiry(Set.copyOf(currencyApiProperties.getCurrencies())))
+                .maximumSize(MAX_HISTORY_SEGMENTS)
+                .recordStats()
+                .build());
         return cacheManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coherence")
+public class CoherenceProperties {
+
+    /**
+     * local for a single instance, postgres for instances sharing the application database
+     */
+    private Transport transport = Transport.LOCAL;
+
+    /**
+     * Postgres channel the instances notify and listen on
+     */
+    private String channel = "rate_coherence";
+
+    /**
+     * Key of the Postgres advisory lock held by the leader
+     */
+    private long lockKey = 7_262_010;
+
+    /**
+     * Longest wait for notifications before the listener looks whether it should stop
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * Wait before a lost listener connection is opened again
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    /**
+     * Milliseconds between two announcements of the currencies subscribers follow here,
+     * the leader forgets an instance not heard from for three of them
+     */
+    private long interestInterval = 60_000;
+
+    public enum Transport {
+        LOCAL, POSTGRES
+    }
+}
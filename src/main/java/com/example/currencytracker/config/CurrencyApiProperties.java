@@ -0,0 +1,160 @@
+package com.example.currencytracker.config;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "currency-api")
+public class CurrencyApiProperties {
+
+    /**
+     * NBP exchange rates API, the base of its /rates and /tables resources
+     */
+    private String url = "https://api.nbp.pl/api/exchangerates";
+
+    /**
+     * Currencies kept warm by the prefetcher
+     */
+    private List<CurrencyCode> currencies = new ArrayList<>();
+
+    /**
+     * NBP table with mid rates, A (daily) or B (weekly)
+     */
+    private String table = "A";
+
+    /**
+     * Rate providers asked, in order of preference until their latencies are known
+     */
+    private List<String> providers = new ArrayList<>(List.of("frankfurter", "nbp"));
+
+    private Hedge hedge = new Hedge();
+
+    private Quota quota = new Quota();
+
+    private Merge merge = new Merge();
+
+    private Retry retry = new Retry();
+
+    private Upstream upstream = new Upstream();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @Data
+    public static class Retry {
+
+        private int attempts = 3;
+
+        /**
+         * Pause after the first failed attempt in ms, doubled after every further one
+         */
+        private long delay = 5000;
+
+        /**
+         * Longest pause between attempts in ms
+         */
+        private long maxDelay = 60000;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * Consecutive failed upstream calls that open the circuit
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * How long calls fail fast before a trial call is let through
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Hedge {
+
+        /**
+         * Latencies kept per provider
+         */
+        private int window = 128;
+
+        /**
+         * Latencies a provider needs before its p95 is used, until then initial-delay stands in for it
+         */
+        private int minSamples = 10;
+
+        /**
+         * Wait before asking the next provider while the first has too few latencies
+         */
+        private Duration initialDelay = Duration.ofMillis(300);
+
+        /**
+         * Bounds of the wait before the next provider is asked, the p95 of the first is clamped to them
+         */
+        private Duration minDelay = Duration.ofMillis(20);
+
+        private Duration maxDelay = Duration.ofSeconds(2);
+
+        /**
+         * Every n-th call asks all providers at once, so one that is never hedged to still gets
+         * latencies and can take the lead; 0 turns it off
+         */
+        private int probeEvery = 20;
+    }
+
+    /**
+     * Token bucket of the upstream calls, a provider sees at most this rate apart from hedges and probes
+     */
+    @Data
+    public static class Quota {
+
+        /**
+         * Calls per second, 0 for no limit
+         */
+        private double rate = 10;
+
+        /**
+         * Calls that may go at once after a quiet spell
+         */
+        private int burst = 20;
+    }
+
+    @Data
+    public static class Merge {
+
+        /**
+         * Longest range, in days, queued history requests are merged into
+         */
+        private int maxDays = 366;
+
+        /**
+         * Longest wait of a queued interactive request for its call to be sent, the read timeout starts then
+         */
+        private Duration interactiveQueueWait = Duration.ofSeconds(5);
+
+        /**
+         * Longest wait of a queued background request, which gives way to every interactive one
+         */
+        private Duration backgroundQueueWait = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Frankfurter API, and the timeouts of every provider
+     */
+    @Data
+    public static class Upstream {
+
+        private String url = "https://api.frankfurter.app";
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /**
+         * Longest wait for the response of one call
+         */
+        private Duration readTimeout = Duration.ofSeconds(5);
+    }
+}
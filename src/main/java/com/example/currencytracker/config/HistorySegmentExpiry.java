@@ -0,0 +1,73 @@
+package com.example.currencytracker.config;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.HistorySegment;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.*;
+import java.util.Set;
+
+/**
+ * Expiry for month segments of rate history.
+ * A segment whose month has no fixing left to publish never expires.
+ * The current segment lives until the next 16:00 fixing, and is retried shortly
+ * after when a fixing that should already be out is still missing from it.
+ * Current segments of prefetched currencies are only replaced by the prefetcher.
+ */
+public class HistorySegmentExpiry implements Expiry<Object, Object> {
+
+    static final Duration PUBLICATION_RETRY = Duration.ofMinutes(10);
+
+    private final Clock clock;
+    private final Set<CurrencyCode> prefetched;
+
+    public HistorySegmentExpiry(Set<CurrencyCode> prefetched) {
+        this(Clock.systemDefaultZone(), prefetched);
+    }
+
+    public HistorySegmentExpiry(Clock clock, Set<CurrencyCode> prefetched) {
+        this.clock = clock;
+        this.prefetched = prefetched;
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return timeToLive(value).toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return timeToLive(value).toNanos();
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    Duration timeToLive(Object value) {
+        if (!(value instanceof HistorySegment segment)) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime nextFixing = FixingCalendar.nextFixing(now);
+        if (nextFixing.toLocalDate().isAfter(segment.month().atEndOfMonth())) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        if (prefetched.contains(segment.currency())) {
+            // replaced by the prefetcher, requests never wait for a reload
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+
+        LocalDate lastExpected = FixingCalendar.lastExpectedFixing(now);
+        LocalDate lastFixing = segment.lastFixingDate();
+        boolean overdue = YearMonth.from(lastExpected).equals(segment.month())
+                && (lastFixing == null || lastFixing.isBefore(lastExpected));
+        if (overdue) {
+            return PUBLICATION_RETRY;
+        }
+        return Duration.between(now, nextFixing);
+    }
+}
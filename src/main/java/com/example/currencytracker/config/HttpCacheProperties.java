@@ -0,0 +1,21 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "http-cache")
+public class HttpCacheProperties {
+
+    /**
+     * max-age of latest rates and of history reaching a fixing that may still be published
+     */
+    private Duration recentMaxAge = Duration.ofMinutes(1);
+
+    /**
+     * max-age of history whose fixings are all published, sent as immutable
+     */
+    private Duration pastMaxAge = Duration.ofDays(365);
+}
@@ -0,0 +1,21 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "indicators")
+public class IndicatorProperties {
+
+    /**
+     * Windows, in fixings, reported when a request names none
+     */
+    private List<Integer> windows = List.of(5, 20, 60);
+
+    /**
+     * Largest window a request may ask for
+     */
+    private int maxWindow = 260;
+}
@@ -0,0 +1,18 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "scheduler")
+public class SchedulerProperties {
+
+    private String fetchIntervalCron;
+
+    /**
+     * Prefetched data older than this is reported as stale
+     */
+    private Duration maxStaleness = Duration.ofHours(2);
+}
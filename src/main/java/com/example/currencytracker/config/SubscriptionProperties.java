@@ -0,0 +1,28 @@
+package com.example.currencytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "subscriptions")
+public class SubscriptionProperties {
+
+    /**
+     * Events queued for one subscriber, a subscriber falling further behind is disconnected
+     */
+    private int bufferSize = 16;
+
+    private int maxSubscribers = 10_000;
+
+    /**
+     * A subscription ends after this long, clients reconnect
+     */
+    private Duration timeout = Duration.ofHours(1);
+
+    /**
+     * Milliseconds between two heartbeat comments, they keep proxies from closing idle streams
+     */
+    private long heartbeatInterval = 30_000;
+}
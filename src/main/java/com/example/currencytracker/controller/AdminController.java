@@ -0,0 +1,93 @@
+package com.example.currencytracker.controller;
+
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.client.ProviderRouter;
+import com.example.currencytracker.client.SingleFlight;
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.client.UpstreamScheduler;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.BackfillProperties;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.service.BackfillService;
+import com.example.currencytracker.service.RateBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final UpstreamGateway upstreamGateway;
+    private final BackfillService backfillService;
+    private final BackfillProperties backfillProperties;
+    private final RateBroadcaster rateBroadcaster;
+    private final RateCoherence rateCoherence;
+
+    @GetMapping("/upstream")
+    public Map<String, SingleFlight.Stats> getUpstreamStats() {
+        return upstreamGateway.stats();
+    }
+
+    @GetMapping("/upstream/circuit")
+    public CircuitBreaker.Stats getUpstreamCircuit() {
+        return upstreamGateway.circuitStats();
+    }
+
+    /**
+     * Latencies and wins per rate provider, in the order the next call asks them
+     */
+    @GetMapping("/upstream/providers")
+    public List<ProviderRouter.ProviderStats> getProviderStats() {
+        return upstreamGateway.providerStats();
+    }
+
+    /**
+     * Queued history requests and how many of them each upstream call answered
+     */
+    @GetMapping("/upstream/scheduler")
+    public UpstreamScheduler.Stats getSchedulerStats() {
+        return upstreamGateway.schedulerStats();
+    }
+
+    /**
+     * This instance's node id, whether it leads, and the coherence messages it sent and received
+     */
+    @GetMapping("/coherence")
+    public RateCoherence.Stats getCoherenceStats() {
+        return rateCoherence.stats();
+    }
+
+    @GetMapping("/subscriptions")
+    public RateBroadcaster.Stats getSubscriptionStats() {
+        return rateBroadcaster.stats();
+    }
+
+    @GetMapping("/backfill")
+    public BackfillService.Progress getBackfillProgress() {
+        return backfillService.progress();
+    }
+
+    /**
+     * Backfill the archive, all currencies and every year by default
+     */
+    @PostMapping("/backfill")
+    public BackfillService.Progress startBackfill(@RequestParam(required = false) List<CurrencyCode> currency,
+                                                  @RequestParam(required = false) Integer fromYear,
+                                                  @RequestParam(required = false) Integer toYear) {
+        return backfillService.start(
+                currency == null || currency.isEmpty() ? EnumSet.allOf(CurrencyCode.class) : EnumSet.copyOf(currency),
+                fromYear == null ? backfillProperties.getFrom().getYear() : fromYear,
+                toYear == null ? LocalDate.now().getYear() : toYear);
+    }
+
+    @DeleteMapping("/backfill")
+    public BackfillService.Progress stopBackfill() {
+        return backfillService.stop();
+    }
+}
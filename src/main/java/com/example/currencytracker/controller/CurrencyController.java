@@ -1,14 +1,36 @@
 package com.example.currencytracker.controller;
 
+import com.example.currencytracker.config.HttpCacheProperties;
+import com.example.currencytracker.dto.ConversionDTO;
+import com.example.currencytracker.dto.ConversionRequestDTO;
 import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.dto.IndicatorsDTO;
 import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.indicator.IndicatorEngine;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.RateVersion;
+import com.example.currencytracker.series.RateColumns;
+import com.example.currencytracker.service.CrossRateService;
 import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.HistoryExporter;
+import com.example.currencytracker.service.RateBroadcaster;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/rates")
@@ -16,19 +38,109 @@ import java.util.Map;
 public class CurrencyController {
 
     private final CurrencyService currencyService;
+    private final IndicatorEngine indicatorEngine;
+    private final HistoryExporter historyExporter;
+    private final HttpCacheProperties httpCacheProperties;
+    private final CrossRateService crossRateService;
+    private final RateBroadcaster rateBroadcaster;
 
+    /**
+     * Single currency returns one rate, a comma separated list returns a list of rates
+     */
     @GetMapping("/latest")
-    public CurrencyRateDTO getLatest(@RequestParam CurrencyCode currency) {
-        return currencyService.fetchDailyRate(currency);
+    public ResponseEntity<Object> getLatest(@RequestParam List<CurrencyCode> currency, WebRequest request) {
+        List<CurrencyCode> currencies = currency.stream().distinct().toList();
+        CacheControl cacheControl = CacheControl.maxAge(httpCacheProperties.getRecentMaxAge()).cachePublic();
+        if (currencies.size() == 1) {
+            CurrencyRateDTO rate = currencyService.fetchDailyRate(currencies.getFirst());
+            return conditional(request, RateVersion.ofRates(List.of(rate)), cacheControl, () -> rate);
+        }
+
+        Map<CurrencyCode, CurrencyRateDTO> rates = currencyService.fetchDailyRates(currencies);
+        List<CurrencyRateDTO> ordered = currencies.stream().map(rates::get).toList();
+        return conditional(request, RateVersion.ofRates(ordered), cacheControl, () -> ordered);
+    }
+
+    /**
+     * Server-sent "rate" events: the current rates first, then every change found by the prefetch
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam List<CurrencyCode> currency) {
+        return rateBroadcaster.subscribe(EnumSet.copyOf(currency));
     }
 
+    /**
+     * Validated against a version taken from the series, a 304 is answered without building the rates
+     */
     @GetMapping("/history")
-    public List<CurrencyRateDTO> getHistory(@RequestParam CurrencyCode currency,
-                                            @RequestParam String from,
-                                            @RequestParam String to) {
+    public ResponseEntity<List<CurrencyRateDTO>> getHistory(@RequestParam List<CurrencyCode> currency,
+                                                            @RequestParam String from,
+                                                            @RequestParam String to,
+                                                            WebRequest request) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+
+        List<CurrencyCode> currencies = currency.stream().distinct().toList();
+        RateVersion version = currencyService.historyVersion(currencies, fromDate, toDate);
+
+        return conditional(request, version, historyCacheControl(toDate), () -> {
+            if (currencies.size() == 1) {
+                return currencyService.fetchHistory(currencies.getFirst(), fromDate, toDate);
+            }
+            Map<CurrencyCode, List<CurrencyRateDTO>> histories = currencyService.fetchHistories(currencies, fromDate, toDate);
+            return currencies.stream().flatMap(c -> histories.get(c).stream()).toList();
+        });
+    }
+
+    /**
+     * Same history as rate columns, for clients sending Accept: application/x-rate-columns.
+     * Validated like the JSON history, with the encoding added to the ETag.
+     */
+    @GetMapping(value = "/history", produces = RateColumns.CONTENT_TYPE)
+    public ResponseEntity<byte[]> getHistoryColumns(@RequestParam List<CurrencyCode> currency,
+                                                    @RequestParam String from,
+                                                    @RequestParam String to,
+                                                    WebRequest request) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+
+        List<CurrencyCode> currencies = currency.stream().distinct().toList();
+        RateVersion version = currencyService.historyVersion(currencies, fromDate, toDate).encodedAs("columns");
+
+        return conditional(request, version, historyCacheControl(toDate),
+                () -> historyExporter.exportColumns(currencies, fromDate, toDate));
+    }
+
+    /**
+     * Same history as NDJSON, streamed a few months at a time, for clients sending Accept: application/x-ndjson
+     */
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistory(@RequestParam List<CurrencyCode> currency,
+                                                               @RequestParam String from,
+                                                               @RequestParam String to) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        List<CurrencyCode> currencies = currency.stream().distinct().toList();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> historyExporter.exportHistory(currencies, fromDate, toDate, out));
+    }
+
+    /**
+     * Rates already stored in the database as NDJSON, read through a cursor without calling upstream
+     */
+    @GetMapping(value = "/history/stored", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStoredHistory(@RequestParam List<CurrencyCode> currency,
+                                                                     @RequestParam String from,
+                                                                     @RequestParam String to) {
         LocalDate fromDate = LocalDate.parse(from);
         LocalDate toDate = LocalDate.parse(to);
-        return currencyService.fetchHistory(currency, fromDate, toDate);
+        List<CurrencyCode> currencies = currency.stream().distinct().toList();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> historyExporter.exportStored(currencies, fromDate, toDate, out));
     }
 
     @GetMapping("/avg")
@@ -42,6 +154,18 @@ public class CurrencyController {
         );
     }
 
+    @GetMapping("/variance")
+    public Map<String, Object> getVariance(@RequestParam CurrencyCode currency,
+                                           @RequestParam int days) {
+        double variance = currencyService.getVariance(days, currency);
+
+        return Map.ofEntries(
+                Map.entry("currency", currency),
+                Map.entry("variance", variance),
+                Map.entry("stddev", Math.sqrt(variance))
+        );
+    }
+
     @GetMapping("/trend")
     public Map<String, Object> getTrend(@RequestParam CurrencyCode currency,
                                         @RequestParam int days) {
@@ -51,4 +175,51 @@ public class CurrencyController {
                 Map.entry("trend", trend)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Fixings before the newest expected one are published and do not change
+     */
+    private CacheControl historyCacheControl(LocalDate toDate) {
+        return toDate.isBefore(FixingCalendar.lastExpectedFixing(LocalDateTime.now()))
+                ? CacheControl.maxAge(httpCacheProperties.getPastMaxAge()).cachePublic().immutable()
+                : CacheControl.maxAge(httpCacheProperties.getRecentMaxAge()).cachePublic();
+    }
+
+    /**
+     * 304 when the request already holds this version, the body is only built otherwise.
+     * Answers vary by Accept, history comes in more than one encoding.
+     */
+    private static <T> ResponseEntity<T> conditional(WebRequest request, RateVersion version,
+                                                     CacheControl cacheControl, Supplier<T> body) {
+        if (request.checkNotModified(version.eTag(), version.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT).eTag(version.eTag());
+        if (version.lastModified() >= 0) {
+            response.lastModified(version.lastModified());
+        }
+        return response.body(body.get());
+    }
+
+    /**
+     * SMA, EMA, volatility and min/max over the last window fixings, configured windows when none is given
+     */
+    @GetMapping("/indicators")
+    public List<IndicatorsDTO> getIndicators(@RequestParam CurrencyCode currency,
+                                             @RequestParam(required = false) List<Integer> window) {
+        if (window == null || window.isEmpty()) {
+            return indicatorEngine.getIndicators(currency);
+        }
+        return indicatorEngine.getIndicators(currency, window);
+    }
+
+    /**
+     * Convert integer amounts between any two currencies, PLN included, at the current cross rate
+     */
+    @PostMapping("/convert")
+    public ConversionDTO convert(@RequestBody ConversionRequestDTO request) {
+        return crossRateService.convert(request);
+    }
+}
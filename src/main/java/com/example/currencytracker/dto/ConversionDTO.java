@@ -0,0 +1,30 @@
+package com.example.currencytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Converted amounts in the order they were sent, at targetScale
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ConversionDTO {
+    private String from;
+    private String to;
+    private BigDecimal rate;
+
+    /**
+     * Older fixing date of the two rates the cross rate comes from
+     */
+    private LocalDate asOf;
+    private int scale;
+    private int targetScale;
+    private long[] amounts;
+}
@@ -0,0 +1,22 @@
+package com.example.currencytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Amounts of one currency to convert, as integers in units of 10^-scale (cents at scale 2).
+ * The converted amounts use targetScale, the scale when it is not given.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ConversionRequestDTO {
+    private String from;
+    private String to;
+    private Integer scale;
+    private Integer targetScale;
+    private long[] amounts;
+}
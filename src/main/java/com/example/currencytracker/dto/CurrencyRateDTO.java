@@ -1,22 +1,44 @@
 package com.example.currencytracker.dto;
 
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class CurrencyRateDTO {
     private String currency;
     private BigDecimal rate;
 
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime timestamp;
+
+    /**
+     * Seconds since the rate was fetched, only set when it is served stale while a refresh runs
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long ageSeconds;
+
+    public CurrencyRateDTO(String currency, BigDecimal rate, LocalDateTime timestamp) {
+        this(currency, rate, timestamp, null);
+    }
+
+    /**
+     * DTO of a daily fixing held in a rate series
+     */
+    public static CurrencyRateDTO ofFixing(CurrencyCode currency, long epochDay, double rate) {
+        return new CurrencyRateDTO(currency.name(), BigDecimal.valueOf(rate),
+                LocalDate.ofEpochDay(epochDay).atTime(FixingCalendar.FIXING_TIME));
+    }
 }
\ No newline at end of file
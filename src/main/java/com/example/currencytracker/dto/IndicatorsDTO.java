@@ -0,0 +1,31 @@
+package com.example.currencytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Rolling indicators over the last window fixings, null where there are too few fixings
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class IndicatorsDTO {
+    private String currency;
+    private int window;
+    private int fixings;
+    private LocalDate asOf;
+    private Double sma;
+    private Double ema;
+
+    /**
+     * Sample standard deviation of the daily log returns
+     */
+    private Double volatility;
+    private Double min;
+    private Double max;
+}
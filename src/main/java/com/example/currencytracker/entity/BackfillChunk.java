@@ -0,0 +1,46 @@
+package com.example.currencytracker.entity;
+
+import com.example.currencytracker.enums.BackfillStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One year of one currency in the historical backfill, the checkpoint a restarted backfill resumes from
+ */
+@Entity
+@Table(name = "backfill_chunks", uniqueConstraints = @UniqueConstraint(columnNames = {"currency", "chunk_year"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BackfillChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "backfill_chunks_seq")
+    @SequenceGenerator(name = "backfill_chunks_seq", sequenceName = "backfill_chunks_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(name = "chunk_year", nullable = false)
+    private int year;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BackfillStatus status;
+
+    private int rowsStored;
+
+    private int attempts;
+
+    private String lastError;
+
+    private Instant updatedAt;
+
+}
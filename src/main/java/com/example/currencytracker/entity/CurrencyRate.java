@@ -10,16 +10,26 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Daily fixing of a currency. Unique on (currency, timestamp), the conflict target of
+ * {@link com.example.currencytracker.repository.CurrencyRateUpsert} which writes the rows,
+ * and the index range reads are served from. The V1 migration creates it covering the rate as well.
+ */
 @Entity
-@Table(name = "currency_rates")
+@Table(name = "currency_rates", indexes = @Index(name = "currency_rates_currency_timestamp_ux",
+        columnList = "currency, timestamp", unique = true))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class CurrencyRate {
 
+    /**
+     * Pooled sequence, so ids are handed out without a round trip per row and inserts can be batched
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency_rates_seq")
+    @SequenceGenerator(name = "currency_rates_seq", sequenceName = "currency_rates_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -31,4 +41,10 @@ public class CurrencyRate {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    /**
+     * Provider that published the fixing, null for rows stored before it was recorded. Another provider's
+     * rate for the same fixing never replaces it, the providers' rates differ in the last digits.
+     */
+    private String provider;
+
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.currencytracker.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Period of days already fetched from upstream for a currency.
+ * Days inside a covered period without a row in currency_rates had no fixing.
+ */
+@Entity
+@Table(name = "currency_rate_coverage")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RateCoverage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency_rate_coverage_seq")
+    @SequenceGenerator(name = "currency_rate_coverage_seq", sequenceName = "currency_rate_coverage_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(nullable = false)
+    private LocalDate fromDate;
+
+    @Column(nullable = false)
+    private LocalDate toDate;
+
+}
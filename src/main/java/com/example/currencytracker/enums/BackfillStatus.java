@@ -0,0 +1,5 @@
+package com.example.currencytracker.enums;
+
+public enum BackfillStatus {
+    PENDING, RUNNING, DONE, FAILED
+}
@@ -0,0 +1,8 @@
+package com.example.currencytracker.enums;
+
+/**
+ * Order in which queued upstream calls are sent, a caller waiting on the answer goes first
+ */
+public enum UpstreamPriority {
+    INTERACTIVE, BACKGROUND
+}
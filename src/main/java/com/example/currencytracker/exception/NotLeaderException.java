@@ -0,0 +1,10 @@
+package com.example.currencytracker.exception;
+
+/**
+ * The work is left to the instance holding the coherence lead
+ */
+public class NotLeaderException extends RuntimeException {
+    public NotLeaderException(String message) {
+        super(message);
+    }
+}
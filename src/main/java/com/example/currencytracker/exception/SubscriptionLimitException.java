@@ -0,0 +1,10 @@
+package com.example.currencytracker.exception;
+
+/**
+ * The node holds as many rate subscriptions as it is configured for
+ */
+public class SubscriptionLimitException extends RuntimeException {
+    public SubscriptionLimitException(String message) {
+        super(message);
+    }
+}
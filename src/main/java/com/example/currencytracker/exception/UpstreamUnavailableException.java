@@ -0,0 +1,19 @@
+package com.example.currencytracker.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Upstream is considered down and the call was not attempted
+ */
+@Getter
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.currencytracker.health;
+
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.config.SchedulerProperties;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.RatePrefetcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Reports how old the prefetched rates are.
+ * STALE when the last successful refresh is older than scheduler.max-staleness.
+ */
+@Component("rateFreshness")
+@RequiredArgsConstructor
+public class RateFreshnessHealthIndicator implements HealthIndicator {
+
+    public static final Status STALE = new Status("STALE", "Prefetched rates are older than the allowed staleness");
+
+    private final CurrencyApiProperties currencyApiProperties;
+    private final SchedulerProperties schedulerProperties;
+    private final LatestRateSnapshot latestRateSnapshot;
+    private final RatePrefetcher ratePrefetcher;
+
+    @Override
+    public Health health() {
+        LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+        Health.Builder builder = new Health.Builder()
+                .withDetail("currencies", currencyApiProperties.getCurrencies());
+
+        if (ratePrefetcher.getLastFailure() != null) {
+            builder.withDetail("lastFailureAt", ratePrefetcher.getLastFailureAt())
+                    .withDetail("lastFailure", ratePrefetcher.getLastFailure());
+        }
+
+        if (currencyApiProperties.getCurrencies().isEmpty()) {
+            return builder.up().build();
+        }
+        if (snapshot.refreshedAt() == null) {
+            return builder.unknown().withDetail("refreshedAt", "never").build();
+        }
+
+        Duration age = Duration.between(snapshot.refreshedAt(), Instant.now());
+        LocalDate oldestFixing = snapshot.rates().values().stream()
+                .map(rate -> rate.getTimestamp().toLocalDate())
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        LocalDate expectedFixing = FixingCalendar.lastExpectedFixing(LocalDateTime.now());
+
+        builder.withDetail("refreshedAt", snapshot.refreshedAt())
+                .withDetail("ageSeconds", age.toSeconds())
+                .withDetail("oldestFixing", oldestFixing == null ? "none" : oldestFixing)
+                .withDetail("expectedFixing", expectedFixing)
+                .withDetail("fixingBehind", oldestFixing == null || oldestFixing.isBefore(expectedFixing));
+
+        boolean stale = age.compareTo(schedulerProperties.getMaxStaleness()) > 0
+                || snapshot.rates().size() < currencyApiProperties.getCurrencies().size();
+        return builder.status(stale ? STALE : Status.UP).build();
+    }
+}
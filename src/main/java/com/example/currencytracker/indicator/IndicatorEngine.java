@@ -0,0 +1,103 @@
+package com.example.currencytracker.indicator;
+
+import com.example.currencytracker.config.IndicatorProperties;
+import com.example.currencytracker.dto.IndicatorsDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.series.SeriesListener;
+import com.example.currencytracker.service.RateHistoryStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps rolling indicators per currency and window up to date as fixings are appended
+ * to the rate series. A window is registered by the first request asking for it, which
+ * replays enough history to warm the EMA up; from then on every fixing costs O(1).
+ */
+@Component
+@RequiredArgsConstructor
+public class IndicatorEngine implements SeriesListener {
+
+    /**
+     * The EMA is replayed over this many windows, older fixings weigh less than e^-8
+     */
+    private static final int WARM_UP_WINDOWS = 5;
+
+    private final RateSeriesStore rateSeriesStore;
+    private final RateHistoryStore rateHistoryStore;
+    private final IndicatorProperties indicatorProperties;
+
+    private final Map<Key, RollingIndicators> indicators = new ConcurrentHashMap<>();
+    private final Map<CurrencyCode, List<RollingIndicators>> byCurrency = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void register() {
+        rateSeriesStore.addListener(this);
+    }
+
+    /**
+     * Indicators of the configured windows
+     */
+    public List<IndicatorsDTO> getIndicators(CurrencyCode currency) {
+        return getIndicators(currency, indicatorProperties.getWindows());
+    }
+
+    public List<IndicatorsDTO> getIndicators(CurrencyCode currency, List<Integer> windows) {
+        for (int window : windows) {
+            if (window < 1 || window > indicatorProperties.getMaxWindow()) {
+                throw new IllegalArgumentException("Window must be between 1 and "
+                        + indicatorProperties.getMaxWindow() + " fixings, got " + window);
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        // one or two cached segments, loads the newest fixing if nobody prefetches this currency
+        rateHistoryStore.ensureLoaded(currency, FixingCalendar.lastExpectedFixing(LocalDateTime.now()), today);
+
+        return windows.stream().distinct()
+                .map(window -> indicators(currency, window, today).snapshot(currency))
+                .toList();
+    }
+
+    @Override
+    public void onAppend(CurrencyCode currency, long epochDay, double rate) {
+        for (RollingIndicators rolling : byCurrency.getOrDefault(currency, List.of())) {
+            rolling.onAppend(epochDay, rate);
+        }
+    }
+
+    @Override
+    public void onRewrite(CurrencyCode currency, long epochDay) {
+        for (RollingIndicators rolling : byCurrency.getOrDefault(currency, List.of())) {
+            rolling.markStale(epochDay);
+        }
+    }
+
+    private RollingIndicators indicators(CurrencyCode currency, int window, LocalDate today) {
+        RollingIndicators rolling = indicators.computeIfAbsent(new Key(currency, window), key -> {
+            RollingIndicators created = new RollingIndicators(window);
+            byCurrency.computeIfAbsent(currency, c -> new CopyOnWriteArrayList<>()).add(created);
+            return created;
+        });
+
+        if (rolling.isStale()) {
+            // about seven calendar days per five fixings, plus room for holidays
+            LocalDate from = today.minusDays(7L * WARM_UP_WINDOWS * window / 5 + 14);
+            rateHistoryStore.ensureLoaded(currency, from, today);
+            rolling.rebuild(rateSeriesStore.get(currency), from.toEpochDay(), today.toEpochDay());
+        }
+        return rolling;
+    }
+
+    private record Key(CurrencyCode currency, int window) {
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.currencytracker.indicator;
+
+import com.example.currencytracker.dto.IndicatorsDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeries;
+
+import java.time.LocalDate;
+
+/**
+ * Indicators over the last N fixings of one currency, updated in O(1) amortized per fixing:
+ * a ring of rates for the SMA, a ring of log returns for the volatility, the EMA,
+ * and monotonic deques of positions for the rolling min and max.
+ * Running sums are recomputed from the rings once per N updates, so rounding never builds up.
+ */
+class RollingIndicators {
+
+    private final int window;
+    private final double alpha;
+
+    private final double[] rates;
+    private final double[] returns;
+    private final PositionDeque minimums;
+    private final PositionDeque maximums;
+
+    private long count;
+    private long returnCount;
+    private double shift;
+    private double sum;
+    private double returnSum;
+    private double returnSquares;
+    private double previous;
+    private double ema;
+    private long firstDay;
+    private long lastDay;
+
+    /**
+     * Set when fixings inside the replayed range changed, the next query replays the series
+     */
+    private volatile boolean stale = true;
+
+    RollingIndicators(int window) {
+        this.window = window;
+        this.alpha = 2.0 / (window + 1);
+        this.rates = new double[window];
+        this.returns = new double[window];
+        this.minimums = new PositionDeque(window);
+        this.maximums = new PositionDeque(window);
+        reset();
+    }
+
+    int window() {
+        return window;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    synchronized void markStale(long epochDay) {
+        if (!stale && epochDay >= firstDay) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Fold in a newly appended fixing, ignored while stale or when already replayed
+     */
+    synchronized void onAppend(long epochDay, double rate) {
+        if (!stale && epochDay > lastDay) {
+            accept(epochDay, rate);
+        }
+    }
+
+    /**
+     * Start over from the fixings of the series in the given day range
+     */
+    synchronized void rebuild(RateSeries series, long fromDay, long toDay) {
+        reset();
+        series.forEach(fromDay, toDay, this::accept);
+        stale = false;
+    }
+
+    synchronized IndicatorsDTO snapshot(CurrencyCode currency) {
+        int fixings = (int) Math.min(count, window);
+        int changes = (int) Math.min(returnCount, window);
+
+        IndicatorsDTO.IndicatorsDTOBuilder builder = IndicatorsDTO.builder()
+                .currency(currency.name())
+                .window(window)
+                .fixings(fixings);
+        if (fixings == 0) {
+            return builder.build();
+        }
+
+        builder.asOf(LocalDate.ofEpochDay(lastDay))
+                .sma(shift + sum / fixings)
+                .ema(ema)
+                .min(rates[slot(minimums.first())])
+                .max(rates[slot(maximums.first())]);
+        if (changes >= 2) {
+            double variance = (returnSquares - returnSum * returnSum / changes) / (changes - 1);
+            builder.volatility(Math.sqrt(Math.max(0, variance)));
+        }
+        return builder.build();
+    }
+
+    private void accept(long epochDay, double rate) {
+        if (count == 0) {
+            shift = rate;
+            firstDay = epochDay;
+        }
+        long position = count;
+        // drop the positions leaving the window first, the slot they used is about to be reused
+        long oldest = position - window + 1;
+        while (!minimums.isEmpty() && minimums.first() < oldest) {
+            minimums.removeFirst();
+        }
+        while (!maximums.isEmpty() && maximums.first() < oldest) {
+            maximums.removeFirst();
+        }
+
+        int slot = slot(position);
+        if (position >= window) {
+            sum -= rates[slot] - shift;
+        }
+        rates[slot] = rate;
+        sum += rate - shift;
+        count++;
+
+        if (position > 0) {
+            double change = Math.log(rate / previous);
+            int returnSlot = (int) (returnCount % window);
+            if (returnCount >= window) {
+                returnSum -= returns[returnSlot];
+                returnSquares -= returns[returnSlot] * returns[returnSlot];
+            }
+            returns[returnSlot] = change;
+            returnSum += change;
+            returnSquares += change * change;
+            returnCount++;
+        }
+        previous = rate;
+
+        // the EMA starts as the plain average of the first window, then decays
+        ema = count <= window ? shift + sum / count : ema + alpha * (rate - ema);
+
+        while (!minimums.isEmpty() && rates[slot(minimums.last())] >= rate) {
+            minimums.removeLast();
+        }
+        minimums.addLast(position);
+        while (!maximums.isEmpty() && rates[slot(maximums.last())] <= rate) {
+            maximums.removeLast();
+        }
+        maximums.addLast(position);
+
+        lastDay = epochDay;
+        if (count % window == 0) {
+            resum();
+        }
+    }
+
+    private void resum() {
+        int fixings = (int) Math.min(count, window);
+        sum = 0;
+        for (int i = 0; i < fixings; i++) {
+            sum += rates[i] - shift;
+        }
+        int changes = (int) Math.min(returnCount, window);
+        returnSum = 0;
+        returnSquares = 0;
+        for (int i = 0; i < changes; i++) {
+            returnSum += returns[i];
+            returnSquares += returns[i] * returns[i];
+        }
+    }
+
+    private void reset() {
+        count = 0;
+        returnCount = 0;
+        sum = 0;
+        returnSum = 0;
+        returnSquares = 0;
+        previous = Double.NaN;
+        ema = Double.NaN;
+        firstDay = Long.MIN_VALUE;
+        lastDay = Long.MIN_VALUE;
+        minimums.clear();
+        maximums.clear();
+    }
+
+    private int slot(long position) {
+        return (int) (position % window);
+    }
+
+    /**
+     * Fixed capacity ring of fixing positions, both ends O(1)
+     */
+    private static final class PositionDeque {
+
+        private final long[] positions;
+        private int head;
+        private int size;
+
+        PositionDeque(int capacity) {
+            positions = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long first() {
+            return positions[head];
+        }
+
+        long last() {
+            return positions[(head + size - 1) % positions.length];
+        }
+
+        void addLast(long position) {
+            positions[(head + size) % positions.length] = position;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) % positions.length;
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.currencytracker.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Inclusive range of calendar days
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+
+    public DateRange {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end " + to + " is before start " + from);
+        }
+    }
+
+    public boolean contains(LocalDate date) {
+        return !date.isBefore(from) && !date.isAfter(to);
+    }
+
+    /**
+     * True when no fixing can be published inside the range (weekend only)
+     */
+    public boolean isWeekendOnly() {
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sub-ranges of this range that are not covered by any of the given ranges
+     */
+    public List<DateRange> minus(List<DateRange> covered) {
+        List<DateRange> sorted = new ArrayList<>(covered);
+        sorted.sort(Comparator.comparing(DateRange::from));
+
+        List<DateRange> missing = new ArrayList<>();
+        LocalDate cursor = from;
+        for (DateRange range : sorted) {
+            if (cursor.isAfter(to)) {
+                break;
+            }
+            if (range.to().isBefore(cursor)) {
+                continue;
+            }
+            if (range.from().isAfter(cursor)) {
+                LocalDate gapEnd = range.from().minusDays(1);
+                missing.add(new DateRange(cursor, gapEnd.isAfter(to) ? to : gapEnd));
+            }
+            cursor = range.to().plusDays(1);
+        }
+        if (!cursor.isAfter(to)) {
+            missing.add(new DateRange(cursor, to));
+        }
+        return missing;
+    }
+}
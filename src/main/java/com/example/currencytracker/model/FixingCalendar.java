@@ -0,0 +1,43 @@
+package com.example.currencytracker.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Publication schedule of the daily fixing: every weekday at 16:00
+ */
+public final class FixingCalendar {
+
+    public static final LocalTime FIXING_TIME = LocalTime.of(16, 0);
+
+    private FixingCalendar() {
+    }
+
+    /**
+     * First fixing published strictly after the given moment
+     */
+    public static LocalDateTime nextFixing(LocalDateTime now) {
+        LocalDate day = now.toLocalTime().isBefore(FIXING_TIME) ? now.toLocalDate() : now.toLocalDate().plusDays(1);
+        while (isWeekend(day)) {
+            day = day.plusDays(1);
+        }
+        return day.atTime(FIXING_TIME);
+    }
+
+    /**
+     * Date of the newest fixing that should already be published at the given moment
+     */
+    public static LocalDate lastExpectedFixing(LocalDateTime now) {
+        LocalDate day = now.toLocalTime().isBefore(FIXING_TIME) ? now.toLocalDate().minusDays(1) : now.toLocalDate();
+        while (isWeekend(day)) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    public static boolean isWeekend(LocalDate day) {
+        return day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+}
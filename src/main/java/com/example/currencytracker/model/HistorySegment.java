@@ -0,0 +1,20 @@
+package com.example.currencytracker.model;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Marks one month of a currency's rate series as loaded.
+ * The fixings themselves live in the series, the segment only records what it held when loaded.
+ */
+public record HistorySegment(CurrencyCode currency, YearMonth month, int fixings, LocalDate lastFixingDate) {
+
+    public record Key(CurrencyCode currency, YearMonth month) {
+    }
+
+    public Key key() {
+        return new Key(currency, month);
+    }
+}
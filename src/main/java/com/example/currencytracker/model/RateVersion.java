@@ -0,0 +1,53 @@
+package com.example.currencytracker.model;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+
+/**
+ * Validator of a rates response, derived from the data it is built from instead of the
+ * serialized body. The ETag is weak: a rate served stale carries its age but is the same rate.
+ */
+public record RateVersion(String eTag, long lastModified) {
+
+    public static RateVersion of(long hash, LocalDateTime lastModified) {
+        return new RateVersion("W/\"" + Long.toHexString(mix(hash, 0)) + "\"",
+                lastModified == null ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Version of the given rates, in their order
+     */
+    public static RateVersion ofRates(Collection<CurrencyRateDTO> rates) {
+        long hash = rates.size();
+        LocalDateTime newest = null;
+        for (CurrencyRateDTO rate : rates) {
+            hash = mix(hash, rate.getCurrency().hashCode());
+            hash = mix(hash, rate.getRate().stripTrailingZeros().hashCode());
+            hash = mix(hash, rate.getTimestamp().hashCode());
+            if (newest == null || rate.getTimestamp().isAfter(newest)) {
+                newest = rate.getTimestamp();
+            }
+        }
+        return of(hash, newest);
+    }
+
+    /**
+     * Same version of another encoding of the data, so caches never swap one body for the other
+     */
+    public RateVersion encodedAs(String encoding) {
+        return new RateVersion(eTag.substring(0, eTag.length() - 1) + "-" + encoding + "\"", lastModified);
+    }
+
+    /**
+     * Fold a value into the hash, SplitMix64 finalizer over the sum
+     */
+    public static long mix(long hash, long value) {
+        long z = hash * 31 + value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.currencytracker.repository;
+
+import com.example.currencytracker.entity.BackfillChunk;
+import com.example.currencytracker.enums.BackfillStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BackfillChunkRepository extends JpaRepository<BackfillChunk, Long> {
+
+    /**
+     * Newest years first, they are the ones asked for most
+     */
+    List<BackfillChunk> findByStatusOrderByYearDescCurrencyAsc(BackfillStatus status);
+
+    List<BackfillChunk> findByCurrencyInAndYearBetween(Collection<String> currencies, int fromYear, int toYear);
+
+    long countByStatus(BackfillStatus status);
+
+    @Query("select coalesce(sum(c.rowsStored), 0) from BackfillChunk c")
+    long sumRowsStored();
+
+    @Transactional
+    @Modifying
+    @Query("update BackfillChunk c set c.status = :to where c.status = :from")
+    int updateStatus(@Param("from") BackfillStatus from, @Param("to") BackfillStatus to);
+}
@@ -1,10 +1,59 @@
 package com.example.currencytracker.repository;
 
+import com.example.currencytracker.dto.CurrencyRateDTO;
 import com.example.currencytracker.entity.CurrencyRate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface CurrencyRateRepository extends JpaRepository<CurrencyRate, Long> {
+public interface CurrencyRateRepository extends JpaRepository<CurrencyRate, Long>, CurrencyRateUpsert {
+
+    /**
+     * One page of a currency's rates in [from, to] after the given timestamp, the keyset of the previous
+     * page. Reads (currency, timestamp, rate) only, all held by the covering index, so the scan never
+     * visits the table and no entity is managed.
+     */
+    @Query("select new com.example.currencytracker.dto.CurrencyRateDTO(r.currency, r.rate, r.timestamp) "
+            + "from CurrencyRate r where r.currency = :currency and r.timestamp between :from and :to "
+            + "and r.timestamp > :after order by r.timestamp")
+    List<CurrencyRateDTO> findRangePage(@Param("currency") String currency,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("after") LocalDateTime after,
+                                        Limit limit);
+
+    /**
+     * Stored rates of a currency in [from, to] another provider published, the upsert of this one kept them
+     */
+    @Query("select new com.example.currencytracker.dto.CurrencyRateDTO(r.currency, r.rate, r.timestamp) "
+            + "from CurrencyRate r where r.currency = :currency and r.timestamp between :from and :to "
+            + "and r.provider <> :provider order by r.timestamp")
+    List<CurrencyRateDTO> findPublishedByOthers(@Param("currency") String currency,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                @Param("provider") String provider);
 
-}
\ No newline at end of file
+    /**
+     * Cursor over stored rates ordered by time then currency. DTOs are not managed,
+     * so the persistence context stays empty however many rows are read.
+     * Needs an open transaction, the fetch size only applies with autocommit off.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.currencytracker.dto.CurrencyRateDTO(r.currency, r.rate, r.timestamp) "
+            + "from CurrencyRate r where r.currency in :currencies and r.timestamp between :from and :to "
+            + "order by r.timestamp, r.currency")
+    Stream<CurrencyRateDTO> streamHistory(@Param("currencies") Collection<String> currencies,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,18 @@
+package com.example.currencytracker.repository;
+
+import com.example.currencytracker.entity.CurrencyRate;
+
+import java.util.Collection;
+
+/**
+ * Bulk writes of fixings, mixed into {@link CurrencyRateRepository}
+ */
+public interface CurrencyRateUpsert {
+
+    /**
+     * Insert the rates, or update the stored rate of a (currency, timestamp) that is already there when
+     * the same provider published both, or the stored one has none recorded. Running it twice with the
+     * same rates changes nothing.
+     */
+    void upsertAll(Collection<CurrencyRate> rates);
+}
@@ -0,0 +1,43 @@
+package com.example.currencytracker.repository;
+
+import com.example.currencytracker.entity.CurrencyRate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * JDBC batches of INSERT ... ON CONFLICT, rewritten by the driver into multi-row inserts
+ * when the connection has reWriteBatchedInserts on. Rows whose rate did not change, and rows another
+ * provider published, are left untouched.
+ */
+@RequiredArgsConstructor
+public class CurrencyRateUpsertImpl implements CurrencyRateUpsert {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final String UPSERT = """
+            insert into currency_rates (id, currency, rate, timestamp, provider)
+            values (nextval('currency_rates_seq'), ?, ?, ?, ?)
+            on conflict (currency, timestamp) do update set rate = excluded.rate, provider = excluded.provider
+            where (currency_rates.provider is not distinct from excluded.provider
+                   and currency_rates.rate is distinct from excluded.rate)
+               or (currency_rates.provider is null and excluded.provider is not null)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void upsertAll(Collection<CurrencyRate> rates) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, rates, BATCH_SIZE, (statement, rate) -> {
+            statement.setString(1, rate.getCurrency());
+            statement.setBigDecimal(2, rate.getRate());
+            statement.setObject(3, rate.getTimestamp());
+            statement.setString(4, rate.getProvider());
+        });
+    }
+}
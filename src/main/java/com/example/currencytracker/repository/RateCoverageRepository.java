@@ -0,0 +1,20 @@
+package com.example.currencytracker.repository;
+
+import com.example.currencytracker.entity.RateCoverage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RateCoverageRepository extends JpaRepository<RateCoverage, Long> {
+
+    @Query("select c from RateCoverage c where c.currency = :currency " +
+            "and c.fromDate <= :to and c.toDate >= :from order by c.fromDate")
+    List<RateCoverage> findOverlapping(@Param("currency") String currency,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+}
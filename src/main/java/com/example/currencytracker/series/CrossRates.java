@@ -0,0 +1,231 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Rates between every pair of currencies, built from the X -> PLN table. Slots are
+ * CurrencyCode ordinals plus {@link #PLN} after them, the rate from slot i to slot j
+ * is a long at i * size + j. Built once per refresh, read only afterwards.
+ * <p>
+ * Precision rules:
+ * <ul>
+ *   <li>a cross rate is rate(from -> PLN) / rate(to -> PLN) of the published decimal rates,
+ *       rounded half-even to {@link #RATE_SCALE} decimal places once per build, stored times 10^RATE_SCALE;
+ *       a currency to itself and PLN to PLN is exactly 1</li>
+ *   <li>amounts are integers in units of 10^-scale of their currency, cents at scale 2</li>
+ *   <li>a converted amount is the exact product amount * cross rate * 10^(targetScale - scale),
+ *       rounded half-even once to an integer, there is no other rounding in between</li>
+ *   <li>a converted amount that does not fit a long is an error, never a wrapped value</li>
+ * </ul>
+ */
+public final class CrossRates {
+
+    public static final int RATE_SCALE = 12;
+
+    /**
+     * Amount scales accepted, so the division after the product is by at most 10^21
+     */
+    public static final int MAX_SCALE = 9;
+
+    public static final int PLN = CurrencyCode.values().length;
+
+    private static final int SIZE = PLN + 1;
+    private static final long[] POWERS = new long[19];
+    private static final long LOW_32 = 0xFFFFFFFFL;
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private final long[] rates;
+    private final long[] fixingDays;
+
+    private CrossRates(long[] rates, long[] fixingDays) {
+        this.rates = rates;
+        this.fixingDays = fixingDays;
+    }
+
+    /**
+     * Matrix of the given PLN rates and the days they were fixed. Pairs with a currency
+     * missing from the table, or with a rate too large for a long, stay unavailable.
+     */
+    public static CrossRates of(Map<CurrencyCode, BigDecimal> plnRates, Map<CurrencyCode, LocalDate> fixingDates) {
+        BigDecimal[] base = new BigDecimal[SIZE];
+        long[] fixingDays = new long[SIZE];
+        base[PLN] = BigDecimal.ONE;
+        fixingDays[PLN] = Long.MAX_VALUE;
+        plnRates.forEach((currency, rate) -> {
+            if (rate != null && rate.signum() > 0) {
+                base[currency.ordinal()] = rate;
+                LocalDate date = fixingDates.get(currency);
+                fixingDays[currency.ordinal()] = date == null ? Long.MIN_VALUE : date.toEpochDay();
+            }
+        });
+
+        long[] rates = new long[SIZE * SIZE];
+        long one = POWERS[RATE_SCALE];
+        for (int from = 0; from < SIZE; from++) {
+            for (int to = 0; to < SIZE; to++) {
+                if (from == to) {
+                    rates[from * SIZE + to] = one;
+                } else if (base[from] != null && base[to] != null) {
+                    BigDecimal cross = base[from].divide(base[to], RATE_SCALE, RoundingMode.HALF_EVEN);
+                    rates[from * SIZE + to] = cross.compareTo(BigDecimal.valueOf(Long.MAX_VALUE, RATE_SCALE)) > 0
+                            ? 0 : cross.unscaledValue().longValue();
+                }
+            }
+        }
+        return new CrossRates(rates, fixingDays);
+    }
+
+    public static CrossRates empty() {
+        return of(Map.of(), Map.of());
+    }
+
+    /**
+     * Slot of a currency code, PLN included, -1 for codes the matrix does not know
+     */
+    public static int slot(String code) {
+        if ("PLN".equalsIgnoreCase(code)) {
+            return PLN;
+        }
+        try {
+            return CurrencyCode.valueOf(code.toUpperCase()).ordinal();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    public boolean has(int from, int to) {
+        return rates[from * SIZE + to] != 0;
+    }
+
+    /**
+     * Units of the target currency per unit of the source, times 10^RATE_SCALE, 0 when unavailable
+     */
+    public long scaledRate(int from, int to) {
+        return rates[from * SIZE + to];
+    }
+
+    public BigDecimal rate(int from, int to) {
+        return BigDecimal.valueOf(scaledRate(from, to), RATE_SCALE).stripTrailingZeros();
+    }
+
+    /**
+     * Older of the two fixing dates the pair was computed from, null for PLN to PLN
+     */
+    public LocalDate fixingDate(int from, int to) {
+        long day = Math.min(fixingDays[from], fixingDays[to]);
+        return day == Long.MAX_VALUE || day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Convert amounts of the source currency at scale into the target currency at targetScale,
+     * written to a new array in the same order
+     */
+    public long[] convert(int from, int to, long[] amounts, int scale, int targetScale) {
+        if (scale < 0 || scale > MAX_SCALE || targetScale < 0 || targetScale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scales must be between 0 and " + MAX_SCALE);
+        }
+        long rate = scaledRate(from, to);
+        if (rate == 0) {
+            throw new IllegalArgumentException("No cross rate between the currencies");
+        }
+        int exponent = RATE_SCALE + scale - targetScale;
+        long[] converted = new long[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            converted[i] = multiply(amounts[i], rate, exponent);
+        }
+        return converted;
+    }
+
+    /**
+     * amount * factor / 10^exponent rounded half-even, computed on the exact 128 bit product.
+     * Throws ArithmeticException when the result does not fit a long.
+     */
+    public static long multiply(long amount, long factor, int exponent) {
+        if (factor < 0 || exponent < 0) {
+            throw new IllegalArgumentException("Factor and exponent must not be negative");
+        }
+        if (amount == 0 || factor == 0) {
+            return 0;
+        }
+        if (amount == Long.MIN_VALUE) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        long magnitude = Math.abs(amount);
+        long high = Math.multiplyHigh(magnitude, factor);
+        long low = magnitude * factor;
+
+        long quotient;
+        if (high == 0 && low >= 0 && exponent < POWERS.length) {
+            // the product fits a long, one division
+            long divisor = POWERS[exponent];
+            quotient = low / divisor;
+            quotient = roundHalfEven(quotient, low - quotient * divisor, divisor, false);
+        } else {
+            quotient = divideWide(high, low, exponent);
+        }
+        return amount < 0 ? -quotient : quotient;
+    }
+
+    /**
+     * Divide the non-negative 128 bit value high:low by 10^exponent, nine digits at a time over 32 bit limbs
+     */
+    private static long divideWide(long high, long low, int exponent) {
+        long n3 = high >>> 32;
+        long n2 = high & LOW_32;
+        long n1 = low >>> 32;
+        long n0 = low & LOW_32;
+
+        long remainder = 0;
+        long divisor = 1;
+        boolean sticky = false;
+        for (int left = exponent; left > 0; ) {
+            int digits = Math.min(9, left);
+            left -= digits;
+            // a remainder of an earlier division is below the remainder of this one
+            sticky |= remainder != 0;
+            divisor = POWERS[digits];
+
+            long t = n3;
+            n3 = t / divisor;
+            remainder = t - n3 * divisor;
+            t = (remainder << 32) | n2;
+            n2 = t / divisor;
+            remainder = t - n2 * divisor;
+            t = (remainder << 32) | n1;
+            n1 = t / divisor;
+            remainder = t - n1 * divisor;
+            t = (remainder << 32) | n0;
+            n0 = t / divisor;
+            remainder = t - n0 * divisor;
+        }
+
+        if (n3 != 0 || n2 != 0 || n1 > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Converted amount out of range");
+        }
+        return roundHalfEven((n1 << 32) | n0, remainder, divisor, sticky);
+    }
+
+    /**
+     * Round the quotient by the last remainder, with sticky set when lower digits were dropped before
+     */
+    private static long roundHalfEven(long quotient, long remainder, long divisor, boolean sticky) {
+        if (divisor == 1) {
+            return quotient;
+        }
+        long half = divisor / 2;
+        boolean up = remainder > half
+                || remainder == half && (sticky || (quotient & 1) == 1);
+        return up ? Math.addExact(quotient, 1) : quotient;
+    }
+}
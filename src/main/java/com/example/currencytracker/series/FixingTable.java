@@ -0,0 +1,159 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fixings of several currencies over a period as primitive columns: one row per
+ * publication day in date order, NaN where a currency has no fixing that day.
+ * Filled once by the decoder, read only afterwards.
+ */
+public final class FixingTable {
+
+    private final List<CurrencyCode> currencies;
+    private final int[] columnByOrdinal;
+
+    private long[] days;
+    private double[][] rates;
+    private int size;
+    private String provider;
+
+    public FixingTable(Collection<CurrencyCode> currencies, int expectedRows) {
+        this.currencies = List.copyOf(currencies);
+        this.columnByOrdinal = new int[CurrencyCode.values().length];
+        Arrays.fill(columnByOrdinal, -1);
+        for (int column = 0; column < this.currencies.size(); column++) {
+            columnByOrdinal[this.currencies.get(column).ordinal()] = column;
+        }
+
+        int capacity = Math.max(expectedRows, 1);
+        this.days = new long[capacity];
+        this.rates = new double[this.currencies.size()][capacity];
+    }
+
+    public List<CurrencyCode> currencies() {
+        return currencies;
+    }
+
+    /**
+     * Column of the currency, -1 when the table does not hold it
+     */
+    public int column(CurrencyCode currency) {
+        return columnByOrdinal[currency.ordinal()];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Name of the provider that published the fixings, null when not known
+     */
+    public String provider() {
+        return provider;
+    }
+
+    public FixingTable provider(String provider) {
+        this.provider = provider;
+        return this;
+    }
+
+    /**
+     * Whether the currency has a fixing on any row
+     */
+    public boolean hasFixings(CurrencyCode currency) {
+        int column = column(currency);
+        if (column < 0) {
+            return false;
+        }
+        for (int row = 0; row < size; row++) {
+            if (!Double.isNaN(rates[column][row])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long day(int row) {
+        return days[row];
+    }
+
+    public double rate(int row, int column) {
+        return rates[column][row];
+    }
+
+    /**
+     * Start a row for the day, every column holding NaN until set
+     */
+    public int addRow(long epochDay) {
+        if (size == days.length) {
+            int capacity = size + (size >> 1) + 1;
+            days = Arrays.copyOf(days, capacity);
+            for (int column = 0; column < rates.length; column++) {
+                rates[column] = Arrays.copyOf(rates[column], capacity);
+            }
+        }
+        days[size] = epochDay;
+        for (double[] columnRates : rates) {
+            columnRates[size] = Double.NaN;
+        }
+        return size++;
+    }
+
+    public void set(int row, int column, double rate) {
+        rates[column][row] = rate;
+    }
+
+    /**
+     * Restore date order when rows were not added in it
+     */
+    public void sortByDay() {
+        for (int i = 1; i < size; i++) {
+            if (days[i - 1] > days[i]) {
+                sortRows();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Visit the fixings of one currency in an inclusive day range in date order
+     */
+    public void forEach(CurrencyCode currency, long fromDay, long toDay, RateConsumer consumer) {
+        int column = column(currency);
+        if (column < 0) {
+            return;
+        }
+        double[] columnRates = rates[column];
+        for (int row = 0; row < size; row++) {
+            long day = days[row];
+            if (day >= fromDay && day <= toDay && !Double.isNaN(columnRates[row])) {
+                consumer.accept(day, columnRates[row]);
+            }
+        }
+    }
+
+    private void sortRows() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(days[a], days[b]));
+
+        long[] sortedDays = new long[days.length];
+        for (int i = 0; i < size; i++) {
+            sortedDays[i] = days[order[i]];
+        }
+        for (int column = 0; column < rates.length; column++) {
+            double[] sortedRates = new double[days.length];
+            for (int i = 0; i < size; i++) {
+                sortedRates[i] = rates[column][order[i]];
+            }
+            rates[column] = sortedRates;
+        }
+        days = sortedDays;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.currencytracker.series;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact columnar encoding of rate history, one block per currency:
+ * <pre>
+ * magic "RCOL", version byte, block count varint
+ * block: currency (3 ASCII bytes), fixing count varint, and when there are fixings
+ *        scale byte, first epoch day zigzag varint, count - 1 day gaps as varints,
+ *        first rate as zigzag varint of rate * 10^scale, count - 1 rate deltas as zigzag varints
+ * </pre>
+ * The timestamp of every fixing is the fixing time of its day, so only days are sent.
+ * The scale is the smallest one holding every rate of the block exactly, at most {@link #MAX_SCALE};
+ * rates needing more digits are rounded there.
+ */
+public final class RateColumns {
+
+    public static final String CONTENT_TYPE = "application/x-rate-columns";
+
+    public static final int MAX_SCALE = 9;
+
+    private static final byte[] MAGIC = "RCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final double[] POWERS = new double[MAX_SCALE + 1];
+
+    static {
+        for (int scale = 0; scale <= MAX_SCALE; scale++) {
+            POWERS[scale] = Math.pow(10, scale);
+        }
+    }
+
+    /**
+     * Fixings of one currency in date order
+     */
+    public record Block(String currency, long[] days, double[] rates) {
+
+        public int size() {
+            return days.length;
+        }
+
+        /**
+         * Copy of the fixings the series holds for the inclusive day range
+         */
+        public static Block of(RateSeries series, long fromDay, long toDay) {
+            long[] days = new long[Math.max(16, series.count(fromDay, toDay))];
+            double[] rates = new double[days.length];
+            int size = 0;
+            long end = Math.min(toDay, series.lastDay());
+            for (long day = Math.max(fromDay, RateSeries.FIRST_DAY); day <= end; day++) {
+                double rate = series.get(day);
+                if (Double.isNaN(rate)) {
+                    continue;
+                }
+                // a fixing stored after the count only grows the arrays
+                if (size == days.length) {
+                    days = Arrays.copyOf(days, size * 2);
+                    rates = Arrays.copyOf(rates, size * 2);
+                }
+                days[size] = day;
+                rates[size++] = rate;
+            }
+            return new Block(series.getCurrency().name(), Arrays.copyOf(days, size), Arrays.copyOf(rates, size));
+        }
+    }
+
+    private RateColumns() {
+    }
+
+    public static void write(List<Block> blocks, OutputStream target) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(target);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, blocks.size());
+        for (Block block : blocks) {
+            writeBlock(out, block);
+        }
+        out.flush();
+    }
+
+    public static byte[] encode(List<Block> blocks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(blocks, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Block> read(InputStream source) throws IOException {
+        InputStream in = source instanceof BufferedInputStream ? source : new BufferedInputStream(source);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a rate columns payload");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported rate columns version " + version);
+        }
+
+        int blockCount = (int) readVarint(in);
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int b = 0; b < blockCount; b++) {
+            blocks.add(readBlock(in));
+        }
+        return blocks;
+    }
+
+    public static List<Block> decode(byte[] payload) {
+        try {
+            return read(new ByteArrayInputStream(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBlock(OutputStream out, Block block) throws IOException {
+        byte[] currency = block.currency().getBytes(StandardCharsets.US_ASCII);
+        if (currency.length != 3) {
+            throw new IllegalArgumentException("Currency code must have 3 letters: " + block.currency());
+        }
+        out.write(currency);
+        int count = block.size();
+        writeVarint(out, count);
+        if (count == 0) {
+            return;
+        }
+
+        int scale = scale(block.rates());
+        out.write(scale);
+
+        long[] days = block.days();
+        writeVarint(out, zigzag(days[0]));
+        for (int i = 1; i < count; i++) {
+            writeVarint(out, days[i] - days[i - 1]);
+        }
+
+        double power = POWERS[scale];
+        long previous = 0;
+        for (double rate : block.rates()) {
+            long fixed = Math.round(rate * power);
+            writeVarint(out, zigzag(fixed - previous));
+            previous = fixed;
+        }
+    }
+
+    private static Block readBlock(InputStream in) throws IOException {
+        String currency = new String(in.readNBytes(3), StandardCharsets.US_ASCII);
+        int count = (int) readVarint(in);
+        long[] days = new long[count];
+        double[] rates = new double[count];
+        if (count == 0) {
+            return new Block(currency, days, rates);
+        }
+
+        int scale = in.read();
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IOException("Bad scale " + scale + " in block " + currency);
+        }
+
+        days[0] = unzigzag(readVarint(in));
+        for (int i = 1; i < count; i++) {
+            days[i] = days[i - 1] + readVarint(in);
+        }
+
+        // an exact integer over an exact power of ten rounds back to the double that was encoded
+        double power = POWERS[scale];
+        long fixed = 0;
+        for (int i = 0; i < count; i++) {
+            fixed += unzigzag(readVarint(in));
+            rates[i] = fixed / power;
+        }
+        return new Block(currency, days, rates);
+    }
+
+    /**
+     * Fewest decimal digits that give every rate back unchanged
+     */
+    static int scale(double[] rates) {
+        for (int scale = 0; scale < MAX_SCALE; scale++) {
+            double power = POWERS[scale];
+            boolean exact = true;
+            for (double rate : rates) {
+                if (Math.round(rate * power) / power != rate) {
+                    exact = false;
+                    break;
+                }
+            }
+            if (exact) {
+                return scale;
+            }
+        }
+        return MAX_SCALE;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated rate columns payload");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.currencytracker.series;
+
+/**
+ * Receives one fixing at a time, without boxing
+ */
+@FunctionalInterface
+public interface RateConsumer {
+
+    void accept(long epochDay, double rate);
+}
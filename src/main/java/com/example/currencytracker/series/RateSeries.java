@@ -0,0 +1,303 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Daily X -> PLN fixings of one currency in a primitive array indexed by epoch day.
+ * Days without a fixing hold NaN. Prefix sums of the fixings, their squares and their
+ * count answer count, average and variance of any day range in constant time.
+ * 25 years take about 280 KB per currency.
+ * Writers are serialized, readers never lock and see a consistent array reference.
+ */
+public class RateSeries {
+
+    /**
+     * First day that can be stored, the euro reference rates start in January 1999
+     */
+    public static final long FIRST_DAY = LocalDate.of(1999, 1, 1).toEpochDay();
+
+    private static final int MIN_CAPACITY = 512;
+    private static final int CLEAN = Integer.MAX_VALUE;
+
+    private final CurrencyCode currency;
+    private final List<SeriesListener> listeners;
+
+    private volatile double[] rates = new double[0];
+    private volatile long lastDay = Long.MIN_VALUE;
+    private volatile PrefixIndex index = new PrefixIndex(new double[1], new double[1], new int[1], 0);
+
+    /**
+     * Oldest slot whose prefix entries are stale, CLEAN when the index is up to date
+     */
+    private volatile int dirtyFrom = CLEAN;
+
+    /**
+     * Sums are kept relative to the first fixing stored, so the variance does not
+     * lose its digits subtracting two large sums of squares
+     */
+    private double shift = Double.NaN;
+
+    public RateSeries(CurrencyCode currency) {
+        this(currency, List.of());
+    }
+
+    public RateSeries(CurrencyCode currency, List<SeriesListener> listeners) {
+        this.currency = currency;
+        this.listeners = listeners;
+    }
+
+    public CurrencyCode getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Store a fixing. Appending after the newest day extends the index in place, an older
+     * day marks the index stale from there and it is rebuilt once by the next reader.
+     */
+    public synchronized void put(long epochDay, double rate) {
+        if (epochDay < FIRST_DAY) {
+            throw new IllegalArgumentException("No fixings before " + LocalDate.ofEpochDay(FIRST_DAY));
+        }
+        int slot = (int) (epochDay - FIRST_DAY);
+        double[] current = rates;
+        if (slot >= current.length) {
+            current = grow(current, slot + 1);
+        }
+        if (current[slot] == rate) {
+            return;
+        }
+        if (Double.isNaN(shift)) {
+            shift = rate;
+        }
+
+        current[slot] = rate;
+        rates = current;
+        boolean append = epochDay > lastDay;
+        if (append) {
+            lastDay = epochDay;
+        }
+
+        PrefixIndex published = index;
+        if (dirtyFrom == CLEAN && slot >= published.size()) {
+            index = extend(published, current, slot + 1);
+        } else {
+            dirtyFrom = Math.min(dirtyFrom, slot);
+        }
+
+        for (SeriesListener listener : listeners) {
+            if (append) {
+                listener.onAppend(currency, epochDay, rate);
+            } else {
+                listener.onRewrite(currency, epochDay);
+            }
+        }
+    }
+
+    /**
+     * Fixing of the day, NaN when there is none
+     */
+    public double get(long epochDay) {
+        double[] current = rates;
+        long slot = epochDay - FIRST_DAY;
+        return slot < 0 || slot >= current.length ? Double.NaN : current[(int) slot];
+    }
+
+    /**
+     * Newest day holding a fixing, Long.MIN_VALUE when the series is empty
+     */
+    public long lastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Visit the fixings of an inclusive day range in date order
+     */
+    public void forEach(long fromDay, long toDay, RateConsumer consumer) {
+        double[] current = rates;
+        int end = (int) Math.min(current.length - 1L, toDay - FIRST_DAY);
+        for (int i = (int) Math.max(0, fromDay - FIRST_DAY); i <= end; i++) {
+            double rate = current[i];
+            if (!Double.isNaN(rate)) {
+                consumer.accept(FIRST_DAY + i, rate);
+            }
+        }
+    }
+
+    public int count(long fromDay, long toDay) {
+        PrefixIndex prefix = index();
+        int start = prefix.start(fromDay);
+        int end = prefix.end(fromDay, toDay);
+        return prefix.counts()[end] - prefix.counts()[start];
+    }
+
+    /**
+     * Mean of the fixings in the range, NaN when there is none
+     */
+    public double average(long fromDay, long toDay) {
+        PrefixIndex prefix = index();
+        int start = prefix.start(fromDay);
+        int end = prefix.end(fromDay, toDay);
+        int count = prefix.counts()[end] - prefix.counts()[start];
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return shift + (prefix.sums()[end] - prefix.sums()[start]) / count;
+    }
+
+    /**
+     * Sample variance of the fixings in the range, NaN when there are fewer than two
+     */
+    public double variance(long fromDay, long toDay) {
+        PrefixIndex prefix = index();
+        int start = prefix.start(fromDay);
+        int end = prefix.end(fromDay, toDay);
+        int count = prefix.counts()[end] - prefix.counts()[start];
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double sum = prefix.sums()[end] - prefix.sums()[start];
+        double squares = prefix.squares()[end] - prefix.squares()[start];
+        return Math.max(0, (squares - sum * sum / count) / (count - 1));
+    }
+
+    /**
+     * Oldest fixing in the range, NaN when there is none
+     */
+    public double first(long fromDay, long toDay) {
+        long day = firstDay(fromDay, toDay);
+        return day == Long.MIN_VALUE ? Double.NaN : get(day);
+    }
+
+    /**
+     * Newest fixing in the range, NaN when there is none
+     */
+    public double last(long fromDay, long toDay) {
+        long day = lastDay(fromDay, toDay);
+        return day == Long.MIN_VALUE ? Double.NaN : get(day);
+    }
+
+    /**
+     * Oldest day in the range holding a fixing, Long.MIN_VALUE when there is none
+     */
+    public long firstDay(long fromDay, long toDay) {
+        PrefixIndex prefix = index();
+        int start = prefix.start(fromDay);
+        int end = prefix.end(fromDay, toDay);
+        int[] counts = prefix.counts();
+        if (counts[end] == counts[start]) {
+            return Long.MIN_VALUE;
+        }
+        // the first prefix entry past the start count ends right after the fixing
+        return FIRST_DAY + search(counts, start + 1, end, counts[start] + 1) - 1;
+    }
+
+    /**
+     * Newest day in the range holding a fixing, Long.MIN_VALUE when there is none
+     */
+    public long lastDay(long fromDay, long toDay) {
+        PrefixIndex prefix = index();
+        int start = prefix.start(fromDay);
+        int end = prefix.end(fromDay, toDay);
+        int[] counts = prefix.counts();
+        if (counts[end] == counts[start]) {
+            return Long.MIN_VALUE;
+        }
+        // the first prefix entry reaching the end count ends right after the fixing
+        return FIRST_DAY + search(counts, start + 1, end, counts[end]) - 1;
+    }
+
+    private PrefixIndex index() {
+        return dirtyFrom == CLEAN ? index : reindex();
+    }
+
+    /**
+     * Recompute the stale tail into fresh arrays, readers holding the old index keep a consistent view
+     */
+    private synchronized PrefixIndex reindex() {
+        if (dirtyFrom == CLEAN) {
+            return index;
+        }
+        PrefixIndex stale = index;
+        double[] current = rates;
+        int size = Math.max(stale.size(), (int) (lastDay - FIRST_DAY + 1));
+        int capacity = Math.max(stale.counts().length, current.length + 1);
+
+        PrefixIndex rebuilt = new PrefixIndex(Arrays.copyOf(stale.sums(), capacity),
+                Arrays.copyOf(stale.squares(), capacity), Arrays.copyOf(stale.counts(), capacity), dirtyFrom);
+        rebuilt = extend(rebuilt, current, size);
+        index = rebuilt;
+        dirtyFrom = CLEAN;
+        return rebuilt;
+    }
+
+    /**
+     * Fill the prefix entries of slots [size, newSize), growing the arrays when they are too short.
+     * Entries up to the published size are never written, so concurrent readers are unaffected.
+     */
+    private PrefixIndex extend(PrefixIndex prefix, double[] current, int newSize) {
+        double[] sums = prefix.sums();
+        double[] squares = prefix.squares();
+        int[] counts = prefix.counts();
+        if (counts.length < newSize + 1) {
+            int capacity = Math.max(newSize + 1, current.length + 1);
+            sums = Arrays.copyOf(sums, capacity);
+            squares = Arrays.copyOf(squares, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        for (int i = prefix.size(); i < newSize; i++) {
+            double rate = current[i];
+            if (Double.isNaN(rate)) {
+                sums[i + 1] = sums[i];
+                squares[i + 1] = squares[i];
+                counts[i + 1] = counts[i];
+            } else {
+                double shifted = rate - shift;
+                sums[i + 1] = sums[i] + shifted;
+                squares[i + 1] = squares[i] + shifted * shifted;
+                counts[i + 1] = counts[i] + 1;
+            }
+        }
+        return new PrefixIndex(sums, squares, counts, newSize);
+    }
+
+    /**
+     * Lowest position in [low, high] whose count reaches the target, counts never decrease
+     */
+    private static int search(int[] counts, int low, int high, int target) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (counts[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double[] grow(double[] current, int required) {
+        int capacity = Math.max(MIN_CAPACITY, Math.max(required, current.length + (current.length >> 1)));
+        double[] grown = Arrays.copyOf(current, capacity);
+        Arrays.fill(grown, current.length, capacity, Double.NaN);
+        return grown;
+    }
+
+    /**
+     * Entry i holds the running totals of slots [0, i), valid for i up to size
+     */
+    private record PrefixIndex(double[] sums, double[] squares, int[] counts, int size) {
+
+        int start(long fromDay) {
+            return (int) Math.clamp(fromDay - FIRST_DAY, 0, size);
+        }
+
+        int end(long fromDay, long toDay) {
+            return Math.max(start(fromDay), (int) Math.clamp(toDay - FIRST_DAY + 1, 0, size));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One primitive rate series per currency, indexed by CurrencyCode ordinal
+ */
+@Component
+public class RateSeriesStore {
+
+    private final RateSeries[] series;
+    private final List<SeriesListener> listeners = new CopyOnWriteArrayList<>();
+
+    public RateSeriesStore() {
+        CurrencyCode[] currencies = CurrencyCode.values();
+        series = new RateSeries[currencies.length];
+        for (CurrencyCode currency : currencies) {
+            series[currency.ordinal()] = new RateSeries(currency, listeners);
+        }
+    }
+
+    public RateSeries get(CurrencyCode currency) {
+        return series[currency.ordinal()];
+    }
+
+    /**
+     * Follow the fixings stored in every series from now on
+     */
+    public void addListener(SeriesListener listener) {
+        listeners.add(listener);
+    }
+}
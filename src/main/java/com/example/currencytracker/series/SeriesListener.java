@@ -0,0 +1,19 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+/**
+ * Notified by a rate series under its write lock, so implementations must return quickly
+ */
+public interface SeriesListener {
+
+    /**
+     * A fixing newer than every stored one arrived
+     */
+    void onAppend(CurrencyCode currency, long epochDay, double rate);
+
+    /**
+     * A fixing at or before the newest stored day was added or changed
+     */
+    void onRewrite(CurrencyCode currency, long epochDay);
+}
@@ -0,0 +1,120 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append log of the fixings stored after a snapshot:
+ * <pre>
+ * magic "RLOG", version int, snapshot id long
+ * record: currency (3 ASCII bytes + 1 pad), epoch day int, rate double
+ * </pre>
+ * Records have a fixed size, a record cut short by a crash is ignored on replay.
+ * Replaying a fixing twice stores the same rate again, so logs may overlap a snapshot.
+ */
+public final class SeriesLog implements Closeable {
+
+    private static final int MAGIC = 0x524C4F47; // RLOG
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(RECORD_BYTES * 256);
+
+    private SeriesLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Start a new log following the snapshot of the given id
+     */
+    public static SeriesLog create(Path file, long snapshotId) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(snapshotId).flip();
+        SeriesSnapshot.writeFully(channel, header);
+        channel.force(true);
+        return new SeriesLog(channel);
+    }
+
+    public void append(CurrencyCode currency, long epochDay, double rate) throws IOException {
+        if (pending.remaining() < RECORD_BYTES) {
+            writePending();
+        }
+        pending.put(currency.name().getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                .putInt((int) epochDay).putDouble(rate);
+    }
+
+    /**
+     * Write the appended records and force them to disk
+     */
+    public void flush() throws IOException {
+        writePending();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    private void writePending() throws IOException {
+        pending.flip();
+        SeriesSnapshot.writeFully(channel, pending);
+        pending.clear();
+    }
+
+    /**
+     * Snapshot id the log follows, -1 when the file is not a log
+     */
+    public static long snapshotId(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return -1;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return -1;
+            }
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Store every complete record of the log into the series, returns the number of records replayed
+     */
+    public static int replay(Path file, RateSeriesStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a rate series log: " + file);
+            }
+            buffer.position(HEADER_BYTES);
+
+            int replayed = 0;
+            byte[] code = new byte[3];
+            while (buffer.remaining() >= RECORD_BYTES) {
+                buffer.get(code).get();
+                long epochDay = buffer.getInt();
+                double rate = buffer.getDouble();
+                CurrencyCode currency = SeriesSnapshot.currency(new String(code, StandardCharsets.US_ASCII));
+                if (currency != null) {
+                    store.get(currency).put(epochDay, rate);
+                    replayed++;
+                }
+            }
+            return replayed;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.currencytracker.series;
+
+import com.example.currencytracker.enums.CurrencyCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Versioned file image of the rate series:
+ * <pre>
+ * magic "RSNP", version int, id long, created at epoch millis long, block count int, 4 bytes padding
+ * block: currency (3 ASCII bytes + 1 pad), first day long, day count int, loaded month count int,
+ *        loaded months as int year * 12 + month - 1, padding to 8 bytes, day count doubles (NaN = no fixing)
+ * </pre>
+ * Rates are stored dense from the first fixing to the last, so a block is read back
+ * with one bulk copy out of the mapped file. Written to a temporary file and moved
+ * into place, a reader never sees half a snapshot.
+ */
+public final class SeriesSnapshot {
+
+    private static final int MAGIC = 0x52534E50; // RSNP
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * What a restore brought back, months loaded per currency when the snapshot was taken
+     */
+    public record Restored(long id, Instant createdAt, int fixings, Map<CurrencyCode, List<YearMonth>> loadedMonths) {
+    }
+
+    private SeriesSnapshot() {
+    }
+
+    public static void write(Path file, long id, Instant createdAt, RateSeriesStore store,
+                             Map<CurrencyCode, List<YearMonth>> loadedMonths) throws IOException {
+        List<ByteBuffer> blocks = new ArrayList<>();
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            ByteBuffer block = block(store.get(currency), loadedMonths.getOrDefault(currency, List.of()));
+            if (block != null) {
+                blocks.add(block);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(id).putLong(createdAt.toEpochMilli()).putInt(blocks.size());
+        header.clear();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (ByteBuffer block : blocks) {
+                writeFully(channel, block);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map the file and store its fixings into the series. Blocks of currencies no longer known are skipped.
+     */
+    public static Restored restore(Path file, RateSeriesStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a rate series snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long id = buffer.getLong();
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+            int blockCount = buffer.getInt();
+            buffer.position(HEADER_BYTES);
+
+            int fixings = 0;
+            Map<CurrencyCode, List<YearMonth>> loadedMonths = new EnumMap<>(CurrencyCode.class);
+            for (int b = 0; b < blockCount; b++) {
+                byte[] code = new byte[3];
+                buffer.get(code).get();
+                long firstDay = buffer.getLong();
+                int days = buffer.getInt();
+                int[] months = new int[buffer.getInt()];
+                buffer.asIntBuffer().get(months);
+                buffer.position(align(buffer.position() + months.length * Integer.BYTES));
+                double[] rates = new double[days];
+                DoubleBuffer view = buffer.asDoubleBuffer();
+                view.get(rates);
+                buffer.position(buffer.position() + days * Double.BYTES);
+
+                CurrencyCode currency = currency(new String(code, StandardCharsets.US_ASCII));
+                if (currency == null) {
+                    continue;
+                }
+                RateSeries series = store.get(currency);
+                for (int i = 0; i < days; i++) {
+                    if (!Double.isNaN(rates[i])) {
+                        series.put(firstDay + i, rates[i]);
+                        fixings++;
+                    }
+                }
+                loadedMonths.put(currency, Arrays.stream(months)
+                        .mapToObj(month -> YearMonth.of(month / 12, month % 12 + 1))
+                        .toList());
+            }
+            return new Restored(id, createdAt, fixings, loadedMonths);
+        }
+    }
+
+    /**
+     * Block of one series, null when it has neither fixings nor loaded months
+     */
+    private static ByteBuffer block(RateSeries series, Collection<YearMonth> loadedMonths) {
+        long lastDay = series.lastDay();
+        long firstDay = lastDay == Long.MIN_VALUE ? 0 : series.firstDay(RateSeries.FIRST_DAY, lastDay);
+        int days = lastDay == Long.MIN_VALUE ? 0 : (int) (lastDay - firstDay + 1);
+        if (days == 0 && loadedMonths.isEmpty()) {
+            return null;
+        }
+
+        int ratesAt = align(4 + 8 + 4 + 4 + loadedMonths.size() * Integer.BYTES);
+        // blocks and the header are multiples of 8 bytes long, so the rates are aligned in the file
+        ByteBuffer block = ByteBuffer.allocate(ratesAt + days * Double.BYTES);
+        block.put(series.getCurrency().name().getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+        block.putLong(firstDay).putInt(days).putInt(loadedMonths.size());
+        loadedMonths.stream().sorted().forEach(month -> block.putInt(month.getYear() * 12 + month.getMonthValue() - 1));
+        block.position(ratesAt);
+        for (int i = 0; i < days; i++) {
+            block.putDouble(series.get(firstDay + i));
+        }
+        return block.flip();
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    static CurrencyCode currency(String code) {
+        try {
+            return CurrencyCode.valueOf(code);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.BackfillProperties;
+import com.example.currencytracker.entity.BackfillChunk;
+import com.example.currencytracker.enums.BackfillStatus;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.exception.NotLeaderException;
+import com.example.currencytracker.model.DateRange;
+import com.example.currencytracker.repository.BackfillChunkRepository;
+import com.example.currencytracker.series.FixingTable;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the whole archive into the database, one chunk per currency and year. Chunks run on
+ * virtual threads with at most backfill.concurrency of them calling upstream at a time, and the
+ * state of every chunk is kept in backfill_chunks, so a stopped or crashed backfill goes on
+ * with the chunks not done yet. Only the coherence leader works through them: an instance taking
+ * the lead, at startup or from a leader that is gone, resumes the backfill, and one losing it stops.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackfillService {
+
+    private final BackfillChunkRepository backfillChunkRepository;
+    private final UpstreamGateway upstreamGateway;
+    private final RateHistoryStore rateHistoryStore;
+    private final BackfillProperties backfillProperties;
+    private final RateCoherence rateCoherence;
+
+    private final AtomicInteger runChunks = new AtomicInteger();
+    private final AtomicInteger runFailures = new AtomicInteger();
+    private final AtomicLong runRows = new AtomicLong();
+
+    private volatile Thread runner;
+    private volatile boolean stopRequested;
+    private boolean leading;
+    private volatile Instant runStartedAt;
+    private volatile Instant runFinishedAt;
+
+    /**
+     * Chunk counts over all backfills, throughput of the current or last run
+     */
+    public record Progress(boolean active, Instant startedAt, Instant finishedAt,
+                           long pendingChunks, long runningChunks, long doneChunks, long failedChunks, long rowsStored,
+                           int runChunks, int runFailures, long runRows, double rowsPerSecond, double chunksPerMinute) {
+    }
+
+    /**
+     * Follow the coherence lead: resume when this instance takes it, stop when it is lost
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${backfill.lead-check-interval:30000}",
+            initialDelayString = "${backfill.lead-check-interval:30000}")
+    public synchronized void resume() {
+        if (!rateCoherence.isLeader()) {
+            if (leading && runner != null) {
+                log.warn("Lost the coherence lead, stopping the backfill after the chunks in flight");
+                stopRequested = true;
+            }
+            leading = false;
+            return;
+        }
+        // a run stopped on losing the lead is resumed once it wound down, at a later check
+        if (leading || runner != null) {
+            return;
+        }
+        leading = true;
+        if (!backfillProperties.isResumeOnStartup()) {
+            return;
+        }
+        // chunks the former leader or a crash left running start over, storing a year twice is an idempotent upsert
+        int interrupted = backfillChunkRepository.updateStatus(BackfillStatus.RUNNING, BackfillStatus.PENDING);
+        long pending = backfillChunkRepository.countByStatus(BackfillStatus.PENDING);
+        if (pending > 0) {
+            log.info("Resuming backfill with {} chunks left, {} of them interrupted", pending, interrupted);
+            launch();
+        }
+    }
+
+    /**
+     * Queue the chunks of the currencies and years not backfilled yet, put failed ones back
+     * in line and start working through them unless a backfill is running already.
+     * Refused on instances not leading, so two never work the same chunks.
+     */
+    public synchronized Progress start(Set<CurrencyCode> currencies, int fromYear, int toYear) {
+        if (!rateCoherence.isLeader()) {
+            throw new NotLeaderException("Backfills run on the coherence leader, this instance does not lead");
+        }
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("fromYear " + fromYear + " is after toYear " + toYear);
+        }
+        int firstYear = Math.max(fromYear, backfillProperties.getFrom().getYear());
+        int lastYear = Math.min(toYear, LocalDate.now().getYear());
+        if (firstYear > lastYear) {
+            throw new IllegalArgumentException("No archive between " + fromYear + " and " + toYear
+                    + ", it runs from " + backfillProperties.getFrom() + " to today");
+        }
+
+        List<String> codes = currencies.stream().map(CurrencyCode::name).toList();
+        Set<String> existing = new HashSet<>();
+        List<BackfillChunk> queued = new ArrayList<>();
+        for (BackfillChunk chunk : backfillChunkRepository.findByCurrencyInAndYearBetween(codes, firstYear, lastYear)) {
+            existing.add(chunk.getCurrency() + chunk.getYear());
+            if (chunk.getStatus() == BackfillStatus.FAILED) {
+                chunk.setStatus(BackfillStatus.PENDING);
+                chunk.setUpdatedAt(Instant.now());
+                queued.add(chunk);
+            }
+        }
+        for (String code : codes) {
+            for (int year = firstYear; year <= lastYear; year++) {
+                if (!existing.contains(code + year)) {
+                    queued.add(BackfillChunk.builder()
+                            .currency(code)
+                            .year(year)
+                            .status(BackfillStatus.PENDING)
+                            .updatedAt(Instant.now())
+                            .build());
+                }
+            }
+        }
+        backfillChunkRepository.saveAll(queued);
+        log.info("Backfill of {} from {} to {}: {} chunks queued", currencies, firstYear, lastYear, queued.size());
+
+        if (runner == null) {
+            launch();
+        }
+        return progress();
+    }
+
+    /**
+     * Let the chunks calling upstream finish and leave the others pending
+     */
+    @PreDestroy
+    public synchronized Progress stop() {
+        if (runner != null) {
+            stopRequested = true;
+        }
+        return progress();
+    }
+
+    /**
+     * Wait for the running backfill to end, false when it is still running after the timeout
+     */
+    public boolean await(Duration timeout) throws InterruptedException {
+        Thread current = runner;
+        return current == null || current.join(timeout);
+    }
+
+    public Progress progress() {
+        Instant startedAt = runStartedAt;
+        Instant finishedAt = runFinishedAt;
+        double seconds = startedAt == null ? 0
+                : Duration.between(startedAt, finishedAt == null ? Instant.now() : finishedAt).toMillis() / 1000.0;
+        int chunks = runChunks.get();
+        long rows = runRows.get();
+        return new Progress(runner != null, startedAt, finishedAt,
+                backfillChunkRepository.countByStatus(BackfillStatus.PENDING),
+                backfillChunkRepository.countByStatus(BackfillStatus.RUNNING),
+                backfillChunkRepository.countByStatus(BackfillStatus.DONE),
+                backfillChunkRepository.countByStatus(BackfillStatus.FAILED),
+                backfillChunkRepository.sumRowsStored(),
+                chunks, runFailures.get(), rows,
+                seconds > 0 ? rows / seconds : 0,
+                seconds > 0 ? chunks * 60 / seconds : 0);
+    }
+
+    private void launch() {
+        stopRequested = false;
+        runChunks.set(0);
+        runFailures.set(0);
+        runRows.set(0);
+        runStartedAt = Instant.now();
+        runFinishedAt = null;
+        runner = Thread.ofVirtual().name("backfill").start(this::run);
+    }
+
+    /**
+     * Pass after pass over the pending chunks, chunks queued during a pass are taken by the next one
+     */
+    private void run() {
+        Semaphore upstreamPermits = new Semaphore(backfillProperties.getConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<BackfillChunk> chunks = nextChunks(true);
+            while (!chunks.isEmpty()) {
+                List<Future<?>> tasks = new ArrayList<>(chunks.size());
+                for (BackfillChunk chunk : chunks) {
+                    tasks.add(executor.submit(() -> runChunk(chunk, upstreamPermits)));
+                }
+                int finishedBefore = runChunks.get() + runFailures.get();
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+                chunks = nextChunks(runChunks.get() + runFailures.get() > finishedBefore);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.warn("Backfill stopped: {}", e.toString());
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Pending chunks for the next pass. None once stopped, or when the last pass could not record
+     * a single chunk, and then the runner is cleared in the same step, so a start either sees
+     * it running or launches a new one.
+     */
+    private synchronized List<BackfillChunk> nextChunks(boolean lastPassFinishedAny) {
+        List<BackfillChunk> chunks = stopRequested || !lastPassFinishedAny
+                ? List.of()
+                : backfillChunkRepository.findByStatusOrderByYearDescCurrencyAsc(BackfillStatus.PENDING);
+        if (chunks.isEmpty()) {
+            finish();
+        }
+        return chunks;
+    }
+
+    private synchronized void finish() {
+        if (runner != Thread.currentThread()) {
+            return;
+        }
+        runner = null;
+        runFinishedAt = Instant.now();
+        log.info("Backfill {}: {} chunks with {} rates stored, {} failed, in {} s", stopRequested ? "stopped" : "finished",
+                runChunks.get(), runRows.get(), runFailures.get(), Duration.between(runStartedAt, runFinishedAt).toSeconds());
+    }
+
+    private void runChunk(BackfillChunk chunk, Semaphore upstreamPermits) {
+        try {
+            upstreamPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        FixingTable fetched;
+        CurrencyCode currency;
+        DateRange range;
+        try {
+            if (stopRequested) {
+                return;
+            }
+            currency = CurrencyCode.valueOf(chunk.getCurrency());
+            range = yearRange(chunk.getYear());
+            chunk.setAttempts(chunk.getAttempts() + 1);
+            record(chunk, BackfillStatus.RUNNING);
+            fetched = upstreamGateway.fetchRange(currency, range.from(), range.to(), UpstreamPriority.BACKGROUND);
+        } catch (RuntimeException e) {
+            failed(chunk, e);
+            return;
+        } finally {
+            upstreamPermits.release();
+        }
+
+        try {
+            chunk.setRowsStored(rateHistoryStore.storeFetched(currency, range, fetched));
+            chunk.setLastError(null);
+            record(chunk, BackfillStatus.DONE);
+            runChunks.incrementAndGet();
+            runRows.addAndGet(chunk.getRowsStored());
+        } catch (RuntimeException e) {
+            failed(chunk, e);
+        }
+    }
+
+    private void failed(BackfillChunk chunk, RuntimeException e) {
+        log.warn("Backfill of {} {} failed, attempt {}: {}", chunk.getCurrency(), chunk.getYear(), chunk.getAttempts(),
+                e.getMessage());
+        try {
+            chunk.setLastError(e.getMessage());
+            record(chunk, BackfillStatus.FAILED);
+            runFailures.incrementAndGet();
+        } catch (RuntimeException saveFailure) {
+            log.warn("Backfill of {} {} could not be recorded as failed: {}", chunk.getCurrency(), chunk.getYear(),
+                    saveFailure.getMessage());
+        }
+    }
+
+    private void record(BackfillChunk chunk, BackfillStatus status) {
+        chunk.setStatus(status);
+        chunk.setUpdatedAt(Instant.now());
+        backfillChunkRepository.save(chunk);
+    }
+
+    /**
+     * The year clipped to the archive start and today
+     */
+    private DateRange yearRange(int year) {
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = LocalDate.of(year, 12, 31);
+        LocalDate today = LocalDate.now();
+        return new DateRange(from.isBefore(backfillProperties.getFrom()) ? backfillProperties.getFrom() : from,
+                to.isAfter(today) ? today : to);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.dto.ConversionDTO;
+import com.example.currencytracker.dto.ConversionRequestDTO;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.exception.CurrencyNotFoundException;
+import com.example.currencytracker.series.CrossRates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cross rates of every currency pair, rebuilt from the latest PLN rates after each prefetch: the
+ * prefetched ones, and the other currencies with one upstream call taking them all.
+ * The matrix is swapped in whole, a conversion reads one matrix from start to end.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CrossRateService {
+
+    private static final int DEFAULT_SCALE = 2;
+
+    private final UpstreamGateway upstreamGateway;
+    private final LatestRateSnapshot latestRateSnapshot;
+
+    private final AtomicReference<Matrix> current = new AtomicReference<>(new Matrix(CrossRates.empty(), Map.of(), null));
+
+    /**
+     * Cross rates and the latest rates they were built from
+     */
+    public record Matrix(CrossRates rates, Map<CurrencyCode, CurrencyRateDTO> inputs, Instant builtAt) {
+    }
+
+    public Matrix current() {
+        return current.get();
+    }
+
+    /**
+     * Latest rates the current matrix was built from
+     */
+    public Map<CurrencyCode, CurrencyRateDTO> latestRates() {
+        return current.get().inputs();
+    }
+
+    /**
+     * Build a new matrix from the prefetched rates and the latest rates of the other currencies,
+     * fetched in one call. The previous matrix stays when that call fails.
+     */
+    public void rebuild() {
+        Map<CurrencyCode, CurrencyRateDTO> latest = new EnumMap<>(CurrencyCode.class);
+        latest.putAll(latestRateSnapshot.current().rates());
+        Set<CurrencyCode> others = EnumSet.allOf(CurrencyCode.class);
+        others.removeAll(latest.keySet());
+        try {
+            latest.putAll(upstreamGateway.fetchLatest(others));
+        } catch (RuntimeException e) {
+            log.warn("Cross rates not rebuilt, keeping the matrix of {}: {}", current.get().builtAt(), e.getMessage());
+            return;
+        }
+        build(latest);
+    }
+
+    /**
+     * Swap in the matrix of the given latest rates, without calling upstream
+     */
+    public void build(Map<CurrencyCode, CurrencyRateDTO> latest) {
+        Map<CurrencyCode, BigDecimal> rates = new EnumMap<>(CurrencyCode.class);
+        Map<CurrencyCode, LocalDate> dates = new EnumMap<>(CurrencyCode.class);
+        latest.forEach((currency, rate) -> {
+            rates.put(currency, rate.getRate());
+            dates.put(currency, rate.getTimestamp().toLocalDate());
+        });
+        current.set(new Matrix(CrossRates.of(rates, dates),
+                latest.isEmpty() ? Map.of() : new EnumMap<>(latest), Instant.now()));
+        log.debug("Cross rates rebuilt for {} currencies", rates.size());
+    }
+
+    public ConversionDTO convert(ConversionRequestDTO request) {
+        int from = slot(request.getFrom());
+        int to = slot(request.getTo());
+        int scale = request.getScale() == null ? DEFAULT_SCALE : request.getScale();
+        int targetScale = request.getTargetScale() == null ? scale : request.getTargetScale();
+        long[] amounts = request.getAmounts() == null ? new long[0] : request.getAmounts();
+
+        Matrix matrix = current.get();
+        if (!matrix.rates().has(from, to) && matrix.builtAt() == null) {
+            // nothing was built yet, the first prefetch may still be running or have failed
+            rebuild();
+            matrix = current.get();
+        }
+        CrossRates rates = matrix.rates();
+        if (!rates.has(from, to)) {
+            throw new CurrencyNotFoundException("No cross rate from " + request.getFrom() + " to " + request.getTo());
+        }
+
+        long[] converted;
+        try {
+            converted = rates.convert(from, to, amounts, scale, targetScale);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        return ConversionDTO.builder()
+                .from(request.getFrom().toUpperCase())
+                .to(request.getTo().toUpperCase())
+                .rate(rates.rate(from, to))
+                .asOf(rates.fixingDate(from, to))
+                .scale(scale)
+                .targetScale(targetScale)
+                .amounts(converted)
+                .build();
+    }
+
+    private static int slot(String code) {
+        int slot = CrossRates.slot(code);
+        if (slot < 0) {
+            throw new CurrencyNotFoundException("Unknown currency: " + code);
+        }
+        return slot;
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.currencytracker.service;
 
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.config.CacheConfig;
 import com.example.currencytracker.dto.CurrencyRateDTO;
 import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.RateVersion;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -15,110 +20,168 @@ import java.util.*;
 @RequiredArgsConstructor
 public class CurrencyService {
 
-    private final RestTemplate restTemplate;
-
-    private static final String BASE_URL = "https://api.frankfurter.app";
+    private final UpstreamGateway upstreamGateway;
+    private final RateHistoryStore rateHistoryStore;
+    private final CacheManager cacheManager;
+    private final LatestRateSnapshot latestRateSnapshot;
+    private final RateSeriesStore rateSeriesStore;
+    private final LatestRateRevalidator latestRateRevalidator;
 
     /**
-     * Fetch latest currency rate dynamically
+     * Fetch latest currency rate dynamically. Only a currency never fetched before waits on
+     * upstream, otherwise an outdated rate is served with its age while it is refreshed.
      */
     public CurrencyRateDTO fetchDailyRate(CurrencyCode currency) {
-        try {
-            String currencyStr = currency.name();
+        Cache cache = cacheManager.getCache(CacheConfig.LATEST_RATES);
+        CurrencyRateDTO known = fresh(currency, cache);
+        if (known == null) {
+            known = latestRateRevalidator.serveStale(currency);
+        }
+        if (known != null) {
+            return known;
+        }
 
-            String url = BASE_URL + "/latest?from=" + currencyStr + "&to=PLN";
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+        CurrencyRateDTO rate = upstreamGateway.fetchLatest(currency);
+        if (cache != null) {
+            cache.put(currency, rate);
+        }
+        latestRateRevalidator.fetched(Map.of(currency, rate), Instant.now());
+        return rate;
+    }
 
-            if (response == null || !response.containsKey("rates")) {
-                throw new RuntimeException("No rates found for " + currencyStr);
+    /**
+     * Fetch latest rates of many currencies, with one upstream call for all cache misses
+     */
+    public Map<CurrencyCode, CurrencyRateDTO> fetchDailyRates(Collection<CurrencyCode> currencies) {
+        Cache cache = cacheManager.getCache(CacheConfig.LATEST_RATES);
+        Map<CurrencyCode, CurrencyRateDTO> rates = new EnumMap<>(CurrencyCode.class);
+        Set<CurrencyCode> missing = EnumSet.noneOf(CurrencyCode.class);
+
+        for (CurrencyCode currency : currencies) {
+            CurrencyRateDTO known = fresh(currency, cache);
+            if (known == null) {
+                known = latestRateRevalidator.serveStale(currency);
+            }
+            if (known != null) {
+                rates.put(currency, known);
+            } else {
+                missing.add(currency);
             }
+        }
 
-            Map<String, Double> rates = (Map<String, Double>) response.get("rates");
-            BigDecimal rate = BigDecimal.valueOf(rates.get("PLN"));
-            String dateStr = (String) response.get("date");
+        Instant fetchedAt = Instant.now();
+        Map<CurrencyCode, CurrencyRateDTO> fetched = upstreamGateway.fetchLatest(missing);
+        fetched.forEach((currency, rate) -> {
+            if (cache != null) {
+                cache.put(currency, rate);
+            }
+            rates.put(currency, rate);
+        });
+        latestRateRevalidator.fetched(fetched, fetchedAt);
 
-            return CurrencyRateDTO.builder()
-                    .currency(currencyStr)
-                    .rate(rate)
-                    .timestamp(LocalDate.parse(dateStr).atTime(16, 00))
-                    .build();
+        for (CurrencyCode currency : missing) {
+            if (!rates.containsKey(currency)) {
+                throw new RuntimeException("No rates found for " + currency);
+            }
+        }
+        return rates;
+    }
 
-        } catch (RestClientException e) {
-            throw new RuntimeException("Failed to fetch latest rate for " + currency, e);
+    /**
+     * Rate from a prefetch within the allowed staleness or from the cache, null when neither has it
+     */
+    private CurrencyRateDTO fresh(CurrencyCode currency, Cache cache) {
+        LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+        CurrencyRateDTO prefetched = snapshot.rates().get(currency);
+        if (prefetched != null && !latestRateRevalidator.isStale(snapshot.refreshedAt())) {
+            return prefetched;
         }
+        return cache != null ? cache.get(currency, CurrencyRateDTO.class) : null;
     }
 
     /**
      * Fetch historical rates for a period
      */
     public List<CurrencyRateDTO> fetchHistory(CurrencyCode currency, LocalDate from, LocalDate to) {
-        try {
-            String currencyStr = currency.name();
-
-            String url = BASE_URL + "/" + from + ".." + to
-                    + "?from=" + currencyStr + "&to=PLN";
-
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-
-            if (response == null || !response.containsKey("rates")) {
-                throw new RuntimeException("No historical rates found for " + currencyStr);
-            }
-
-            Map<String, Map<String, Double>> rates =
-                    (Map<String, Map<String, Double>>) response.get("rates");
-
-            List<CurrencyRateDTO> history = new ArrayList<>();
-
-            for (Map.Entry<String, Map<String, Double>> entry : rates.entrySet()) {
-                LocalDate date = LocalDate.parse(entry.getKey());
-                BigDecimal rate = BigDecimal.valueOf(entry.getValue().get("PLN"));
+        return rateHistoryStore.getHistory(currency, from, to);
+    }
 
-                history.add(CurrencyRateDTO.builder()
-                        .currency(currencyStr)
-                        .rate(rate)
-                        .timestamp(date.atTime(16,00))
-                        .build());
-            }
+    /**
+     * Fetch historical rates of many currencies for a period
+     */
+    public Map<CurrencyCode, List<CurrencyRateDTO>> fetchHistories(Collection<CurrencyCode> currencies,
+                                                                LocalDate from, LocalDate to) {
+        if (currencies.isEmpty()) {
+            return Map.of();
+        }
+        return rateHistoryStore.getHistories(EnumSet.copyOf(currencies), from, to);
+    }
 
-            history.sort(Comparator.comparing(CurrencyRateDTO::getTimestamp));
-            return history;
+    /**
+     * Version of the history of the currencies, in their order, from what the series hold for the range.
+     * Count, last day and average come from the prefix sums, so no rate is visited. It carries no
+     * Last-Modified: the newest fixing's date says nothing of an older day corrected or backfilled
+     * since, so history is only validated by its ETag.
+     */
+    public RateVersion historyVersion(Collection<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        if (!currencies.isEmpty()) {
+            rateHistoryStore.ensureLoaded(EnumSet.copyOf(currencies), from, to);
+        }
 
-        } catch (RestClientException e) {
-            throw new RuntimeException("Failed to fetch history for " + currency, e);
+        long fromDay = from.toEpochDay();
+        long toDay = Math.min(to.toEpochDay(), LocalDate.now().toEpochDay());
+        long hash = RateVersion.mix(fromDay, toDay);
+        for (CurrencyCode currency : currencies) {
+            RateSeries series = rateSeriesStore.get(currency);
+            long lastDay = series.lastDay(fromDay, toDay);
+            hash = RateVersion.mix(hash, currency.ordinal());
+            hash = RateVersion.mix(hash, series.count(fromDay, toDay));
+            hash = RateVersion.mix(hash, lastDay);
+            hash = RateVersion.mix(hash, Double.doubleToLongBits(series.average(fromDay, toDay)));
         }
+        return RateVersion.of(hash, null);
     }
 
     public double getAverageRate(int days, CurrencyCode currency) {
         LocalDate toDate = LocalDate.now();
         LocalDate fromDate = LocalDate.now().minusDays(days);
 
-        List<CurrencyRateDTO> rates = fetchHistory(currency, fromDate, toDate);
-        return rates.stream()
-                .mapToDouble(rate -> rate.getRate().doubleValue())
-                .average()
-                .orElse(0.0);
+        rateHistoryStore.ensureLoaded(currency, fromDate, toDate);
+        double average = rateSeriesStore.get(currency).average(fromDate.toEpochDay(), toDate.toEpochDay());
+        return Double.isNaN(average) ? 0.0 : average;
+    }
+
+    /**
+     * Sample variance of the window, 0 when it holds fewer than two fixings
+     */
+    public double getVariance(int days, CurrencyCode currency) {
+        LocalDate toDate = LocalDate.now();
+        LocalDate fromDate = LocalDate.now().minusDays(days);
+
+        rateHistoryStore.ensureLoaded(currency, fromDate, toDate);
+        double variance = rateSeriesStore.get(currency).variance(fromDate.toEpochDay(), toDate.toEpochDay());
+        return Double.isNaN(variance) ? 0.0 : variance;
     }
 
     public String getTrend(int days, CurrencyCode currency){
         LocalDate from = LocalDate.now().minusDays(days);
         LocalDate to = LocalDate.now();
 
-        List<CurrencyRateDTO> rates;
         try {
-            rates = fetchHistory(currency, from, to);
+            rateHistoryStore.ensureLoaded(currency, from, to);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch history for " + currency, e);
         }
 
-        if (rates == null || rates.size() < 2) return "stable";
+        RateSeries series = rateSeriesStore.get(currency);
+        if (series.count(from.toEpochDay(), to.toEpochDay()) < 2) return "stable";
 
-        double trendScore = 0;
-        for (int i = 1; i<rates.size(); i++){
-            trendScore += rates.get(i).getRate().doubleValue() - rates.get(i-1).getRate().doubleValue();
-        }
+        // the sum of day-to-day changes is the last rate minus the first one
+        double trendScore = series.last(from.toEpochDay(), to.toEpochDay())
+                - series.first(from.toEpochDay(), to.toEpochDay());
 
         if (trendScore > 0) return "up";
         if(trendScore < 0) return "down";
         return "stable";
     }
-}
\ No newline at end of file
+}
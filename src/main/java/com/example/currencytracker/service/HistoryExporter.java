@@ -0,0 +1,155 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.repository.CurrencyRateRepository;
+import com.example.currencytracker.series.RateColumns;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes history as NDJSON, one rate per line, flushing as it goes so large
+ * exports start arriving at once and never sit in memory as a whole,
+ * or as rate columns, a compact binary block per currency.
+ */
+@Service
+@RequiredArgsConstructor
+public class HistoryExporter {
+
+    /**
+     * Months loaded and written per step of a series export
+     */
+    static final int CHUNK_MONTHS = 3;
+
+    /**
+     * Rows written between two flushes of a database export
+     */
+    private static final int FLUSH_ROWS = 500;
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final RateHistoryStore rateHistoryStore;
+    private final RateSeriesStore rateSeriesStore;
+    private final CurrencyRateRepository currencyRateRepository;
+
+    /**
+     * History through the store, a few months at a time, ordered by date then currency in request order
+     */
+    public void exportHistory(List<CurrencyCode> currencies, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        String fixingTime = "T" + FixingCalendar.FIXING_TIME.format(DateTimeFormatter.ISO_LOCAL_TIME);
+
+        try (JsonGenerator generator = ndjson(out)) {
+            for (LocalDate chunkFrom = from; !chunkFrom.isAfter(end); chunkFrom = chunkFrom.plusMonths(CHUNK_MONTHS).withDayOfMonth(1)) {
+                LocalDate chunkTo = chunkFrom.plusMonths(CHUNK_MONTHS).withDayOfMonth(1).minusDays(1);
+                if (chunkTo.isAfter(end)) {
+                    chunkTo = end;
+                }
+                rateHistoryStore.ensureLoaded(EnumSet.copyOf(currencies), chunkFrom, chunkTo);
+
+                for (long day = chunkFrom.toEpochDay(); day <= chunkTo.toEpochDay(); day++) {
+                    String timestamp = null;
+                    for (CurrencyCode currency : currencies) {
+                        RateSeries series = rateSeriesStore.get(currency);
+                        double rate = series.get(day);
+                        if (!Double.isNaN(rate)) {
+                            if (timestamp == null) {
+                                timestamp = LocalDate.ofEpochDay(day) + fixingTime;
+                            }
+                            writeRow(generator, currency.name(), rate, timestamp);
+                        }
+                    }
+                }
+                generator.flush();
+            }
+        }
+    }
+
+    /**
+     * History through the store as rate columns, one block per currency in request order.
+     * A block takes a few bytes per fixing, so the payload is built whole and sent with its length.
+     */
+    public byte[] exportColumns(List<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        if (!currencies.isEmpty()) {
+            rateHistoryStore.ensureLoaded(EnumSet.copyOf(currencies), from, end);
+        }
+
+        List<RateColumns.Block> blocks = currencies.stream()
+                .map(currency -> RateColumns.Block.of(rateSeriesStore.get(currency), from.toEpochDay(), end.toEpochDay()))
+                .toList();
+        return RateColumns.encode(blocks);
+    }
+
+    /**
+     * Rates already stored in the database, read through a cursor. Never calls upstream,
+     * so days that were never fetched are simply missing.
+     */
+    @Transactional(readOnly = true)
+    public void exportStored(List<CurrencyCode> currencies, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        List<String> codes = currencies.stream().map(Enum::name).toList();
+
+        try (JsonGenerator generator = ndjson(out);
+             Stream<CurrencyRateDTO> rows = currencyRateRepository.streamHistory(codes,
+                     from.atStartOfDay(), to.atTime(LocalTime.MAX))) {
+            int written = 0;
+            for (CurrencyRateDTO row : (Iterable<CurrencyRateDTO>) rows::iterator) {
+                writeRow(generator, row.getCurrency(), row.getRate(), row.getTimestamp());
+                if (++written % FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines are ended explicitly, so no separator between root values
+     */
+    private static JsonGenerator ndjson(OutputStream out) throws IOException {
+        JsonGenerator generator = JSON.createGenerator(out, JsonEncoding.UTF8);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private static void writeRow(JsonGenerator generator, String currency, double rate, String timestamp) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("currency", currency);
+        generator.writeNumberField("rate", rate);
+        generator.writeStringField("timestamp", timestamp);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeRow(JsonGenerator generator, String currency, BigDecimal rate, LocalDateTime timestamp) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("currency", currency);
+        generator.writeNumberField("rate", rate);
+        generator.writeStringField("timestamp", TIMESTAMP.format(timestamp));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.client.RetryPolicy;
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.config.SchedulerProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stale-while-revalidate for latest rates. Every rate fetched is remembered without expiry;
+ * once the cached and prefetched copies are gone or too old, the last known one is served at
+ * once, flagged with its age, and a refresh runs in the background with the retry policy.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatestRateRevalidator {
+
+    private record KnownRate(CurrencyRateDTO rate, Instant fetchedAt) {
+    }
+
+    private final UpstreamGateway upstreamGateway;
+    private final CacheManager cacheManager;
+    private final CurrencyApiProperties currencyApiProperties;
+    private final SchedulerProperties schedulerProperties;
+    private final LatestRateSnapshot latestRateSnapshot;
+    private final RateCoherence rateCoherence;
+
+    private final Map<CurrencyCode, KnownRate> lastKnown = new ConcurrentHashMap<>();
+    private final Set<CurrencyCode> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Prefetched rates refreshed longer ago than scheduler.max-staleness are stale
+     */
+    public boolean isStale(Instant refreshedAt) {
+        return refreshedAt == null
+                || Duration.between(refreshedAt, Instant.now()).compareTo(schedulerProperties.getMaxStaleness()) > 0;
+    }
+
+    public void remember(CurrencyRateDTO rate, Instant fetchedAt) {
+        CurrencyCode currency = CurrencyCode.valueOf(rate.getCurrency());
+        lastKnown.merge(currency, new KnownRate(rate, fetchedAt),
+                (known, fetched) -> fetched.fetchedAt().isBefore(known.fetchedAt()) ? known : fetched);
+    }
+
+    /**
+     * Remember rates fetched from upstream here and share them with the other instances
+     */
+    public void fetched(Map<CurrencyCode, CurrencyRateDTO> rates, Instant fetchedAt) {
+        rates.values().forEach(rate -> remember(rate, fetchedAt));
+        rateCoherence.shareLatest(rates, fetchedAt);
+    }
+
+    /**
+     * Newest known rate flagged with its age, with a refresh started in the background;
+     * null when the currency was never fetched
+     */
+    public CurrencyRateDTO serveStale(CurrencyCode currency) {
+        KnownRate known = lastKnown.get(currency);
+        LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+        CurrencyRateDTO prefetched = snapshot.rates().get(currency);
+        if (prefetched != null && (known == null || snapshot.refreshedAt().isAfter(known.fetchedAt()))) {
+            known = new KnownRate(prefetched, snapshot.refreshedAt());
+        }
+        if (known == null) {
+            return null;
+        }
+
+        revalidate(currency);
+        return known.rate().toBuilder()
+                .ageSeconds(Duration.between(known.fetchedAt(), Instant.now()).toSeconds())
+                .build();
+    }
+
+    /**
+     * Refresh the currency in the background, unless a refresh of it already runs
+     */
+    public void revalidate(CurrencyCode currency) {
+        if (!refreshing.add(currency)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                refresh(currency);
+            } finally {
+                refreshing.remove(currency);
+            }
+        });
+    }
+
+    private void refresh(CurrencyCode currency) {
+        RetryPolicy retryPolicy = new RetryPolicy(currencyApiProperties.getRetry());
+        for (int attempt = 1; attempt <= retryPolicy.attempts(); attempt++) {
+            try {
+                CurrencyRateDTO rate = upstreamGateway.fetchLatest(currency);
+                Cache cache = cacheManager.getCache(CacheConfig.LATEST_RATES);
+                if (cache != null) {
+                    cache.put(currency, rate);
+                }
+                fetched(Map.of(currency, rate), Instant.now());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Revalidation of {} failed, attempt {}/{}: {}", currency, attempt, retryPolicy.attempts(),
+                        e.getMessage());
+            }
+
+            if (attempt < retryPolicy.attempts() && !retryPolicy.pause(attempt)) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest rates of the prefetched currencies.
+ * The whole table is replaced at once, so readers never see rates from two refreshes.
+ */
+@Component
+public class LatestRateSnapshot {
+
+    public record Snapshot(Map<CurrencyCode, CurrencyRateDTO> rates, Instant refreshedAt) {
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(Map.of(), null));
+
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Rate from the last refresh, null when the currency is not prefetched
+     */
+    public CurrencyRateDTO get(CurrencyCode currency) {
+        return current.get().rates().get(currency);
+    }
+
+    public void swap(Map<CurrencyCode, CurrencyRateDTO> rates, Instant refreshedAt) {
+        current.set(new Snapshot(rates.isEmpty() ? Map.of() : new EnumMap<>(rates), refreshedAt));
+    }
+}
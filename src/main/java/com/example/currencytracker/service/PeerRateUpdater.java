@@ -0,0 +1,128 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.coherence.CoherenceMessage;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies what other instances published, so this one serves their fetches without calling upstream.
+ * A refresh replaces the prefetched rates, rebuilds the cross rates from the rates it carries, without
+ * calling upstream, and is pushed to subscribers here.
+ * Its newest fixings go into the series; a cached month segment is brought up to date when it then
+ * holds as many fixings as the leader's, and evicted otherwise, so a missed message is never served.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PeerRateUpdater {
+
+    private final RateCoherence rateCoherence;
+    private final CacheManager cacheManager;
+    private final LatestRateSnapshot latestRateSnapshot;
+    private final LatestRateRevalidator latestRateRevalidator;
+    private final RateSeriesStore rateSeriesStore;
+    private final CrossRateService crossRateService;
+    private final RateBroadcaster rateBroadcaster;
+
+    @PostConstruct
+    public void register() {
+        rateCoherence.addListener(this::apply);
+    }
+
+    /**
+     * Tell the leader which currencies subscribers follow here, it keeps them warm for everyone
+     */
+    @Scheduled(fixedDelayString = "${coherence.interest-interval:60000}")
+    public void announceInterest() {
+        Set<CurrencyCode> currencies = rateBroadcaster.subscribedCurrencies();
+        if (!currencies.isEmpty()) {
+            rateCoherence.announceInterest(currencies);
+        }
+    }
+
+    public void apply(CoherenceMessage message) {
+        switch (message.type()) {
+            case REFRESH -> applyRefresh(message);
+            case LATEST -> storeLatest(message.rates(), message.at());
+            case SYNC -> {
+                LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+                if (snapshot.refreshedAt() != null && rateCoherence.isLeader()) {
+                    rateCoherence.publishRefresh(snapshot.rates(), crossRateService.latestRates(),
+                            snapshot.refreshedAt());
+                }
+            }
+            case INTEREST -> {
+                // kept by RateCoherence
+            }
+        }
+    }
+
+    private void applyRefresh(CoherenceMessage message) {
+        Cache segments = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        message.monthFixings().forEach((currency, leaderFixings) -> {
+            CurrencyRateDTO rate = message.rates().get(currency);
+            if (rate != null) {
+                storeFixing(currency, rate, leaderFixings, segments);
+            }
+        });
+        storeLatest(message.rates(), message.at());
+        latestRateSnapshot.swap(message.rates(), message.at());
+        // rates the leader did not send keep the ones this instance built its last matrix from
+        Map<CurrencyCode, CurrencyRateDTO> crossRates = new EnumMap<>(CurrencyCode.class);
+        crossRates.putAll(crossRateService.latestRates());
+        crossRates.putAll(message.crossRates());
+        crossRates.putAll(message.rates());
+        crossRateService.build(crossRates);
+        rateBroadcaster.publish(message.rates());
+        log.debug("Applied the refresh of {} from {}", message.rates().keySet(), message.node());
+    }
+
+    private void storeFixing(CurrencyCode currency, CurrencyRateDTO rate, int leaderFixings, Cache segments) {
+        LocalDate day = rate.getTimestamp().toLocalDate();
+        RateSeries series = rateSeriesStore.get(currency);
+        series.put(day.toEpochDay(), rate.getRate().doubleValue());
+
+        HistorySegment.Key key = new HistorySegment.Key(currency, YearMonth.from(day));
+        if (segments == null || segments.get(key) == null) {
+            return;
+        }
+        long firstDay = key.month().atDay(1).toEpochDay();
+        long lastDay = key.month().atEndOfMonth().toEpochDay();
+        int fixings = series.count(firstDay, lastDay);
+        if (fixings == leaderFixings) {
+            segments.put(key, new HistorySegment(currency, key.month(), fixings,
+                    LocalDate.ofEpochDay(series.lastDay(firstDay, lastDay))));
+        } else {
+            segments.evict(key);
+        }
+    }
+
+    private void storeLatest(Map<CurrencyCode, CurrencyRateDTO> rates, Instant fetchedAt) {
+        Cache latest = cacheManager.getCache(CacheConfig.LATEST_RATES);
+        rates.forEach((currency, rate) -> {
+            if (latest != null) {
+                latest.put(currency, rate);
+            }
+            latestRateRevalidator.remember(rate, fetchedAt);
+        });
+    }
+}
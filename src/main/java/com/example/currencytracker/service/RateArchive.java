@@ -0,0 +1,260 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.config.ArchiveProperties;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.series.SeriesListener;
+import com.example.currencytracker.series.SeriesLog;
+import com.example.currencytracker.series.SeriesSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the rate series on disk so a restart starts warm. At startup the last snapshot is
+ * mapped and stored into the series, the logs written since are replayed, and the months
+ * that were complete and loaded when the snapshot was taken are marked loaded again, so their
+ * history is served without touching the database or upstream.
+ * Afterwards every fixing stored is appended to the log, and the snapshot is rewritten on a cron.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateArchive implements SeriesListener {
+
+    static final String SNAPSHOT_FILE = "rates.snapshot";
+    private static final String LOG_PREFIX = "rates-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final RateSeriesStore rateSeriesStore;
+    private final CacheManager cacheManager;
+    private final ArchiveProperties archiveProperties;
+
+    private final Queue<Fixing> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    private SeriesLog appendLog;
+    private Path appendLogFile;
+    private long snapshotId;
+    private long lastLogName;
+
+    private record Fixing(CurrencyCode currency, long epochDay, double rate) {
+    }
+
+    @PostConstruct
+    public synchronized void restore() {
+        if (!archiveProperties.isEnabled()) {
+            return;
+        }
+        Path directory = archiveProperties.getDirectory();
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+            SeriesSnapshot.Restored restored = Files.exists(snapshotFile)
+                    ? SeriesSnapshot.restore(snapshotFile, rateSeriesStore)
+                    : new SeriesSnapshot.Restored(0, Instant.EPOCH, 0, Map.of());
+            snapshotId = restored.id();
+
+            int replayed = 0;
+            for (Path logFile : logFiles()) {
+                if (SeriesLog.snapshotId(logFile) >= snapshotId) {
+                    replayed += SeriesLog.replay(logFile, rateSeriesStore);
+                }
+                lastLogName = Math.max(lastLogName, logName(logFile));
+            }
+            int months = markLoaded(restored);
+            // the next snapshot folds the replayed logs in
+            changed.set(replayed > 0);
+
+            if (restored.fixings() > 0 || replayed > 0) {
+                log.info("Restored {} fixings and {} loaded months from {}, replayed {} logged fixings, in {} ms",
+                        restored.fixings(), months, snapshotFile, replayed, (System.nanoTime() - started) / 1_000_000);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Rate archive in {} could not be restored, history loads as usual: {}", directory, e.toString());
+        }
+
+        rateSeriesStore.addListener(this);
+        try {
+            openLog(snapshotId);
+        } catch (IOException e) {
+            log.warn("Rate archive log in {} could not be opened, fixings are not archived: {}", directory, e.toString());
+        }
+    }
+
+    @Override
+    public void onAppend(CurrencyCode currency, long epochDay, double rate) {
+        pending.add(new Fixing(currency, epochDay, rate));
+        changed.set(true);
+    }
+
+    @Override
+    public void onRewrite(CurrencyCode currency, long epochDay) {
+        // called under the series write lock, the new rate is already in place
+        pending.add(new Fixing(currency, epochDay, rateSeriesStore.get(currency).get(epochDay)));
+        changed.set(true);
+    }
+
+    /**
+     * Write the fixings stored since the last flush to the log
+     */
+    @Scheduled(fixedDelayString = "${archive.flush-interval:1000}")
+    public synchronized void flush() {
+        if (appendLog == null || pending.isEmpty()) {
+            return;
+        }
+        try {
+            for (Fixing fixing = pending.poll(); fixing != null; fixing = pending.poll()) {
+                appendLog.append(fixing.currency(), fixing.epochDay(), fixing.rate());
+            }
+            appendLog.flush();
+        } catch (IOException e) {
+            log.warn("Rate archive log {} could not be written: {}", appendLogFile, e.toString());
+        }
+    }
+
+    /**
+     * Rewrite the snapshot when fixings were stored since the last one. The log is switched
+     * first, so every fixing stored while the snapshot is written lands in a log that follows it.
+     */
+    @Scheduled(cron = "${archive.snapshot-cron:0 30 * * * *}")
+    public synchronized void snapshot() {
+        if (appendLog == null || !changed.getAndSet(false)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            flush();
+            long id = Math.max(System.currentTimeMillis(), snapshotId + 1);
+            SeriesLog previous = appendLog;
+            openLog(id);
+            previous.close();
+
+            SeriesSnapshot.write(archiveProperties.getDirectory().resolve(SNAPSHOT_FILE), id, Instant.now(),
+                    rateSeriesStore, loadedMonths());
+            snapshotId = id;
+
+            for (Path logFile : logFiles()) {
+                if (!logFile.equals(appendLogFile)) {
+                    Files.deleteIfExists(logFile);
+                }
+            }
+            log.debug("Rate archive snapshot {} written in {} ms", id, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            changed.set(true);
+            log.warn("Rate archive snapshot in {} failed: {}", archiveProperties.getDirectory(), e.toString());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (appendLog == null) {
+            return;
+        }
+        snapshot();
+        flush();
+        try {
+            appendLog.close();
+        } catch (IOException e) {
+            log.warn("Rate archive log {} could not be closed: {}", appendLogFile, e.toString());
+        }
+        appendLog = null;
+    }
+
+    /**
+     * Mark the months that had no fixing left to publish when the snapshot was taken.
+     * Months still open then are loaded as usual, a restore never hides a fixing published while down.
+     */
+    private int markLoaded(SeriesSnapshot.Restored restored) {
+        Cache cache = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        if (cache == null) {
+            return 0;
+        }
+        LocalDateTime takenAt = LocalDateTime.ofInstant(restored.createdAt(), ZoneId.systemDefault());
+        LocalDateTime nextFixing = FixingCalendar.nextFixing(takenAt);
+
+        int marked = 0;
+        for (Map.Entry<CurrencyCode, List<YearMonth>> loaded : restored.loadedMonths().entrySet()) {
+            RateSeries series = rateSeriesStore.get(loaded.getKey());
+            for (YearMonth month : loaded.getValue()) {
+                if (!nextFixing.toLocalDate().isAfter(month.atEndOfMonth())) {
+                    continue;
+                }
+                long firstDay = month.atDay(1).toEpochDay();
+                long lastDay = month.atEndOfMonth().toEpochDay();
+                long lastFixing = series.lastDay(firstDay, lastDay);
+                HistorySegment segment = new HistorySegment(loaded.getKey(), month, series.count(firstDay, lastDay),
+                        lastFixing == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(lastFixing));
+                cache.put(segment.key(), segment);
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Months whose segment is in the cache, so their fixings are all in the series
+     */
+    private Map<CurrencyCode, List<YearMonth>> loadedMonths() {
+        Map<CurrencyCode, List<YearMonth>> months = new EnumMap<>(CurrencyCode.class);
+        Cache cache = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> segments) {
+            segments.asMap().values().forEach(value -> {
+                if (value instanceof HistorySegment segment) {
+                    months.computeIfAbsent(segment.currency(), c -> new ArrayList<>()).add(segment.month());
+                }
+            });
+        }
+        return months;
+    }
+
+    private void openLog(long followingSnapshot) throws IOException {
+        lastLogName = Math.max(System.currentTimeMillis(), lastLogName + 1);
+        appendLogFile = archiveProperties.getDirectory().resolve(LOG_PREFIX + String.format("%019d", lastLogName) + LOG_SUFFIX);
+        appendLog = SeriesLog.create(appendLogFile, followingSnapshot);
+    }
+
+    private static long logName(Path logFile) {
+        String name = logFile.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Logs in the order they were created
+     */
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(archiveProperties.getDirectory())) {
+            return files.filter(file -> file.getFileName().toString().startsWith(LOG_PREFIX)
+                            && file.getFileName().toString().endsWith(LOG_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.config.SubscriptionProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.exception.SubscriptionLimitException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes changed latest rates to server-sent event subscribers. Each rate is serialized once
+ * per refresh and offered to the bounded buffer of every subscriber following its currency.
+ * A buffer is drained on a virtual thread only while it holds events, an idle subscriber holds
+ * no thread and a slow one delays nobody. A subscriber whose buffer is full is disconnected,
+ * on reconnect it starts again from the current rates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateBroadcaster {
+
+    static final String RATE_EVENT = "rate";
+
+    private final SubscriptionProperties subscriptionProperties;
+    private final CurrencyService currencyService;
+    private final ObjectMapper objectMapper;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberSlots = new AtomicInteger();
+    private final Map<CurrencyCode, CurrencyRateDTO> lastPublished = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+
+    public record Stats(int subscribers, long published, long delivered, long slowDisconnects) {
+    }
+
+    private record Event(String id, String data) {
+    }
+
+    public SseEmitter subscribe(Set<CurrencyCode> currencies) {
+        SseEmitter emitter = new SseEmitter(subscriptionProperties.getTimeout().toMillis());
+        register(currencies, emitter);
+        return emitter;
+    }
+
+    /**
+     * Follow the currencies through the emitter, starting with the current rates of those that have one
+     */
+    public void register(Set<CurrencyCode> currencies, SseEmitter emitter) {
+        reserveSlot();
+        Subscriber subscriber = new Subscriber(EnumSet.copyOf(currencies), emitter,
+                new ArrayBlockingQueue<>(subscriptionProperties.getBufferSize()));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // registered before the current rates are read, a refresh in between is sent rather than missed
+        subscribers.add(subscriber);
+
+        currentRates(subscriber.currencies).values().forEach(rate -> subscriber.offer(event(rate)));
+    }
+
+    /**
+     * Take a subscriber slot, checked and counted in one step so concurrent registrations never exceed the limit
+     */
+    private void reserveSlot() {
+        int max = subscriptionProperties.getMaxSubscribers();
+        for (int taken = subscriberSlots.get(); ; taken = subscriberSlots.get()) {
+            if (taken >= max) {
+                throw new SubscriptionLimitException("Subscriber limit of " + max + " reached, try again later");
+            }
+            if (subscriberSlots.compareAndSet(taken, taken + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Current rates in one call, or currency by currency when that fails, leaving out only those without one
+     */
+    private Map<CurrencyCode, CurrencyRateDTO> currentRates(Set<CurrencyCode> currencies) {
+        try {
+            return currencyService.fetchDailyRates(currencies);
+        } catch (RuntimeException e) {
+            log.debug("Current rates of {} not fetched together, fetching one by one: {}", currencies, e.getMessage());
+        }
+        Map<CurrencyCode, CurrencyRateDTO> current = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : currencies) {
+            try {
+                current.put(currency, currencyService.fetchDailyRate(currency));
+            } catch (RuntimeException e) {
+                log.debug("No current rate of {} for new subscriber: {}", currency, e.getMessage());
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Send the rates that changed since the last publish to their subscribers, returns how many changed
+     */
+    public int publish(Map<CurrencyCode, CurrencyRateDTO> rates) {
+        Map<CurrencyCode, Event> changed = new EnumMap<>(CurrencyCode.class);
+        rates.forEach((currency, rate) -> {
+            CurrencyRateDTO previous = lastPublished.put(currency, rate);
+            if (previous == null || !previous.getTimestamp().equals(rate.getTimestamp())
+                    || previous.getRate().compareTo(rate.getRate()) != 0) {
+                changed.put(currency, event(rate));
+            }
+        });
+        if (changed.isEmpty()) {
+            return 0;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            for (CurrencyCode currency : subscriber.currencies) {
+                Event event = changed.get(currency);
+                if (event != null) {
+                    subscriber.offer(event);
+                }
+            }
+        }
+        published.addAndGet(changed.size());
+        return changed.size();
+    }
+
+    /**
+     * Currencies someone is subscribed to, the prefetch keeps them fresh
+     */
+    public Set<CurrencyCode> subscribedCurrencies() {
+        Set<CurrencyCode> currencies = EnumSet.noneOf(CurrencyCode.class);
+        subscribers.forEach(subscriber -> currencies.addAll(subscriber.currencies));
+        return currencies;
+    }
+
+    /**
+     * A comment line to every subscriber, which also finds the connections that were closed
+     */
+    @Scheduled(fixedDelayString = "${subscriptions.heartbeat-interval:30000}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(null));
+    }
+
+    public Stats stats() {
+        return new Stats(subscribers.size(), published.get(), delivered.get(), slowDisconnects.get());
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> {
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException e) {
+                // the container already let go of the response
+            }
+        });
+        subscribers.clear();
+        subscriberSlots.set(0);
+        senders.shutdown();
+    }
+
+    private Event event(CurrencyRateDTO rate) {
+        try {
+            return new Event(Long.toString(eventIds.incrementAndGet()), objectMapper.writeValueAsString(rate));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Rate could not be serialized: " + rate, e);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber)) {
+            subscriberSlots.decrementAndGet();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final Set<CurrencyCode> currencies;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Optional<Event>> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Set<CurrencyCode> currencies, SseEmitter emitter, BlockingQueue<Optional<Event>> buffer) {
+            this.currencies = currencies;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Queue a rate event, or a heartbeat for null
+         */
+        void offer(Event event) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(Optional.ofNullable(event))) {
+                slowDisconnects.incrementAndGet();
+                remove(this);
+                emitter.completeWithError(new IllegalStateException("Subscriber fell " + buffer.size() + " events behind"));
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                for (Optional<Event> next = buffer.poll(); next != null && !closed; next = buffer.poll()) {
+                    if (next.isPresent()) {
+                        emitter.send(SseEmitter.event().id(next.get().id()).name(RATE_EVENT).data(next.get().data()));
+                        delivered.incrementAndGet();
+                    } else {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // an event offered after the last poll and before the flag was cleared is drained here
+            if (!buffer.isEmpty() && !closed && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.entity.CurrencyRate;
+import com.example.currencytracker.entity.RateCoverage;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.model.DateRange;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.repository.CurrencyRateRepository;
+import com.example.currencytracker.repository.RateCoverageRepository;
+import com.example.currencytracker.series.FixingTable;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Read-through history store: rate series in memory, tracked by month segments in the
+ * Caffeine cache, then the currency_rates table, then upstream for the sub-ranges that
+ * were never fetched. Everything fetched from upstream is written through to both tiers,
+ * a stored fixing keeping the rate of the provider that published it first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateHistoryStore {
+
+    /**
+     * Rates read from the database per query, about four years of one currency
+     */
+    static final int STORED_PAGE_SIZE = 1000;
+
+    private final CacheManager cacheManager;
+    private final CurrencyRateRepository currencyRateRepository;
+    private final RateCoverageRepository rateCoverageRepository;
+    private final UpstreamGateway upstreamGateway;
+    private final RateSeriesStore rateSeriesStore;
+
+    private final Map<CurrencyCode, Object> coverageLocks = coverageLocks();
+
+    /**
+     * Assemble the range from month segments, so overlapping and sliding windows share them
+     */
+    public List<CurrencyRateDTO> getHistory(CurrencyCode currency, LocalDate from, LocalDate to) {
+        return getHistories(EnumSet.of(currency), from, to).get(currency);
+    }
+
+    /**
+     * History of many currencies, as DTOs built from the rate series
+     */
+    public Map<CurrencyCode, List<CurrencyRateDTO>> getHistories(Set<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        ensureLoaded(currencies, from, to);
+
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        Map<CurrencyCode, List<CurrencyRateDTO>> histories = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : currencies) {
+            List<CurrencyRateDTO> history = new ArrayList<>();
+            rateSeriesStore.get(currency).forEach(from.toEpochDay(), end.toEpochDay(),
+                    (day, rate) -> history.add(CurrencyRateDTO.ofFixing(currency, day, rate)));
+            histories.put(currency, history);
+        }
+        return histories;
+    }
+
+    public void ensureLoaded(CurrencyCode currency, LocalDate from, LocalDate to) {
+        ensureLoaded(EnumSet.of(currency), from, to);
+    }
+
+    /**
+     * Make sure the rate series hold every fixing of the range. Segments missing from the
+     * cache are loaded together, so currencies sharing an uncovered range cost one upstream call.
+     */
+    public void ensureLoaded(Set<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        if (end.isBefore(from)) {
+            return;
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        Map<CurrencyCode, List<YearMonth>> missing = new EnumMap<>(CurrencyCode.class);
+
+        for (CurrencyCode currency : currencies) {
+            for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(end)); month = month.plusMonths(1)) {
+                HistorySegment.Key key = new HistorySegment.Key(currency, month);
+                if (cache == null || cache.get(key, HistorySegment.class) == null) {
+                    missing.computeIfAbsent(currency, c -> new ArrayList<>()).add(month);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<HistorySegment> segments = loadSegments(missing, today, UpstreamPriority.INTERACTIVE);
+            if (cache != null) {
+                segments.forEach(segment -> cache.put(segment.key(), segment));
+            }
+        }
+    }
+
+    /**
+     * Reload the given months regardless of what is cached and swap the new segments in,
+     * upstream calls queue behind the ones of interactive requests
+     */
+    public List<HistorySegment> refreshSegments(Set<CurrencyCode> currencies, Collection<YearMonth> months) {
+        Map<CurrencyCode, List<YearMonth>> reload = new EnumMap<>(CurrencyCode.class);
+        List<YearMonth> sorted = months.stream().sorted().toList();
+        currencies.forEach(currency -> reload.put(currency, sorted));
+
+        List<HistorySegment> segments = loadSegments(reload, LocalDate.now(), UpstreamPriority.BACKGROUND);
+        Cache cache = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        if (cache != null) {
+            segments.forEach(segment -> cache.put(segment.key(), segment));
+        }
+        return segments;
+    }
+
+    /**
+     * Serve covered days from the database and fetch the gaps from upstream,
+     * one call per distinct gap shared by all currencies missing it
+     */
+    private List<HistorySegment> loadSegments(Map<CurrencyCode, List<YearMonth>> missing, LocalDate today,
+                                              UpstreamPriority priority) {
+        Map<DateRange, Set<CurrencyCode>> gaps = new TreeMap<>(Comparator.comparing(DateRange::from)
+                .thenComparing(DateRange::to));
+
+        missing.forEach((currency, months) -> {
+            String code = currency.name();
+            RateSeries series = rateSeriesStore.get(currency);
+            List<DateRange> spans = monthSpans(months, today);
+            LocalDate spanFrom = spans.getFirst().from();
+            LocalDate spanTo = spans.getLast().to();
+
+            List<DateRange> covered = rateCoverageRepository.findOverlapping(code, spanFrom, spanTo).stream()
+                    .map(c -> new DateRange(c.getFromDate(), c.getToDate()))
+                    .toList();
+
+            if (!covered.isEmpty()) {
+                readStored(code, spanFrom, spanTo, series);
+            }
+
+            for (DateRange span : spans) {
+                for (DateRange gap : span.minus(covered)) {
+                    if (gap.isWeekendOnly()) {
+                        writeThrough(currency, gap, List.of(), today);
+                    } else {
+                        gaps.computeIfAbsent(gap, g -> EnumSet.noneOf(CurrencyCode.class)).add(currency);
+                    }
+                }
+            }
+        });
+
+        gaps.forEach((gap, currencies) -> {
+            FixingTable fetched = upstreamGateway.fetchRange(currencies, gap.from(), gap.to(), priority);
+            for (CurrencyCode currency : currencies) {
+                storeFetched(currency, gap, fetched, today);
+            }
+        });
+
+        List<HistorySegment> segments = new ArrayList<>();
+        missing.forEach((currency, months) -> {
+            RateSeries series = rateSeriesStore.get(currency);
+            for (YearMonth month : months) {
+                long firstDay = month.atDay(1).toEpochDay();
+                long lastDay = month.atEndOfMonth().toEpochDay();
+                long lastFixing = series.lastDay(firstDay, lastDay);
+                segments.add(new HistorySegment(currency, month, series.count(firstDay, lastDay),
+                        lastFixing == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(lastFixing)));
+            }
+        });
+        return segments;
+    }
+
+    /**
+     * Write rates fetched for the range through to the database, the coverage and the series.
+     * Returns the number of fixings written.
+     */
+    public int storeFetched(CurrencyCode currency, DateRange range, FixingTable fetched) {
+        return storeFetched(currency, range, fetched, LocalDate.now());
+    }
+
+    private int storeFetched(CurrencyCode currency, DateRange range, FixingTable fetched, LocalDate today) {
+        long fromDay = range.from().toEpochDay();
+        long toDay = range.to().toEpochDay();
+        // upstream answers a range starting on a holiday with the previous fixing, the day filter drops it
+        List<CurrencyRate> rows = new ArrayList<>();
+        fetched.forEach(currency, fromDay, toDay,
+                (day, rate) -> rows.add(CurrencyRate.builder()
+                        .currency(currency.name())
+                        .rate(BigDecimal.valueOf(rate))
+                        .timestamp(LocalDate.ofEpochDay(day).atTime(FixingCalendar.FIXING_TIME))
+                        .provider(fetched.provider())
+                        .build()));
+        if (rows.isEmpty() && hasDays(fetched, fromDay, toDay)) {
+            // others were published on those days, the answer lacks this currency and covers nothing of it
+            log.debug("No {} fixings in the answer for {}, left uncovered", currency, range);
+            return 0;
+        }
+        writeThrough(currency, range, rows, today);
+
+        RateSeries series = rateSeriesStore.get(currency);
+        fetched.forEach(currency, fromDay, toDay, series::put);
+        if (!rows.isEmpty() && fetched.provider() != null) {
+            // fixings another provider published first keep its rates
+            for (CurrencyRateDTO stored : currencyRateRepository.findPublishedByOthers(currency.name(),
+                    range.from().atStartOfDay(), range.to().atTime(LocalTime.MAX), fetched.provider())) {
+                series.put(stored.getTimestamp().toLocalDate().toEpochDay(), stored.getRate().doubleValue());
+            }
+        }
+        return rows.size();
+    }
+
+    private static boolean hasDays(FixingTable table, long fromDay, long toDay) {
+        for (int row = 0; row < table.size(); row++) {
+            if (table.day(row) >= fromDay && table.day(row) <= toDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stored rates of the range into the series, a page at a time keyed on the last timestamp read
+     */
+    private void readStored(String code, LocalDate from, LocalDate to, RateSeries series) {
+        LocalDateTime rangeFrom = from.atStartOfDay();
+        LocalDateTime rangeTo = to.atTime(LocalTime.MAX);
+        // the first page starts before the range, the range bounds still apply
+        LocalDateTime after = rangeFrom.minusDays(1);
+        List<CurrencyRateDTO> page;
+        do {
+            page = currencyRateRepository.findRangePage(code, rangeFrom, rangeTo, after, Limit.of(STORED_PAGE_SIZE));
+            for (CurrencyRateDTO rate : page) {
+                series.put(rate.getTimestamp().toLocalDate().toEpochDay(), rate.getRate().doubleValue());
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast().getTimestamp();
+            }
+        } while (page.size() == STORED_PAGE_SIZE);
+    }
+
+    private static Map<CurrencyCode, Object> coverageLocks() {
+        Map<CurrencyCode, Object> locks = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            locks.put(currency, new Object());
+        }
+        return locks;
+    }
+
+    /**
+     * Merge consecutive months into ranges, clipped at today
+     */
+    private static List<DateRange> monthSpans(List<YearMonth> months, LocalDate today) {
+        List<DateRange> spans = new ArrayList<>();
+        YearMonth spanStart = months.getFirst();
+        YearMonth previous = spanStart;
+        for (YearMonth month : months.subList(1, months.size())) {
+            if (!month.equals(previous.plusMonths(1))) {
+                spans.add(monthSpan(spanStart, previous, today));
+                spanStart = month;
+            }
+            previous = month;
+        }
+        spans.add(monthSpan(spanStart, previous, today));
+        return spans;
+    }
+
+    private static DateRange monthSpan(YearMonth first, YearMonth last, LocalDate today) {
+        LocalDate end = last.atEndOfMonth().isAfter(today) ? today : last.atEndOfMonth();
+        return new DateRange(first.atDay(1), end);
+    }
+
+    private void writeThrough(CurrencyCode currency, DateRange gap, List<CurrencyRate> fetched, LocalDate today) {
+        if (!fetched.isEmpty()) {
+            currencyRateRepository.upsertAll(fetched);
+        }
+
+        // today's fixing may still be published later, so today only counts as covered once it is there
+        boolean todayFetched = fetched.stream().anyMatch(rate -> rate.getTimestamp().toLocalDate().equals(today));
+        LocalDate coveredTo = gap.to().isBefore(today) || todayFetched ? gap.to() : today.minusDays(1);
+        if (!coveredTo.isBefore(gap.from())) {
+            // merging reads then replaces the neighbours, two merges of one currency must not interleave
+            synchronized (coverageLocks.get(currency)) {
+                markCovered(currency.name(), new DateRange(gap.from(), coveredTo));
+            }
+        }
+    }
+
+    /**
+     * Store the range merged with any overlapping or adjacent coverage rows
+     */
+    private void markCovered(String code, DateRange range) {
+        List<RateCoverage> neighbours = rateCoverageRepository.findOverlapping(
+                code, range.from().minusDays(1), range.to().plusDays(1));
+
+        LocalDate mergedFrom = range.from();
+        LocalDate mergedTo = range.to();
+        for (RateCoverage neighbour : neighbours) {
+            if (neighbour.getFromDate().isBefore(mergedFrom)) {
+                mergedFrom = neighbour.getFromDate();
+            }
+            if (neighbour.getToDate().isAfter(mergedTo)) {
+                mergedTo = neighbour.getToDate();
+            }
+        }
+
+        if (!neighbours.isEmpty()) {
+            rateCoverageRepository.deleteAll(neighbours);
+        }
+        rateCoverageRepository.save(RateCoverage.builder()
+                .currency(code)
+                .fromDate(mergedFrom)
+                .toDate(mergedTo)
+                .build());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.currencytracker.service;
+
+import com.example.currencytracker.client.RetryPolicy;
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.FixingCalendar;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeriesStore;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Keeps the configured and subscribed currencies warm: the current history segment and the latest
+ * rate are reloaded on the scheduler cron, so requests for them never wait on upstream, and the
+ * rates that changed are pushed to subscribers. Only the coherence leader refreshes, for the
+ * subscribers of every instance, and publishes the result; the others apply it, see PeerRateUpdater.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RatePrefetcher {
+
+    private final CurrencyApiProperties currencyApiProperties;
+    private final UpstreamGateway upstreamGateway;
+    private final RateHistoryStore rateHistoryStore;
+    private final LatestRateSnapshot latestRateSnapshot;
+    private final RateSeriesStore rateSeriesStore;
+    private final CrossRateService crossRateService;
+    private final RateBroadcaster rateBroadcaster;
+    private final RateCoherence rateCoherence;
+
+    @Getter
+    private volatile Instant lastFailureAt;
+
+    @Getter
+    private volatile String lastFailure;
+
+    /**
+     * Refresh at startup, or ask the leader for its last refresh when another instance leads
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (rateCoherence.isLeader()) {
+            refresh();
+        } else {
+            rateCoherence.requestSync();
+        }
+    }
+
+    /**
+     * Refresh the prefetched currencies, then the cross rates, which take their latest rates from the
+     * refresh, and publish the rates to the other instances. Does nothing while another instance leads.
+     */
+    @Scheduled(cron = "${scheduler.fetch-interval-cron}")
+    public void refresh() {
+        if (!rateCoherence.isLeader()) {
+            return;
+        }
+        refreshPrefetched();
+        crossRateService.rebuild();
+        LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+        if (snapshot.refreshedAt() != null) {
+            rateCoherence.publishRefresh(snapshot.rates(), crossRateService.latestRates(), snapshot.refreshedAt());
+        }
+    }
+
+    /**
+     * Configured currencies and the ones subscribers of any instance follow
+     */
+    private void refreshPrefetched() {
+        Set<CurrencyCode> currencies = rateBroadcaster.subscribedCurrencies();
+        currencies.addAll(rateCoherence.peerInterest());
+        currencies.addAll(currencyApiProperties.getCurrencies());
+        if (currencies.isEmpty()) {
+            return;
+        }
+
+        RetryPolicy retryPolicy = new RetryPolicy(currencyApiProperties.getRetry());
+        int attempts = retryPolicy.attempts();
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                refresh(currencies);
+                return;
+            } catch (RuntimeException e) {
+                lastFailureAt = Instant.now();
+                lastFailure = e.getMessage();
+                log.warn("Prefetch of {} failed, attempt {}/{}: {}", currencies, attempt, attempts, e.getMessage());
+            }
+
+            if (attempt < attempts && !retryPolicy.pause(attempt)) {
+                return;
+            }
+        }
+    }
+
+    private void refresh(Set<CurrencyCode> currencies) {
+        LocalDateTime now = LocalDateTime.now();
+        // the month of the newest published fixing may still be the previous one
+        Set<YearMonth> months = new TreeSet<>(List.of(
+                YearMonth.from(FixingCalendar.lastExpectedFixing(now)),
+                YearMonth.from(now)));
+
+        Map<CurrencyCode, CurrencyRateDTO> latest = new EnumMap<>(CurrencyCode.class);
+        for (HistorySegment segment : rateHistoryStore.refreshSegments(currencies, months)) {
+            if (segment.lastFixingDate() != null) {
+                long day = segment.lastFixingDate().toEpochDay();
+                latest.put(segment.currency(), CurrencyRateDTO.ofFixing(segment.currency(), day,
+                        rateSeriesStore.get(segment.currency()).get(day)));
+            }
+        }
+
+        Set<CurrencyCode> withoutFixing = EnumSet.copyOf(currencies);
+        withoutFixing.removeAll(latest.keySet());
+        if (!withoutFixing.isEmpty()) {
+            latest.putAll(upstreamGateway.fetchLatest(withoutFixing));
+        }
+
+        latestRateSnapshot.swap(latest, Instant.now());
+        rateBroadcaster.publish(latest);
+        log.debug("Prefetched {} up to {}", currencies, months);
+    }
+}
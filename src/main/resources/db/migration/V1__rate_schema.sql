@@ -0,0 +1,39 @@
+-- tables of the entities, the schema Hibernate validates against at startup
+
+create sequence currency_rates_seq start with 1 increment by 50;
+
+create table currency_rates (
+    id bigint not null,
+    currency varchar(255) not null,
+    rate numeric(19, 6) not null,
+    timestamp timestamp(6) not null,
+    primary key (id)
+);
+
+-- covering unique index: conflict target of the rate upsert, and (currency, timestamp) range reads are index-only scans
+create unique index currency_rates_currency_timestamp_ux on currency_rates (currency, timestamp) include (rate);
+
+create sequence currency_rate_coverage_seq start with 1 increment by 50;
+
+create table currency_rate_coverage (
+    id bigint not null,
+    currency varchar(255) not null,
+    from_date date not null,
+    to_date date not null,
+    primary key (id)
+);
+
+create sequence backfill_chunks_seq start with 1 increment by 50;
+
+create table backfill_chunks (
+    id bigint not null,
+    currency varchar(255) not null,
+    chunk_year integer not null,
+    status varchar(255) not null check (status in ('PENDING', 'RUNNING', 'DONE', 'FAILED')),
+    rows_stored integer not null,
+    attempts integer not null,
+    last_error varchar(255),
+    updated_at timestamp(6) with time zone,
+    primary key (id),
+    unique (currency, chunk_year)
+);
@@ -0,0 +1,4 @@
+-- provider that published each fixing, the rate upsert never replaces one provider's rate with another's;
+-- rows stored before it was recorded stay null until they are fetched again
+
+alter table currency_rates add column provider varchar(255);
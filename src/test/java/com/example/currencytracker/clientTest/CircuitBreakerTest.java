@@ -0,0 +1,82 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.exception.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final Supplier<String> FAILING = () -> {
+        throw new IllegalStateException("down");
+    };
+
+    @Test
+    void execute_opensAfterConsecutiveFailures_andFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> breaker.execute(calls::incrementAndGet, e -> true));
+
+        assertEquals(0, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(1, breaker.stats().rejected());
+        assertTrue(ex.getRetryAfter().compareTo(Duration.ofMinutes(1)) <= 0);
+    }
+
+    @Test
+    void execute_successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        breaker.execute(() -> "ok", e -> true);
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void execute_errorsNotCountedAsFailure_keepCircuitClosed() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> false));
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void execute_afterOpenDuration_trialCallDecides() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        // the trial fails and opens the circuit again, the next trial succeeds and closes it
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals("ok", breaker.execute(() -> "ok", e -> true));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void execute_errorDuringTrial_reopensInsteadOfBlockingForever() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> breaker.execute(FAILING, e -> true));
+        assertThrows(StackOverflowError.class, () -> breaker.execute(() -> {
+            throw new StackOverflowError();
+        }, e -> true));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        assertEquals("ok", breaker.execute(() -> "ok", e -> true));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.FixingDecoder;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixingDecoderTest {
+
+    private static final List<CurrencyCode> CURRENCIES = List.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.GBP,
+            CurrencyCode.CHF, CurrencyCode.JPY, CurrencyCode.CZK, CurrencyCode.SEK, CurrencyCode.NOK,
+            CurrencyCode.DKK, CurrencyCode.HUF);
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodeQuoted_invertsIntoColumns() throws IOException {
+        String json = """
+                {"amount":1.0,"base":"PLN","start_date":"2025-12-01","end_date":"2025-12-02",
+                 "rates":{"2025-12-01":{"EUR":0.25,"USD":0.3,"GBP":0.2},"2025-12-02":{"USD":0.25}}}""";
+
+        FixingTable table = FixingDecoder.decodeQuoted(body(json), List.of(CurrencyCode.USD, CurrencyCode.EUR),
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+
+        assertEquals(2, table.size());
+        assertEquals(LocalDate.parse("2025-12-01").toEpochDay(), table.day(0));
+        assertEquals(3.333333, table.rate(0, table.column(CurrencyCode.USD)));
+        assertEquals(4.0, table.rate(0, table.column(CurrencyCode.EUR)));
+        assertEquals(4.0, table.rate(1, table.column(CurrencyCode.USD)));
+        assertTrue(Double.isNaN(table.rate(1, table.column(CurrencyCode.EUR))));
+        assertEquals(-1, table.column(CurrencyCode.GBP));
+    }
+
+    @Test
+    void decodeBase_readsPlnRateOfUnsortedDays() throws IOException {
+        String json = """
+                {"rates":{"2025-12-02":{"PLN":4.6},"2025-12-01":{"PLN":4.5},"2025-12-03":{"PLN":47e-1}},"base":"USD"}""";
+
+        FixingTable table = FixingDecoder.decodeBase(body(json), CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-03"));
+
+        assertEquals(LocalDate.parse("2025-12-01").toEpochDay(), table.day(0));
+        assertEquals(4.5, table.rate(0, 0));
+        assertEquals(4.6, table.rate(1, 0));
+        assertEquals(4.7, table.rate(2, 0));
+    }
+
+    @Test
+    void decodeBase_manyDecimals_fallsBackToJackson() throws IOException {
+        String json = """
+                {"rates":{"2025-12-01":{"PLN":0.000000000000000000000001},
+                 "2025-12-02":{"PLN":4.500000000000000000000000000}}}""";
+
+        FixingTable table = FixingDecoder.decodeBase(body(json), CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+
+        assertEquals(1e-24, table.rate(0, 0));
+        assertEquals(4.5, table.rate(1, 0));
+    }
+
+    @Test
+    void noRates_returnsNull() throws IOException {
+        assertNull(FixingDecoder.decodeBase(body("{\"message\":\"not found\"}"), CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02")));
+    }
+
+    @Test
+    void malformedDate_throws() {
+        assertThrows(JsonParseException.class, () -> FixingDecoder.decodeBase(
+                body("{\"rates\":{\"2025-13-01\":{\"PLN\":4.5}}}"), CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02")));
+    }
+
+    @Test
+    void epochDays_matchLocalDate() throws IOException {
+        StringBuilder json = new StringBuilder("{\"rates\":{");
+        LocalDate from = LocalDate.parse("1999-01-01");
+        LocalDate to = LocalDate.parse("2032-12-31");
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            json.append(days++ == 0 ? "" : ",").append('"').append(day).append("\":{\"PLN\":1}");
+        }
+        json.append("}}");
+
+        FixingTable table = FixingDecoder.decodeBase(body(json.toString()), CurrencyCode.USD, from, to);
+
+        assertEquals(days, table.size());
+        for (int row = 0; row < table.size(); row++) {
+            assertEquals(from.plusDays(row).toEpochDay(), table.day(row));
+        }
+    }
+
+    /**
+     * 25 years of 10 currencies. Beyond the table columns (8 bytes per day and per currency)
+     * the streaming decoder only pays for the date keys Jackson interns, about 200 bytes a day.
+     * Databinding the same body to maps allocates several times more.
+     */
+    @Test
+    void decode_allocatesLittleBeyondTheColumns() throws IOException {
+        LocalDate from = LocalDate.parse("2000-01-03");
+        LocalDate to = LocalDate.parse("2024-12-31");
+        byte[] json = timeSeries(from, to);
+        int days = FixingDecoder.decodeQuoted(new ByteArrayInputStream(json), CURRENCIES, from, to).size();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        long streamed = Long.MAX_VALUE;
+        long mapped = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = allocatedBytes();
+            FixingDecoder.decodeQuoted(new ByteArrayInputStream(json), CURRENCIES, from, to);
+            streamed = Math.min(streamed, allocatedBytes() - before);
+
+            before = allocatedBytes();
+            objectMapper.readValue(json, Map.class);
+            mapped = Math.min(mapped, allocatedBytes() - before);
+        }
+
+        long columns = 8L * (1 + CURRENCIES.size());
+        long perDay = streamed / days;
+        System.out.printf("decoded %d days: streaming %d B/day, maps %d B/day, columns %d B/day%n",
+                days, perDay, mapped / days, columns);
+        assertTrue(perDay < columns + 256, "streaming decoder allocated " + perDay + " B/day");
+        assertTrue(mapped > 4 * streamed, "maps allocated " + mapped / days + " B/day");
+    }
+
+    private static byte[] timeSeries(LocalDate from, LocalDate to) {
+        StringBuilder json = new StringBuilder("{\"amount\":1.0,\"base\":\"PLN\",\"start_date\":\"")
+                .append(from).append("\",\"end_date\":\"").append(to).append("\",\"rates\":{");
+        boolean first = true;
+        int n = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek().getValue() > 5) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(day).append("\":{");
+            for (int c = 0; c < CURRENCIES.size(); c++) {
+                // five decimals, as upstream publishes them
+                json.append(c == 0 ? "" : ",").append('"').append(CURRENCIES.get(c)).append("\":0.")
+                        .append(10000 + n++ % 89989);
+            }
+            json.append('}');
+            first = false;
+        }
+        return json.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.NbpClient;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class NbpClientTest {
+
+    private static final String BASE = "https://api.nbp.pl/api/exchangerates";
+
+    private MockRestServiceServer server;
+    private NbpClient nbpClient;
+
+    @BeforeEach
+    void setUp() {
+        RestClient.Builder builder = RestClient.builder().baseUrl(BASE);
+        server = MockRestServiceServer.bindTo(builder).build();
+        nbpClient = new NbpClient(builder.build(), new CurrencyApiProperties());
+    }
+
+    @Test
+    void fetchLatest_midRateOfTheSeries() {
+        server.expect(requestTo(BASE + "/rates/A/USD/?format=json")).andRespond(withSuccess("""
+                {"table":"A","currency":"dolar amerykański","code":"USD",
+                 "rates":[{"no":"238/A/NBP/2025","effectiveDate":"2025-12-09","mid":3.6543}]}""",
+                MediaType.APPLICATION_JSON));
+
+        CurrencyRateDTO rate = nbpClient.fetchLatest(CurrencyCode.USD);
+
+        assertEquals("USD", rate.getCurrency());
+        assertEquals(new BigDecimal("3.6543"), rate.getRate());
+        assertEquals(LocalDate.parse("2025-12-09").atTime(16, 0), rate.getTimestamp());
+    }
+
+    @Test
+    void fetchLatest_manyCurrencies_takenFromTheLatestTable() {
+        server.expect(requestTo(BASE + "/tables/A/?format=json")).andRespond(withSuccess("""
+                [{"table":"A","no":"238/A/NBP/2025","effectiveDate":"2025-12-09","rates":[
+                  {"currency":"dolar amerykański","code":"USD","mid":3.6543},
+                  {"currency":"euro","code":"EUR","mid":4.2312},
+                  {"currency":"SDR (MFW)","code":"XDR","mid":4.9876}]}]""", MediaType.APPLICATION_JSON));
+
+        Map<CurrencyCode, CurrencyRateDTO> latest = nbpClient.fetchLatest(EnumSet.of(CurrencyCode.EUR, CurrencyCode.USD));
+
+        assertEquals(new BigDecimal("4.2312"), latest.get(CurrencyCode.EUR).getRate());
+        assertEquals(new BigDecimal("3.6543"), latest.get(CurrencyCode.USD).getRate());
+        assertEquals(2, latest.size());
+    }
+
+    @Test
+    void fetchRange_manyCurrencies_askedIn93DayPiecesAndEmptyPieceSkipped() {
+        server.expect(requestTo(BASE + "/tables/A/2025-01-01/2025-04-03/?format=json")).andRespond(withSuccess("""
+                [{"table":"A","no":"1/A/NBP/2025","effectiveDate":"2025-01-02","rates":[
+                   {"code":"USD","mid":4.1219},{"code":"EUR","mid":4.2718}]},
+                 {"rates":[{"code":"EUR","mid":4.2651}],"effectiveDate":"2025-01-03","table":"A"}]""",
+                MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE + "/tables/A/2025-04-04/2025-04-05/?format=json"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND).body("404 NotFound - Brak danych"));
+
+        FixingTable table = nbpClient.fetchRange(List.of(CurrencyCode.USD, CurrencyCode.EUR),
+                LocalDate.parse("2025-01-01"), LocalDate.parse("2025-04-05"));
+
+        server.verify();
+        assertEquals(2, table.size());
+        assertEquals(LocalDate.parse("2025-01-02").toEpochDay(), table.day(0));
+        assertEquals(4.1219, table.rate(0, table.column(CurrencyCode.USD)));
+        assertEquals(4.2651, table.rate(1, table.column(CurrencyCode.EUR)));
+        assertTrue(Double.isNaN(table.rate(1, table.column(CurrencyCode.USD))));
+    }
+
+    @Test
+    void fetchRange_oneCurrency_seriesDecoded() {
+        server.expect(requestTo(BASE + "/rates/A/CHF/2025-12-08/2025-12-09/?format=json")).andRespond(withSuccess("""
+                {"table":"A","currency":"frank szwajcarski","code":"CHF","rates":[
+                  {"no":"237/A/NBP/2025","effectiveDate":"2025-12-08","mid":4.5213},
+                  {"no":"238/A/NBP/2025","effectiveDate":"2025-12-09","mid":4.5301}]}""",
+                MediaType.APPLICATION_JSON));
+
+        FixingTable table = nbpClient.fetchRange(CurrencyCode.CHF, LocalDate.parse("2025-12-08"), LocalDate.parse("2025-12-09"));
+
+        assertEquals(2, table.size());
+        assertEquals(4.5301, table.rate(1, 0));
+    }
+
+    @Test
+    void fetchRange_beforeTheFirstTable_refusedWithoutACall() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> nbpClient.fetchRange(CurrencyCode.USD, LocalDate.parse("2001-12-01"), LocalDate.parse("2002-02-01")));
+
+        assertTrue(e.getMessage().contains("before 2002-01-02"));
+        server.verify();
+    }
+
+    @Test
+    void fetchLatest_serverError_failsWithCause() {
+        server.expect(requestTo(BASE + "/rates/A/USD/?format=json")).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> nbpClient.fetchLatest(CurrencyCode.USD));
+
+        assertTrue(e.getMessage().contains("Failed to fetch latest rate"));
+        assertNotNull(e.getCause());
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.LatencyWindow;
+import com.example.currencytracker.client.ProviderRouter;
+import com.example.currencytracker.client.RateProvider;
+import com.example.currencytracker.client.UpstreamMetrics;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProviderRouterTest {
+
+    private RateProvider frankfurter;
+    private RateProvider nbp;
+    private CurrencyApiProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ProviderRouter router;
+
+    @BeforeEach
+    void setUp() {
+        frankfurter = provider("frankfurter");
+        nbp = provider("nbp");
+        properties = new CurrencyApiProperties();
+        properties.getHedge().setMinSamples(3);
+        properties.getHedge().setInitialDelay(Duration.ofMillis(50));
+        properties.getHedge().setMinDelay(Duration.ofMillis(1));
+        meterRegistry = new SimpleMeterRegistry();
+        router = new ProviderRouter(List.of(nbp, frankfurter), properties, new UpstreamMetrics(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+    }
+
+    @Test
+    void fetchLatest_firstAnswersInTime_secondNeverAsked() {
+        when(frankfurter.fetchLatest(CurrencyCode.USD)).thenReturn(rate("4.0"));
+
+        assertEquals(new BigDecimal("4.0"), router.fetchLatest(CurrencyCode.USD).getRate());
+
+        verify(nbp, never()).fetchLatest(any(CurrencyCode.class));
+        assertEquals(0, stats("nbp").hedged());
+        assertEquals(1, stats("frankfurter").wins());
+    }
+
+    @Test
+    void fetchLatest_firstTooSlow_secondAskedAndFirstCancelled() throws Exception {
+        when(frankfurter.fetchLatest(CurrencyCode.USD)).thenAnswer(invocation -> {
+            sleep(5_000);
+            return rate("4.0");
+        });
+        when(nbp.fetchLatest(CurrencyCode.USD)).thenReturn(rate("4.1"));
+
+        long started = System.nanoTime();
+        CurrencyRateDTO rate = router.fetchLatest(CurrencyCode.USD);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(new BigDecimal("4.1"), rate.getRate());
+        assertTrue(elapsedMillis >= 50 && elapsedMillis < 1_000, "answered after " + elapsedMillis + " ms");
+        assertEquals(1, stats("nbp").hedged());
+        assertEquals(1, stats("nbp").wins());
+        awaitCancelled("frankfurter");
+        assertEquals(1.0, meterRegistry.get(UpstreamMetrics.HEDGES).tag("provider", "nbp").counter().count());
+    }
+
+    @Test
+    void fetchLatest_firstFails_secondAskedAtOnce() {
+        properties.getHedge().setInitialDelay(Duration.ofSeconds(5));
+        router = new ProviderRouter(List.of(nbp, frankfurter), properties, new UpstreamMetrics(meterRegistry));
+        when(frankfurter.fetchLatest(CurrencyCode.USD))
+                .thenThrow(new RuntimeException("Failed to fetch latest rate for USD", new ResourceAccessException("refused")));
+        when(nbp.fetchLatest(CurrencyCode.USD)).thenReturn(rate("4.1"));
+
+        long started = System.nanoTime();
+        assertEquals(new BigDecimal("4.1"), router.fetchLatest(CurrencyCode.USD).getRate());
+
+        assertTrue(System.nanoTime() - started < 1_000_000_000L);
+        assertEquals(1, stats("frankfurter").failures());
+        // the outage counts as a latency of the read timeout
+        assertEquals(5_000.0, stats("frankfurter").p95Millis());
+    }
+
+    @Test
+    void fetchLatest_allFail_firstFailureThrownWithTheOthersSuppressed() {
+        when(frankfurter.fetchLatest(CurrencyCode.USD)).thenThrow(new RuntimeException("frankfurter down"));
+        when(nbp.fetchLatest(CurrencyCode.USD)).thenThrow(new RuntimeException("nbp down"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> router.fetchLatest(CurrencyCode.USD));
+
+        assertEquals("frankfurter down", e.getMessage());
+        assertEquals("nbp down", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void fetchLatest_manyCurrencies_completeAnswerPreferred() {
+        EnumSet<CurrencyCode> currencies = EnumSet.of(CurrencyCode.USD, CurrencyCode.ISK);
+        when(frankfurter.fetchLatest(anyCollection())).thenReturn(Map.of(CurrencyCode.USD, rate("4.0")));
+        when(nbp.fetchLatest(anyCollection())).thenAnswer(invocation -> {
+            sleep(100);
+            return Map.of(CurrencyCode.USD, rate("4.1"), CurrencyCode.ISK, rate("0.03"));
+        });
+
+        assertEquals(2, router.fetchLatest(currencies).size());
+
+        // when no provider has them all, the first answer is used
+        when(nbp.fetchLatest(anyCollection())).thenReturn(Map.of(CurrencyCode.EUR, rate("4.2")));
+        assertEquals(Map.of(CurrencyCode.USD, rate("4.0")), router.fetchLatest(currencies));
+    }
+
+    @Test
+    void fetchRange_manyCurrencies_answerWithAnEmptyColumnNotUsedWhileAnotherHasThemAll() {
+        EnumSet<CurrencyCode> currencies = EnumSet.of(CurrencyCode.USD, CurrencyCode.ISK);
+        LocalDate day = LocalDate.of(2025, 12, 1);
+        when(nbp.fetchRange(anyCollection(), any(), any())).thenReturn(table(currencies, day, CurrencyCode.USD));
+        when(frankfurter.fetchRange(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            sleep(100);
+            return table(currencies, day, CurrencyCode.USD, CurrencyCode.ISK);
+        });
+
+        FixingTable fetched = router.fetchRange(currencies, day, day);
+
+        assertTrue(fetched.hasFixings(CurrencyCode.ISK));
+        assertEquals("frankfurter", fetched.provider());
+    }
+
+    @Test
+    void fetchRange_noPublicationDay_complete() {
+        EnumSet<CurrencyCode> currencies = EnumSet.of(CurrencyCode.USD, CurrencyCode.ISK);
+        LocalDate holiday = LocalDate.of(2025, 12, 25);
+        when(nbp.fetchRange(anyCollection(), any(), any())).thenReturn(new FixingTable(currencies, 0));
+
+        assertEquals("nbp", router.fetchRange(currencies, holiday, holiday).provider());
+        verify(frankfurter, never()).fetchRange(anyCollection(), any(), any());
+    }
+
+    @Test
+    void route_followsObservedLatency() {
+        when(frankfurter.fetchLatest(CurrencyCode.USD)).thenAnswer(invocation -> {
+            sleep(2_000);
+            return rate("4.0");
+        });
+        when(nbp.fetchLatest(CurrencyCode.USD)).thenReturn(rate("4.1"));
+        assertEquals(List.of("frankfurter", "nbp"), router.order());
+
+        for (int i = 0; i < 3; i++) {
+            router.fetchLatest(CurrencyCode.USD);
+        }
+
+        // nbp has its samples, well below the initial delay frankfurter is still ranked at
+        assertEquals(List.of("nbp", "frankfurter"), router.order());
+        router.fetchLatest(CurrencyCode.USD);
+        verify(frankfurter, times(3)).fetchLatest(CurrencyCode.USD);
+        assertEquals(List.of("nbp", "frankfurter"), router.stats().stream().map(ProviderRouter.ProviderStats::provider).toList());
+    }
+
+    @Test
+    void probe_asksEveryProviderAtOnce() throws Exception {
+        properties.getHedge().setProbeEvery(2);
+        router = new ProviderRouter(List.of(nbp, frankfurter), properties, new UpstreamMetrics(meterRegistry));
+        when(frankfurter.fetchLatest(CurrencyCode.USD)).thenAnswer(invocation -> {
+            sleep(20);
+            return rate("4.0");
+        });
+        when(nbp.fetchLatest(CurrencyCode.USD)).thenReturn(rate("4.1"));
+
+        router.fetchLatest(CurrencyCode.USD);
+        verify(nbp, never()).fetchLatest(any(CurrencyCode.class));
+
+        // nbp never hedged to, as frankfurter answers within the initial delay, gets raced on the probe
+        assertEquals(new BigDecimal("4.1"), router.fetchLatest(CurrencyCode.USD).getRate());
+        assertEquals(1, stats("nbp").samples());
+        awaitCancelled("frankfurter");
+    }
+
+    @Test
+    void unknownProvider_rejectedAtStartup() {
+        properties.setProviders(List.of("frankfurter", "ecb"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ProviderRouter(List.of(nbp, frankfurter), properties, new UpstreamMetrics(meterRegistry)));
+        assertTrue(e.getMessage().contains("ecb"));
+    }
+
+    @Test
+    void latencyWindow_percentileOverTheLastSamples() {
+        LatencyWindow window = new LatencyWindow(4);
+        assertEquals(-1, window.percentile(95));
+
+        for (long nanos : new long[]{900, 1, 2, 3, 4}) {
+            window.record(nanos);
+        }
+
+        assertEquals(4, window.count());
+        assertEquals(4, window.percentile(95));
+        assertEquals(2, window.percentile(50));
+    }
+
+    private ProviderRouter.ProviderStats stats(String provider) {
+        return router.stats().stream().filter(stats -> stats.provider().equals(provider)).findFirst().orElseThrow();
+    }
+
+    private void awaitCancelled(String provider) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (stats(provider).cancelled() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, stats(provider).cancelled());
+    }
+
+    /**
+     * Interrupted like a real upstream call, which fails with a RuntimeException
+     */
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Request was interrupted", e);
+        }
+    }
+
+    private static RateProvider provider(String name) {
+        RateProvider provider = mock(RateProvider.class);
+        when(provider.name()).thenReturn(name);
+        return provider;
+    }
+
+    /**
+     * One day of fixings, only the given currencies have a rate
+     */
+    private static FixingTable table(EnumSet<CurrencyCode> currencies, LocalDate day, CurrencyCode... published) {
+        FixingTable table = new FixingTable(currencies, 1);
+        int row = table.addRow(day.toEpochDay());
+        for (CurrencyCode currency : published) {
+            table.set(row, table.column(currency), 4.0);
+        }
+        return table;
+    }
+
+    private static CurrencyRateDTO rate(String rate) {
+        return CurrencyRateDTO.builder().currency("USD").rate(new BigDecimal(rate)).build();
+    }
+}
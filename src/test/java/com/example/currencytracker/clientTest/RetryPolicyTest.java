@@ -0,0 +1,37 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.RetryPolicy;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void delayMillis_doublesWithJitterUpToMaxDelay() {
+        CurrencyApiProperties.Retry retry = new CurrencyApiProperties.Retry();
+        retry.setAttempts(10);
+        retry.setDelay(1000);
+        retry.setMaxDelay(5000);
+        RetryPolicy retryPolicy = new RetryPolicy(retry);
+
+        for (int i = 0; i < 100; i++) {
+            long first = retryPolicy.delayMillis(1);
+            long second = retryPolicy.delayMillis(2);
+            long late = retryPolicy.delayMillis(9);
+
+            assertTrue(first >= 500 && first <= 1000, "first " + first);
+            assertTrue(second >= 1000 && second <= 2000, "second " + second);
+            assertTrue(late >= 2500 && late <= 5000, "late " + late);
+        }
+    }
+
+    @Test
+    void attempts_atLeastOne() {
+        CurrencyApiProperties.Retry retry = new CurrencyApiProperties.Retry();
+        retry.setAttempts(0);
+
+        assertEquals(1, new RetryPolicy(retry).attempts());
+    }
+}
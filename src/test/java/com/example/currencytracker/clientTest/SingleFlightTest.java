@@ -0,0 +1,107 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_concurrentCallersShareOneCall() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("USD", () -> {
+                    invocations.incrementAndGet();
+                    await(release);
+                    return 42;
+                })));
+            }
+
+            while (singleFlight.stats().calls() < callers) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        SingleFlight.Stats stats = singleFlight.stats();
+        assertEquals(1, invocations.get());
+        assertEquals(1, stats.executions());
+        assertEquals(callers - 1, stats.coalesced());
+        assertEquals(0, stats.inFlight());
+    }
+
+    @Test
+    void execute_failureIsSharedAndNotCached() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> singleFlight.execute("USD", () -> { throw new RuntimeException("API down"); }));
+        assertEquals("API down", ex.getMessage());
+
+        assertEquals(7, singleFlight.execute("USD", () -> 7));
+        assertEquals(1, singleFlight.stats().failures());
+        assertEquals(2, singleFlight.stats().executions());
+    }
+
+    @Test
+    void execute_leaderError_releasesWaiters() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("USD", () -> {
+                await(release);
+                throw new AssertionError("mock blew up");
+            }));
+            while (singleFlight.stats().inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            Future<Integer> waiter = executor.submit(() -> singleFlight.execute("USD", () -> 1));
+            while (singleFlight.stats().coalesced() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            ExecutionException leaderEx = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException waiterEx = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, leaderEx.getCause());
+            assertInstanceOf(AssertionError.class, waiterEx.getCause());
+        }
+
+        assertEquals(1, singleFlight.stats().failures());
+        assertEquals(0, singleFlight.stats().inFlight());
+    }
+
+    @Test
+    void execute_differentKeysRunIndependently() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        assertEquals("USD", singleFlight.execute("USD", () -> "USD"));
+        assertEquals("EUR", singleFlight.execute("EUR", () -> "EUR"));
+        assertEquals(0, singleFlight.stats().coalesced());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
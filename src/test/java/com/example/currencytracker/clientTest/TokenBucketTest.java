@@ -0,0 +1,52 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void reserve_burstTakenAtOnceThenOnePerRefill() {
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(100_000_000, bucket.reserve());
+        // the next caller waits behind the one already waiting
+        assertEquals(200_000_000, bucket.reserve());
+    }
+
+    @Test
+    void reserve_refilledUpToBurstOnly() {
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        bucket.reserve();
+        bucket.reserve();
+
+        now.addAndGet(10_000_000_000L);
+
+        assertEquals(2.0, bucket.available(), 1e-9);
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertTrue(bucket.reserve() > 0);
+    }
+
+    @Test
+    void reserve_noRate_neverWaits() {
+        TokenBucket bucket = new TokenBucket(0, 1, now::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+    }
+
+    @Test
+    void constructor_burstBelowOne_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.client.FrankfurterClient;
+import com.example.currencytracker.client.ProviderRouter;
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.client.UpstreamMetrics;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.FixingTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UpstreamGatewayTest {
+
+    private FrankfurterClient frankfurterClient;
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamGateway upstreamGateway;
+
+    @BeforeEach
+    void setUp() {
+        frankfurterClient = mock(FrankfurterClient.class);
+        when(frankfurterClient.name()).thenReturn(FrankfurterClient.NAME);
+        meterRegistry = new SimpleMeterRegistry();
+        CurrencyApiProperties properties = new CurrencyApiProperties();
+        properties.setProviders(List.of(FrankfurterClient.NAME));
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(meterRegistry);
+        upstreamGateway = new UpstreamGateway(new ProviderRouter(List.of(frankfurterClient), properties, upstreamMetrics),
+                upstreamMetrics, new CircuitBreaker("upstream", 5, Duration.ofMinutes(1)), properties);
+    }
+
+    @Test
+    void fetchLatest_timedByEndpointAndCurrency() {
+        when(frankfurterClient.fetchLatest(CurrencyCode.USD)).thenReturn(CurrencyRateDTO.builder().currency("USD").build());
+
+        upstreamGateway.fetchLatest(CurrencyCode.USD);
+        upstreamGateway.fetchLatest(CurrencyCode.USD);
+
+        assertEquals(2, meterRegistry.get(UpstreamMetrics.CALLS)
+                .tags("endpoint", UpstreamMetrics.LATEST, "currency", "USD", "outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    void fetchRange_manyCurrencies_taggedAsMulti() {
+        LocalDate day = LocalDate.parse("2025-12-01");
+        when(frankfurterClient.fetchRange(anyCollection(), eq(day), eq(day)))
+                .thenReturn(new FixingTable(EnumSet.of(CurrencyCode.USD, CurrencyCode.EUR), 0));
+
+        upstreamGateway.fetchRange(EnumSet.of(CurrencyCode.USD, CurrencyCode.EUR), day, day);
+
+        assertEquals(1, meterRegistry.get(UpstreamMetrics.CALLS)
+                .tags("endpoint", UpstreamMetrics.HISTORY, "currency", "multi")
+                .timer().count());
+    }
+
+    @Test
+    void fetchLatest_failure_countedByException() {
+        when(frankfurterClient.fetchLatest(CurrencyCode.EUR))
+                .thenThrow(new RuntimeException("Failed to fetch latest rate for EUR", new ResourceAccessException("timeout")));
+
+        assertThrows(RuntimeException.class, () -> upstreamGateway.fetchLatest(CurrencyCode.EUR));
+
+        assertEquals(1.0, meterRegistry.get(UpstreamMetrics.ERRORS)
+                .tags("endpoint", UpstreamMetrics.LATEST, "currency", "EUR", "exception", "ResourceAccessException")
+                .counter().count());
+        assertEquals(1, meterRegistry.get(UpstreamMetrics.CALLS).tag("outcome", "error").timer().count());
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.currencytracker.clientTest;
+
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.client.TokenBucket;
+import com.example.currencytracker.client.UpstreamMetrics;
+import com.example.currencytracker.client.UpstreamScheduler;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.exception.UpstreamUnavailableException;
+import com.example.currencytracker.series.FixingTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamSchedulerTest {
+
+    private static final LocalDate DEC_1 = LocalDate.parse("2025-12-01");
+
+    private final List<Call> calls = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+    private TokenBucket quota;
+    private RuntimeException failure;
+    private CountDownLatch callsBlocked;
+    private UpstreamScheduler scheduler;
+
+    private record Call(Set<CurrencyCode> currencies, LocalDate from, LocalDate to) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("upstream", 1, Duration.ofMinutes(1));
+        scheduler = scheduler(366);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void fetch_overlappingAndAdjoiningRanges_mergedIntoOneCall() {
+        primeBucket();
+
+        // Friday the 19th and Monday the 22nd adjoin, only a weekend lies between
+        List<CompletableFuture<FixingTable>> answers = List.of(
+                submit(CurrencyCode.USD, "2025-12-01", "2025-12-10", UpstreamPriority.INTERACTIVE),
+                submit(CurrencyCode.EUR, "2025-12-08", "2025-12-19", UpstreamPriority.BACKGROUND),
+                submit(CurrencyCode.GBP, "2025-12-22", "2025-12-31", UpstreamPriority.INTERACTIVE));
+        List<FixingTable> tables = answers.stream().map(CompletableFuture::join).toList();
+
+        assertEquals(2, calls.size());
+        assertEquals(new Call(EnumSet.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.GBP),
+                DEC_1, LocalDate.parse("2025-12-31")), calls.get(1));
+        assertSame(tables.get(0), tables.get(1));
+        assertSame(tables.get(0), tables.get(2));
+
+        UpstreamScheduler.Stats stats = scheduler.stats();
+        assertEquals(4, stats.requests());
+        assertEquals(2, stats.calls());
+        assertEquals(2.0, stats.mergeRatio(), 1e-9);
+        assertEquals(3, meterRegistry.get(UpstreamMetrics.SCHEDULER_WAIT).tag("priority", "interactive").timer().count());
+        assertEquals(1, meterRegistry.get(UpstreamMetrics.SCHEDULER_WAIT).tag("priority", "background").timer().count());
+    }
+
+    @Test
+    void fetch_rangesApartOrTooLongTogether_sentSeparately() {
+        scheduler.close();
+        scheduler = scheduler(40);
+        primeBucket();
+
+        List<CompletableFuture<FixingTable>> answers = List.of(
+                submit(CurrencyCode.USD, "2025-06-02", "2025-06-06", UpstreamPriority.INTERACTIVE),
+                submit(CurrencyCode.USD, "2025-12-01", "2025-12-20", UpstreamPriority.INTERACTIVE),
+                submit(CurrencyCode.USD, "2025-12-21", "2026-01-31", UpstreamPriority.INTERACTIVE));
+        answers.forEach(CompletableFuture::join);
+
+        assertEquals(4, calls.size());
+        assertEquals(1.0, scheduler.stats().mergeRatio(), 1e-9);
+    }
+
+    @Test
+    void fetch_interactiveQueuedAfterBackground_sentFirst() throws Exception {
+        primeBucket();
+
+        CompletableFuture<FixingTable> background = submit(CurrencyCode.USD, "2025-01-02", "2025-01-31",
+                UpstreamPriority.BACKGROUND);
+        awaitQueued(UpstreamPriority.BACKGROUND);
+        CompletableFuture<FixingTable> interactive = submit(CurrencyCode.EUR, "2025-06-02", "2025-06-30",
+                UpstreamPriority.INTERACTIVE);
+        interactive.join();
+        background.join();
+
+        assertEquals(3, calls.size());
+        assertEquals(EnumSet.of(CurrencyCode.EUR), calls.get(1).currencies());
+        assertEquals(EnumSet.of(CurrencyCode.USD), calls.get(2).currencies());
+    }
+
+    @Test
+    void fetch_callFails_everyMergedRequestFails() {
+        primeBucket();
+        failure = new ResourceAccessException("Read timed out");
+
+        List<CompletableFuture<FixingTable>> answers = List.of(
+                submit(CurrencyCode.USD, "2025-12-01", "2025-12-10", UpstreamPriority.INTERACTIVE),
+                submit(CurrencyCode.EUR, "2025-12-05", "2025-12-12", UpstreamPriority.BACKGROUND));
+
+        for (CompletableFuture<FixingTable> answer : answers) {
+            CompletionException thrown = assertThrows(CompletionException.class, answer::join);
+            assertSame(failure, thrown.getCause());
+        }
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void fetch_circuitOpen_failsWithoutTakingTokens() {
+        failure = new ResourceAccessException("Read timed out");
+        assertThrows(ResourceAccessException.class, () -> scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1, DEC_1,
+                UpstreamPriority.INTERACTIVE));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        double tokens = quota.available();
+
+        assertThrows(UpstreamUnavailableException.class, () -> scheduler.fetch(EnumSet.of(CurrencyCode.EUR), DEC_1,
+                DEC_1, UpstreamPriority.INTERACTIVE));
+
+        assertEquals(1, calls.size());
+        assertTrue(quota.available() >= tokens, "no token taken while the circuit is open");
+    }
+
+    @Test
+    void fetch_dispatcherFailure_laterRequestsStillServed() {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        scheduler.close();
+        quota = new TokenBucket(0, 1) {
+            @Override
+            public long reserve() {
+                if (failOnce.getAndSet(false)) {
+                    throw new IllegalStateException("clock went backwards");
+                }
+                return super.reserve();
+            }
+        };
+        scheduler = scheduler(366, quota, Duration.ofSeconds(5));
+
+        assertNotNull(scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1, DEC_1, UpstreamPriority.INTERACTIVE));
+        assertNotNull(scheduler.fetch(EnumSet.of(CurrencyCode.EUR), DEC_1, DEC_1, UpstreamPriority.INTERACTIVE));
+        assertFalse(failOnce.get());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void fetch_noAnswerWithinTimeout_fails() {
+        scheduler.close();
+        scheduler = scheduler(366, new TokenBucket(0, 1), Duration.ofMillis(100));
+        callsBlocked = new CountDownLatch(1);
+
+        try {
+            assertThrows(UpstreamUnavailableException.class, () -> scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1,
+                    DEC_1, UpstreamPriority.INTERACTIVE));
+        } finally {
+            callsBlocked.countDown();
+        }
+    }
+
+    @Test
+    void fetch_queuedLongerThanTheTimeout_stillAnswered() {
+        scheduler.close();
+        // a token every 400 ms, the request waits for it longer than the 100 ms the call may take
+        scheduler = scheduler(366, new TokenBucket(1 / 0.4, 1), Duration.ofSeconds(5), Duration.ofMillis(100));
+        primeBucket();
+
+        assertNotNull(scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1, DEC_1, UpstreamPriority.BACKGROUND));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void fetch_notSentWithinQueueWait_failsAndLeavesTheQueue() {
+        scheduler.close();
+        scheduler = scheduler(366, new TokenBucket(1 / 60.0, 1), Duration.ofMillis(100), Duration.ofSeconds(5));
+        primeBucket();
+
+        assertThrows(UpstreamUnavailableException.class, () -> scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1,
+                DEC_1, UpstreamPriority.INTERACTIVE));
+        assertEquals(0, scheduler.queued(UpstreamPriority.INTERACTIVE));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void close_failsRequestsStillQueued() throws InterruptedException {
+        scheduler.close();
+        scheduler = scheduler(366, new TokenBucket(1 / 60.0, 1), Duration.ofSeconds(5));
+        primeBucket();
+
+        CompletableFuture<FixingTable> queued = submit(CurrencyCode.USD, "2025-12-01", "2025-12-10",
+                UpstreamPriority.INTERACTIVE);
+        awaitQueued(UpstreamPriority.INTERACTIVE);
+        scheduler.close();
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+    }
+
+    @Test
+    void fetch_afterClose_rejected() {
+        scheduler.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.fetch(EnumSet.of(CurrencyCode.USD), DEC_1, DEC_1, UpstreamPriority.INTERACTIVE));
+    }
+
+    /**
+     * A bucket of one token refilled every 300 ms, so requests sent together queue behind the first call
+     */
+    private UpstreamScheduler scheduler(int maxMergedDays) {
+        quota = new TokenBucket(1 / 0.3, 1);
+        return scheduler(maxMergedDays, quota, Duration.ofSeconds(5));
+    }
+
+    private UpstreamScheduler scheduler(int maxMergedDays, TokenBucket quota, Duration timeout) {
+        return scheduler(maxMergedDays, quota, Duration.ofSeconds(5), timeout);
+    }
+
+    private UpstreamScheduler scheduler(int maxMergedDays, TokenBucket quota, Duration queueWait, Duration timeout) {
+        return new UpstreamScheduler((currencies, from, to) -> circuitBreaker.execute(() -> {
+            calls.add(new Call(currencies, from, to));
+            if (callsBlocked != null) {
+                awaitQuietly(callsBlocked);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return new FixingTable(currencies, 0);
+        }, e -> e instanceof ResourceAccessException), quota, circuitBreaker, maxMergedDays,
+                Map.of(UpstreamPriority.INTERACTIVE, queueWait, UpstreamPriority.BACKGROUND, queueWait), timeout,
+                new UpstreamMetrics(meterRegistry));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Use up the only token, the next call waits for the refill
+     */
+    private void primeBucket() {
+        scheduler.fetch(EnumSet.of(CurrencyCode.CHF), LocalDate.parse("2020-01-02"), LocalDate.parse("2020-01-02"),
+                UpstreamPriority.INTERACTIVE);
+    }
+
+    private CompletableFuture<FixingTable> submit(CurrencyCode currency, String from, String to, UpstreamPriority priority) {
+        return CompletableFuture.supplyAsync(() -> scheduler.fetch(EnumSet.of(currency), LocalDate.parse(from),
+                LocalDate.parse(to), priority), callers);
+    }
+
+    private void awaitQueued(UpstreamPriority priority) throws InterruptedException {
+        for (int i = 0; i < 200 && scheduler.queued(priority) == 0; i++) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.currencytracker.coherenceTest;
+
+import com.example.currencytracker.coherence.LocalCoherenceTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCoherenceTransportTest {
+
+    @Test
+    void publish_reachesEveryInstanceOnTheBus() {
+        LocalCoherenceTransport.Bus bus = new LocalCoherenceTransport.Bus();
+        LocalCoherenceTransport first = new LocalCoherenceTransport(bus);
+        LocalCoherenceTransport second = new LocalCoherenceTransport(bus);
+        LocalCoherenceTransport elsewhere = new LocalCoherenceTransport(new LocalCoherenceTransport.Bus());
+        List<String> firstHeard = new ArrayList<>();
+        List<String> secondHeard = new ArrayList<>();
+        List<String> elsewhereHeard = new ArrayList<>();
+        first.subscribe(firstHeard::add);
+        second.subscribe(secondHeard::add);
+        elsewhere.subscribe(elsewhereHeard::add);
+
+        first.publish("refresh");
+
+        assertEquals(List.of("refresh"), firstHeard);
+        assertEquals(List.of("refresh"), secondHeard);
+        assertTrue(elsewhereHeard.isEmpty());
+    }
+
+    @Test
+    void tryLead_firstInstanceLeadsUntilClosed() {
+        LocalCoherenceTransport.Bus bus = new LocalCoherenceTransport.Bus();
+        LocalCoherenceTransport first = new LocalCoherenceTransport(bus);
+        LocalCoherenceTransport second = new LocalCoherenceTransport(bus);
+
+        assertTrue(first.tryLead());
+        assertFalse(second.tryLead());
+        assertTrue(first.tryLead());
+
+        first.close();
+
+        assertFalse(first.tryLead());
+        assertTrue(second.tryLead());
+        assertThrows(IllegalStateException.class, () -> first.publish("refresh"));
+    }
+}
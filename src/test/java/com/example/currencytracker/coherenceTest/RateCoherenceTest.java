@@ -0,0 +1,120 @@
+package com.example.currencytracker.coherenceTest;
+
+import com.example.currencytracker.coherence.CoherenceMessage;
+import com.example.currencytracker.coherence.CoherenceTransport;
+import com.example.currencytracker.coherence.LocalCoherenceTransport;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CoherenceProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RateCoherenceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private LocalCoherenceTransport.Bus bus;
+    private RateSeriesStore leaderSeries;
+    private RateCoherence leader;
+    private RateCoherence peer;
+    private List<CoherenceMessage> leaderHeard;
+    private List<CoherenceMessage> peerHeard;
+
+    @BeforeEach
+    void setUp() {
+        bus = new LocalCoherenceTransport.Bus();
+        leaderSeries = new RateSeriesStore();
+        leader = instance(new LocalCoherenceTransport(bus), leaderSeries);
+        peer = instance(new LocalCoherenceTransport(bus), new RateSeriesStore());
+        leaderHeard = new ArrayList<>();
+        peerHeard = new ArrayList<>();
+        leader.addListener(leaderHeard::add);
+        peer.addListener(peerHeard::add);
+    }
+
+    private RateCoherence instance(CoherenceTransport transport, RateSeriesStore rateSeriesStore) {
+        RateCoherence rateCoherence = new RateCoherence(transport, new CoherenceProperties(), objectMapper, rateSeriesStore);
+        rateCoherence.subscribe();
+        return rateCoherence;
+    }
+
+    private static CurrencyRateDTO dto(CurrencyCode currency, LocalDate date, double rate) {
+        return new CurrencyRateDTO(currency.name(), BigDecimal.valueOf(rate), date.atTime(16, 0));
+    }
+
+    @Test
+    void publishRefresh_peerReceivesRatesAndMonthFixings() {
+        LocalDate day = LocalDate.of(2025, 9, 26);
+        leaderSeries.get(CurrencyCode.USD).put(day.minusDays(1).toEpochDay(), 3.63);
+        leaderSeries.get(CurrencyCode.USD).put(day.toEpochDay(), 3.64);
+        Map<CurrencyCode, CurrencyRateDTO> rates = Map.of(
+                CurrencyCode.USD, dto(CurrencyCode.USD, day, 3.64),
+                CurrencyCode.EUR, dto(CurrencyCode.EUR, day, 4.27));
+        Instant refreshedAt = Instant.parse("2025-09-26T16:15:00Z");
+
+        assertTrue(leader.isLeader());
+        assertFalse(peer.isLeader());
+        CurrencyRateDTO jpy = dto(CurrencyCode.JPY, day, 0.0243);
+        leader.publishRefresh(rates, Map.of(CurrencyCode.USD, rates.get(CurrencyCode.USD), CurrencyCode.JPY, jpy),
+                refreshedAt);
+
+        assertTrue(leaderHeard.isEmpty());
+        assertEquals(1, peerHeard.size());
+        CoherenceMessage message = peerHeard.getFirst();
+        assertEquals(CoherenceMessage.Type.REFRESH, message.type());
+        assertEquals(refreshedAt, message.at());
+        assertEquals(rates, message.rates());
+        // only USD has its newest fixing in the leader's series
+        assertEquals(Map.of(CurrencyCode.USD, 2), message.monthFixings());
+        // cross rate inputs beyond the prefetched rates
+        assertEquals(Map.of(CurrencyCode.JPY, jpy), message.crossRates());
+        assertEquals(1, leader.stats().published());
+        assertEquals(1, peer.stats().received());
+    }
+
+    @Test
+    void announceInterest_keptByTheOthersUntilWithdrawn() {
+        peer.announceInterest(EnumSet.of(CurrencyCode.CHF, CurrencyCode.JPY));
+
+        assertEquals(EnumSet.of(CurrencyCode.CHF, CurrencyCode.JPY), leader.peerInterest());
+        assertTrue(peer.peerInterest().isEmpty());
+        assertTrue(leaderHeard.isEmpty());
+
+        peer.announceInterest(EnumSet.noneOf(CurrencyCode.class));
+
+        assertTrue(leader.peerInterest().isEmpty());
+    }
+
+    @Test
+    void shareLatest_emptyRatesNotPublished() {
+        peer.shareLatest(Map.of(), Instant.now());
+        peer.requestSync();
+
+        assertEquals(1, leaderHeard.size());
+        assertEquals(CoherenceMessage.Type.SYNC, leaderHeard.getFirst().type());
+    }
+
+    @Test
+    void publish_transportFailure_countedNotThrown() {
+        CoherenceTransport transport = mock(CoherenceTransport.class);
+        doThrow(new IllegalStateException("connection lost")).when(transport).publish(anyString());
+        RateCoherence rateCoherence = instance(transport, new RateSeriesStore());
+
+        rateCoherence.shareLatest(Map.of(CurrencyCode.USD, dto(CurrencyCode.USD, LocalDate.now(), 3.6)), Instant.now());
+
+        assertEquals(0, rateCoherence.stats().published());
+        assertEquals(1, rateCoherence.stats().failed());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.currencytracker.configTest;
+
+import com.example.currencytracker.config.HistorySegmentExpiry;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.HistorySegment;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistorySegmentExpiryTest {
+
+    private static HistorySegmentExpiry expiryAt(String dateTime) {
+        ZoneId zone = ZoneId.systemDefault();
+        return new HistorySegmentExpiry(Clock.fixed(LocalDateTime.parse(dateTime).atZone(zone).toInstant(), zone),
+                Set.of(CurrencyCode.EUR));
+    }
+
+    private static HistorySegment segment(String month, String lastFixingDate) {
+        return new HistorySegment(CurrencyCode.USD, YearMonth.parse(month), 1, LocalDate.parse(lastFixingDate));
+    }
+
+    private static long ttl(HistorySegmentExpiry expiry, HistorySegment segment) {
+        return expiry.expireAfterCreate(segment.key(), segment, 0L);
+    }
+
+    @Test
+    void pastMonth_neverExpires() {
+        HistorySegmentExpiry expiry = expiryAt("2025-12-10T10:00:00");
+
+        assertEquals(Long.MAX_VALUE, ttl(expiry, segment("2025-11", "2025-11-28")));
+    }
+
+    @Test
+    void currentMonth_expiresAtNextFixing() {
+        // Wednesday morning, Tuesday's fixing already in the segment
+        HistorySegmentExpiry expiry = expiryAt("2025-12-10T10:00:00");
+
+        assertEquals(Duration.ofHours(6).toNanos(), ttl(expiry, segment("2025-12", "2025-12-09")));
+    }
+
+    @Test
+    void currentMonth_onFriday_waitsUntilMonday() {
+        HistorySegmentExpiry expiry = expiryAt("2025-12-12T17:00:00");
+
+        assertEquals(Duration.ofHours(71).toNanos(), ttl(expiry, segment("2025-12", "2025-12-12")));
+    }
+
+    @Test
+    void currentMonth_missingPublishedFixing_retriesSoon() {
+        HistorySegmentExpiry expiry = expiryAt("2025-12-10T16:05:00");
+
+        assertEquals(Duration.ofMinutes(10).toNanos(), ttl(expiry, segment("2025-12", "2025-12-09")));
+    }
+
+    @Test
+    void lastFixingOfMonthPublished_neverExpires() {
+        // Friday 2025-10-31 after the fixing, nothing left to publish in October
+        HistorySegmentExpiry expiry = expiryAt("2025-10-31T16:30:00");
+
+        assertEquals(Long.MAX_VALUE, ttl(expiry, segment("2025-10", "2025-10-31")));
+    }
+
+    @Test
+    void currentMonth_prefetchedCurrency_neverExpires() {
+        HistorySegmentExpiry expiry = expiryAt("2025-12-10T16:05:00");
+        HistorySegment segment = new HistorySegment(CurrencyCode.EUR, YearMonth.parse("2025-12"), 0, null);
+
+        assertEquals(Long.MAX_VALUE, ttl(expiry, segment));
+    }
+}
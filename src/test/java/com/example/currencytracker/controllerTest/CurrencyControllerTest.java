@@ -1,15 +1,34 @@
 package com.example.currencytracker.controllerTest;
 
+import com.example.currencytracker.config.HttpCacheProperties;
 import com.example.currencytracker.controller.CurrencyController;
+import com.example.currencytracker.dto.ConversionDTO;
+import com.example.currencytracker.dto.ConversionRequestDTO;
 import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.dto.IndicatorsDTO;
 import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.indicator.IndicatorEngine;
+import com.example.currencytracker.model.RateVersion;
+import com.example.currencytracker.service.CrossRateService;
 import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.HistoryExporter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -24,12 +43,33 @@ class CurrencyControllerTest {
     @Mock
     private CurrencyService currencyService;
 
+    @Mock
+    private IndicatorEngine indicatorEngine;
+
+    @Mock
+    private HistoryExporter historyExporter;
+
+    @Mock
+    private CrossRateService crossRateService;
+
+    @Spy
+    private HttpCacheProperties httpCacheProperties = new HttpCacheProperties();
+
     @InjectMocks
     private CurrencyController currencyController;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(currencyService.historyVersion(any(), any(), any())).thenReturn(RateVersion.of(1, null));
+    }
+
+    private static ServletWebRequest request(String... ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rates");
+        for (String eTag : ifNoneMatch) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
     }
 
     @Test
@@ -38,7 +78,7 @@ class CurrencyControllerTest {
                 LocalDateTime.parse("2025-01-01T00:00:00"));
         when(currencyService.fetchDailyRate(CurrencyCode.USD)).thenReturn(dto);
 
-        CurrencyRateDTO result = currencyController.getLatest(CurrencyCode.USD);
+        CurrencyRateDTO result = (CurrencyRateDTO) currencyController.getLatest(List.of(CurrencyCode.USD), request()).getBody();
 
         assertEquals("USD", result.getCurrency());
         assertEquals(BigDecimal.valueOf(4.0), result.getRate());
@@ -51,7 +91,7 @@ class CurrencyControllerTest {
         when(currencyService.fetchDailyRate(any())).thenThrow(new RuntimeException("Boom"));
 
         RuntimeException ex = assertThrows(RuntimeException.class,
-                () -> currencyController.getLatest(CurrencyCode.USD));
+                () -> currencyController.getLatest(List.of(CurrencyCode.USD), request()));
 
         assertEquals("Boom", ex.getMessage());
     }
@@ -68,7 +108,8 @@ class CurrencyControllerTest {
 
         when(currencyService.fetchHistory(CurrencyCode.EUR, from, to)).thenReturn(history);
 
-        List<CurrencyRateDTO> result = currencyController.getHistory(CurrencyCode.EUR, "2025-01-01", "2025-01-02");
+        List<CurrencyRateDTO> result = currencyController.getHistory(List.of(CurrencyCode.EUR), "2025-01-01", "2025-01-02",
+                request()).getBody();
 
         assertEquals(2, result.size());
         assertEquals(BigDecimal.valueOf(4.5), result.get(0).getRate());
@@ -81,7 +122,7 @@ class CurrencyControllerTest {
         when(currencyService.fetchHistory(any(), any(), any())).thenThrow(new RuntimeException("Boom"));
 
         RuntimeException ex = assertThrows(RuntimeException.class,
-                () -> currencyController.getHistory(CurrencyCode.EUR, "2025-01-01", "2025-01-02"));
+                () -> currencyController.getHistory(List.of(CurrencyCode.EUR), "2025-01-01", "2025-01-02", request()));
 
         assertEquals("Boom", ex.getMessage());
     }
@@ -89,7 +130,101 @@ class CurrencyControllerTest {
     @Test
     void getHistory_invalidDateFormat_throwsException() {
         assertThrows(Exception.class,
-                () -> currencyController.getHistory(CurrencyCode.EUR, "01-01-2025", "2025-01-02"));
+                () -> currencyController.getHistory(List.of(CurrencyCode.EUR), "01-01-2025", "2025-01-02", request()));
+    }
+
+    @Test
+    void getLatest_manyCurrencies_returnsListInRequestOrder() {
+        CurrencyRateDTO usd = new CurrencyRateDTO("USD", BigDecimal.valueOf(4.0), LocalDateTime.parse("2025-01-01T16:00:00"));
+        CurrencyRateDTO eur = new CurrencyRateDTO("EUR", BigDecimal.valueOf(4.3), LocalDateTime.parse("2025-01-01T16:00:00"));
+        when(currencyService.fetchDailyRates(List.of(CurrencyCode.EUR, CurrencyCode.USD)))
+                .thenReturn(Map.of(CurrencyCode.USD, usd, CurrencyCode.EUR, eur));
+
+        Object result = currencyController.getLatest(List.of(CurrencyCode.EUR, CurrencyCode.USD, CurrencyCode.EUR),
+                request()).getBody();
+
+        assertEquals(List.of(eur, usd), result);
+        verify(currencyService, never()).fetchDailyRate(any());
+    }
+
+    @Test
+    void getHistory_manyCurrencies_returnsRowsGroupedByCurrency() {
+        CurrencyRateDTO usd = new CurrencyRateDTO("USD", BigDecimal.valueOf(4.0), LocalDateTime.parse("2025-01-01T16:00:00"));
+        CurrencyRateDTO eur = new CurrencyRateDTO("EUR", BigDecimal.valueOf(4.3), LocalDateTime.parse("2025-01-01T16:00:00"));
+        LocalDate day = LocalDate.parse("2025-01-01");
+        when(currencyService.fetchHistories(List.of(CurrencyCode.USD, CurrencyCode.EUR), day, day))
+                .thenReturn(Map.of(CurrencyCode.USD, List.of(usd), CurrencyCode.EUR, List.of(eur)));
+
+        List<CurrencyRateDTO> result = currencyController.getHistory(List.of(CurrencyCode.USD, CurrencyCode.EUR),
+                "2025-01-01", "2025-01-01", request()).getBody();
+
+        assertEquals(List.of(usd, eur), result);
+    }
+
+    @Test
+    void getLatest_matchingIfNoneMatch_returnsNotModified() {
+        CurrencyRateDTO usd = new CurrencyRateDTO("USD", BigDecimal.valueOf(4.0), LocalDateTime.parse("2025-01-01T16:00:00"));
+        when(currencyService.fetchDailyRate(CurrencyCode.USD)).thenReturn(usd);
+
+        ResponseEntity<Object> first = currencyController.getLatest(List.of(CurrencyCode.USD), request());
+        // the same rate served stale keeps its version
+        when(currencyService.fetchDailyRate(CurrencyCode.USD)).thenReturn(usd.toBuilder().ageSeconds(90L).build());
+        ResponseEntity<Object> second = currencyController.getLatest(List.of(CurrencyCode.USD),
+                request(first.getHeaders().getETag()));
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("max-age=60, public", first.getHeaders().getCacheControl());
+        assertTrue(first.getHeaders().getLastModified() > 0);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+    }
+
+    @Test
+    void getHistory_notModified_skipsBuildingRates() {
+        RateVersion version = RateVersion.of(42, LocalDateTime.parse("2025-01-02T16:00:00"));
+        when(currencyService.historyVersion(List.of(CurrencyCode.EUR), LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-02")))
+                .thenReturn(version);
+
+        ResponseEntity<List<CurrencyRateDTO>> response = currencyController.getHistory(List.of(CurrencyCode.EUR),
+                "2025-01-01", "2025-01-02", request(version.eTag()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(currencyService, never()).fetchHistory(any(), any(), any());
+    }
+
+    @Test
+    void getHistory_pastRange_immutable_openRange_shortMaxAge() {
+        when(currencyService.fetchHistory(any(), any(), any())).thenReturn(List.of());
+        String today = LocalDate.now().toString();
+
+        ResponseEntity<List<CurrencyRateDTO>> past = currencyController.getHistory(List.of(CurrencyCode.EUR),
+                "2025-01-01", "2025-01-02", request());
+        ResponseEntity<List<CurrencyRateDTO>> open = currencyController.getHistory(List.of(CurrencyCode.EUR),
+                "2025-01-01", today, request());
+
+        assertEquals("max-age=31536000, public, immutable", past.getHeaders().getCacheControl());
+        assertEquals("max-age=60, public", open.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getHistoryColumns_encodedETag_notModifiedSkipsEncoding() {
+        RateVersion version = RateVersion.of(42, LocalDateTime.parse("2025-01-02T16:00:00"));
+        when(currencyService.historyVersion(List.of(CurrencyCode.EUR), LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-02")))
+                .thenReturn(version);
+        when(historyExporter.exportColumns(any(), any(), any())).thenReturn(new byte[]{1, 2, 3});
+
+        ResponseEntity<byte[]> first = currencyController.getHistoryColumns(List.of(CurrencyCode.EUR),
+                "2025-01-01", "2025-01-02", request(version.eTag()));
+        ResponseEntity<byte[]> second = currencyController.getHistoryColumns(List.of(CurrencyCode.EUR),
+                "2025-01-01", "2025-01-02", request(first.getHeaders().getETag()));
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertArrayEquals(new byte[]{1, 2, 3}, first.getBody());
+        assertNotEquals(version.eTag(), first.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT), first.getHeaders().getVary());
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        verify(historyExporter, times(1)).exportColumns(List.of(CurrencyCode.EUR),
+                LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-02"));
     }
 
     @Test
@@ -123,6 +258,17 @@ class CurrencyControllerTest {
         assertEquals(CurrencyCode.USD, result.get("currency"));
     }
 
+    @Test
+    void getVariance_returnsStddev() {
+        when(currencyService.getVariance(30, CurrencyCode.USD)).thenReturn(0.04);
+
+        Map<String, Object> result = currencyController.getVariance(CurrencyCode.USD, 30);
+
+        assertEquals(CurrencyCode.USD, result.get("currency"));
+        assertEquals(0.04, result.get("variance"));
+        assertEquals(0.2, (double) result.get("stddev"), 1e-12);
+    }
+
     @Test
     void getTrend_success() {
         when(currencyService.getTrend(30, CurrencyCode.USD)).thenReturn("UP");
@@ -155,4 +301,54 @@ class CurrencyControllerTest {
 
         verify(currencyService, times(1)).getTrend(5, CurrencyCode.USD);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getIndicators_withoutWindow_usesConfiguredWindows() {
+        List<IndicatorsDTO> indicators = List.of(IndicatorsDTO.builder().currency("USD").window(5).build());
+        when(indicatorEngine.getIndicators(CurrencyCode.USD)).thenReturn(indicators);
+
+        assertEquals(indicators, currencyController.getIndicators(CurrencyCode.USD, null));
+        verify(indicatorEngine, never()).getIndicators(any(), anyList());
+    }
+
+    @Test
+    void getIndicators_withWindows() {
+        List<IndicatorsDTO> indicators = List.of(IndicatorsDTO.builder().currency("USD").window(20).build());
+        when(indicatorEngine.getIndicators(CurrencyCode.USD, List.of(20))).thenReturn(indicators);
+
+        assertEquals(indicators, currencyController.getIndicators(CurrencyCode.USD, List.of(20)));
+    }
+
+    @Test
+    void streamHistory_writesThroughExporter() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = currencyController.streamHistory(
+                List.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.USD), "2025-01-01", "2025-12-31");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        verify(historyExporter).exportHistory(List.of(CurrencyCode.USD, CurrencyCode.EUR),
+                LocalDate.parse("2025-01-01"), LocalDate.parse("2025-12-31"), out);
+    }
+
+    @Test
+    void streamStoredHistory_readsDatabase() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = currencyController.streamStoredHistory(
+                List.of(CurrencyCode.USD), "2025-01-01", "2025-12-31");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        verify(historyExporter).exportStored(List.of(CurrencyCode.USD),
+                LocalDate.parse("2025-01-01"), LocalDate.parse("2025-12-31"), out);
+        verify(historyExporter, never()).exportHistory(any(), any(), any(), any());
+    }
+
+    @Test
+    void convert_returnsConvertedAmounts() {
+        ConversionRequestDTO request = ConversionRequestDTO.builder().from("USD").to("JPY").amounts(new long[]{100_00}).build();
+        ConversionDTO conversion = ConversionDTO.builder().from("USD").to("JPY").amounts(new long[]{14923}).build();
+        when(crossRateService.convert(request)).thenReturn(conversion);
+
+        assertSame(conversion, currencyController.convert(request));
+    }
+}
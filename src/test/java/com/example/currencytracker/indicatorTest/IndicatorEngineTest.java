@@ -0,0 +1,127 @@
+package com.example.currencytracker.indicatorTest;
+
+import com.example.currencytracker.config.IndicatorProperties;
+import com.example.currencytracker.dto.IndicatorsDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.indicator.IndicatorEngine;
+import com.example.currencytracker.series.RateSeries;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IndicatorEngineTest {
+
+    private static final long FIRST = LocalDate.now().minusDays(70).toEpochDay();
+
+    private RateSeriesStore rateSeriesStore;
+    private RateHistoryStore rateHistoryStore;
+    private IndicatorEngine indicatorEngine;
+    private double[] rates;
+
+    @BeforeEach
+    void setUp() {
+        rateSeriesStore = new RateSeriesStore();
+        rateHistoryStore = mock(RateHistoryStore.class);
+        indicatorEngine = new IndicatorEngine(rateSeriesStore, rateHistoryStore, new IndicatorProperties());
+        rateSeriesStore.addListener(indicatorEngine);
+
+        Random random = new Random(42);
+        rates = new double[60];
+        double rate = 4.0;
+        RateSeries series = rateSeriesStore.get(CurrencyCode.USD);
+        for (int i = 0; i < rates.length; i++) {
+            rate *= 1 + random.nextGaussian() * 0.005;
+            rates[i] = rate;
+            series.put(FIRST + i, rate);
+        }
+    }
+
+    @Test
+    void getIndicators_matchesRecomputation() {
+        IndicatorsDTO indicators = indicatorEngine.getIndicators(CurrencyCode.USD, List.of(20)).getFirst();
+
+        assertExpected(rates, 20, indicators);
+        assertEquals(LocalDate.ofEpochDay(FIRST + 59), indicators.getAsOf());
+    }
+
+    @Test
+    void appendedFixing_updatesWithoutReplay() {
+        indicatorEngine.getIndicators(CurrencyCode.USD, List.of(5, 20));
+        rateSeriesStore.get(CurrencyCode.USD).put(FIRST + 61, 3.5);
+
+        List<IndicatorsDTO> indicators = indicatorEngine.getIndicators(CurrencyCode.USD, List.of(5, 20));
+
+        double[] extended = Arrays.copyOf(rates, rates.length + 1);
+        extended[rates.length] = 3.5;
+        assertExpected(extended, 5, indicators.get(0));
+        assertExpected(extended, 20, indicators.get(1));
+        assertEquals(3.5, indicators.get(0).getMin());
+        // the long replay range is loaded once per window, later queries only check the newest segment
+        verify(rateHistoryStore, times(4)).ensureLoaded(eq(CurrencyCode.USD), any(), any());
+    }
+
+    @Test
+    void rewrittenFixing_replaysSeries() {
+        indicatorEngine.getIndicators(CurrencyCode.USD, List.of(20));
+        rateSeriesStore.get(CurrencyCode.USD).put(FIRST + 50, 5.0);
+        rates[50] = 5.0;
+
+        IndicatorsDTO indicators = indicatorEngine.getIndicators(CurrencyCode.USD, List.of(20)).getFirst();
+
+        assertExpected(rates, 20, indicators);
+        assertEquals(5.0, indicators.getMax());
+    }
+
+    @Test
+    void emptySeries_returnsNoValues() {
+        IndicatorsDTO indicators = indicatorEngine.getIndicators(CurrencyCode.EUR, List.of(5)).getFirst();
+
+        assertEquals(0, indicators.getFixings());
+        assertNull(indicators.getSma());
+        assertNull(indicators.getVolatility());
+    }
+
+    @Test
+    void windowOutOfRange_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> indicatorEngine.getIndicators(CurrencyCode.USD, List.of(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> indicatorEngine.getIndicators(CurrencyCode.USD, List.of(261)));
+    }
+
+    private static void assertExpected(double[] rates, int window, IndicatorsDTO indicators) {
+        double[] last = Arrays.copyOfRange(rates, rates.length - window, rates.length);
+
+        double ema = Arrays.stream(rates, 0, window).average().orElseThrow();
+        for (int i = window; i < rates.length; i++) {
+            ema += 2.0 / (window + 1) * (rates[i] - ema);
+        }
+
+        double[] changes = new double[window];
+        for (int i = 0; i < window; i++) {
+            int index = rates.length - window + i;
+            changes[i] = Math.log(rates[index] / rates[index - 1]);
+        }
+        double mean = Arrays.stream(changes).average().orElseThrow();
+        double variance = Arrays.stream(changes).map(c -> (c - mean) * (c - mean)).sum() / (window - 1);
+
+        assertEquals(window, indicators.getWindow());
+        assertEquals(window, indicators.getFixings());
+        assertEquals(Arrays.stream(last).average().orElseThrow(), indicators.getSma(), 1e-12);
+        // short windows replay only the recent history, the EMA has converged well within this
+        assertEquals(ema, indicators.getEma(), 1e-6);
+        assertEquals(Math.sqrt(variance), indicators.getVolatility(), 1e-12);
+        assertEquals(Arrays.stream(last).min().orElseThrow(), indicators.getMin());
+        assertEquals(Arrays.stream(last).max().orElseThrow(), indicators.getMax());
+    }
+}
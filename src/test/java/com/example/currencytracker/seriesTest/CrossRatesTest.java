@@ -0,0 +1,122 @@
+package com.example.currencytracker.seriesTest;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.CrossRates;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossRatesTest {
+
+    private static final int USD = CurrencyCode.USD.ordinal();
+    private static final int JPY = CurrencyCode.JPY.ordinal();
+    private static final int EUR = CurrencyCode.EUR.ordinal();
+
+    private static CrossRates matrix() {
+        return CrossRates.of(
+                Map.of(CurrencyCode.USD, new BigDecimal("3.6512"),
+                        CurrencyCode.JPY, new BigDecimal("0.024467"),
+                        CurrencyCode.EUR, new BigDecimal("4.2498")),
+                Map.of(CurrencyCode.USD, LocalDate.parse("2025-12-02"),
+                        CurrencyCode.JPY, LocalDate.parse("2025-12-01"),
+                        CurrencyCode.EUR, LocalDate.parse("2025-12-02")));
+    }
+
+    /**
+     * The documented rule computed with BigDecimal
+     */
+    private static long reference(long amount, long scaledRate, int exponent) {
+        return new BigDecimal(BigInteger.valueOf(amount).multiply(BigInteger.valueOf(scaledRate)))
+                .movePointLeft(exponent)
+                .setScale(0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    @Test
+    void of_crossRateIsTheQuotientRoundedToTwelveDecimals() {
+        CrossRates rates = matrix();
+
+        assertEquals(new BigDecimal("3.6512").divide(new BigDecimal("0.024467"), 12, RoundingMode.HALF_EVEN)
+                .stripTrailingZeros(), rates.rate(USD, JPY));
+        assertEquals(new BigDecimal("3.6512"), rates.rate(USD, CrossRates.PLN));
+        assertEquals(BigDecimal.ONE, rates.rate(USD, USD));
+        assertEquals(BigDecimal.ONE, rates.rate(CrossRates.PLN, CrossRates.PLN));
+        assertEquals(LocalDate.parse("2025-12-01"), rates.fixingDate(USD, JPY));
+        assertEquals(LocalDate.parse("2025-12-02"), rates.fixingDate(CrossRates.PLN, USD));
+        assertFalse(rates.has(USD, CurrencyCode.GBP.ordinal()));
+    }
+
+    @Test
+    void slot_knowsPlnAndRejectsOtherCodes() {
+        assertEquals(CrossRates.PLN, CrossRates.slot("pln"));
+        assertEquals(USD, CrossRates.slot("USD"));
+        assertEquals(-1, CrossRates.slot("XYZ"));
+        assertEquals(-1, CrossRates.slot(null));
+    }
+
+    @Test
+    void convert_centsToYen() {
+        CrossRates rates = matrix();
+
+        long[] yen = rates.convert(USD, JPY, new long[]{100_00, 1, -250_00, 0}, 2, 0);
+
+        // 100 USD at 149.229...
+        assertEquals(14923, yen[0]);
+        assertEquals(1, yen[1]);
+        assertEquals(-37307, yen[2]);
+        assertEquals(0, yen[3]);
+    }
+
+    @Test
+    void convert_sameCurrency_onlyRescales() {
+        assertArrayEquals(new long[]{12_340, 50}, matrix().convert(EUR, EUR, new long[]{1234, 5}, 2, 3));
+        assertArrayEquals(new long[]{12, 2, 0}, matrix().convert(EUR, EUR, new long[]{1234, 150, 50}, 2, 0));
+    }
+
+    @Test
+    void multiply_roundsHalfEven() {
+        assertEquals(2, CrossRates.multiply(25, 1, 1));
+        assertEquals(4, CrossRates.multiply(35, 1, 1));
+        assertEquals(-2, CrossRates.multiply(-25, 1, 1));
+        assertEquals(3, CrossRates.multiply(251, 1, 2));
+        // exactly half only after dropping nine more zero digits
+        assertEquals(2, CrossRates.multiply(25_000_000_000L, 1, 10));
+        assertEquals(3, CrossRates.multiply(25_000_000_001L, 1, 10));
+    }
+
+    @Test
+    void multiply_matchesBigDecimalOnWideProducts() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long amount = random.nextLong() >> random.nextInt(63);
+            long rate = (random.nextLong() >>> 1) >> random.nextInt(63);
+            int exponent = random.nextInt(22);
+            long expected;
+            try {
+                expected = reference(amount, rate, exponent);
+            } catch (ArithmeticException outOfRange) {
+                assertThrows(ArithmeticException.class, () -> CrossRates.multiply(amount, rate, exponent));
+                continue;
+            }
+            assertEquals(expected, CrossRates.multiply(amount, rate, exponent),
+                    amount + " * " + rate + " / 10^" + exponent);
+        }
+    }
+
+    @Test
+    void convert_resultBeyondLong_rejected() {
+        assertThrows(ArithmeticException.class,
+                () -> matrix().convert(USD, JPY, new long[]{Long.MAX_VALUE / 10}, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> matrix().convert(USD, JPY, new long[]{1}, 10, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> matrix().convert(USD, CurrencyCode.GBP.ordinal(), new long[]{1}, 2, 2));
+    }
+}
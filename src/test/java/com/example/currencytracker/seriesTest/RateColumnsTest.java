@@ -0,0 +1,80 @@
+package com.example.currencytracker.seriesTest;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateColumns;
+import com.example.currencytracker.series.RateSeries;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateColumnsTest {
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    @Test
+    void roundTrip_givesBackTheSameDaysAndRates() {
+        RateSeries usd = new RateSeries(CurrencyCode.USD);
+        usd.put(day("2025-12-01"), 3.6512);
+        usd.put(day("2025-12-02"), 3.6498);
+        usd.put(day("2025-12-05"), 3.7);
+        usd.put(day("2025-12-31"), 3.5);
+        RateSeries eur = new RateSeries(CurrencyCode.EUR);
+        eur.put(day("2025-12-01"), 4.21);
+
+        byte[] payload = RateColumns.encode(List.of(
+                RateColumns.Block.of(usd, day("2025-12-02"), day("2025-12-30")),
+                RateColumns.Block.of(eur, day("2025-12-01"), day("2025-12-31")),
+                RateColumns.Block.of(new RateSeries(CurrencyCode.GBP), day("2025-12-01"), day("2025-12-31"))));
+        List<RateColumns.Block> blocks = RateColumns.decode(payload);
+
+        assertEquals(List.of("USD", "EUR", "GBP"), blocks.stream().map(RateColumns.Block::currency).toList());
+        assertArrayEquals(new long[]{day("2025-12-02"), day("2025-12-05")}, blocks.get(0).days());
+        assertArrayEquals(new double[]{3.6498, 3.7}, blocks.get(0).rates());
+        assertArrayEquals(new double[]{4.21}, blocks.get(1).rates());
+        assertEquals(0, blocks.get(2).size());
+    }
+
+    @Test
+    void encode_takesAFewBytesPerFixing() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        LocalDate from = LocalDate.parse("2024-01-01");
+        for (int i = 0; i < 366; i++) {
+            series.put(from.plusDays(i).toEpochDay(), (39_000 + i % 50) / 10_000.0);
+        }
+
+        byte[] payload = RateColumns.encode(List.of(
+                RateColumns.Block.of(series, from.toEpochDay(), from.plusDays(365).toEpochDay())));
+
+        // one byte per day gap and at most three per rate delta at 4 decimals
+        assertTrue(payload.length < 366 * 4, "payload of " + payload.length + " bytes");
+        assertArrayEquals(RateColumns.Block.of(series, from.toEpochDay(), from.plusDays(365).toEpochDay()).rates(),
+                RateColumns.decode(payload).getFirst().rates());
+    }
+
+    @Test
+    void encode_roundsRatesBeyondTheMaximumScale() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        series.put(day("2025-12-01"), 1 / 3.0);
+
+        double decoded = RateColumns.decode(RateColumns.encode(List.of(
+                RateColumns.Block.of(series, day("2025-12-01"), day("2025-12-01"))))).getFirst().rates()[0];
+
+        assertEquals(0.333333333, decoded);
+    }
+
+    @Test
+    void decode_rejectsOtherPayloads() {
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                () -> RateColumns.decode("[{\"currency\":\"USD\"}]".getBytes()));
+
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals("Not a rate columns payload", e.getCause().getMessage());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.currencytracker.seriesTest;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSeriesTest {
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    @Test
+    void put_skipsDaysWithoutFixing() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        series.put(day("2025-12-05"), 3.6);
+        series.put(day("2025-12-08"), 3.7);
+
+        List<Long> days = new ArrayList<>();
+        series.forEach(day("2025-12-01"), day("2025-12-31"), (d, rate) -> days.add(d));
+
+        assertEquals(List.of(day("2025-12-05"), day("2025-12-08")), days);
+        assertEquals(2, series.count(day("2025-12-01"), day("2025-12-31")));
+        assertTrue(Double.isNaN(series.get(day("2025-12-06"))));
+        assertEquals(day("2025-12-08"), series.lastDay());
+    }
+
+    @Test
+    void aggregates_coverOnlyTheRange() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        series.put(day("2025-12-01"), 3.0);
+        series.put(day("2025-12-02"), 4.0);
+        series.put(day("2025-12-03"), 6.0);
+
+        assertEquals(5.0, series.average(day("2025-12-02"), day("2025-12-03")));
+        assertEquals(4.0, series.first(day("2025-12-02"), day("2025-12-31")));
+        assertEquals(4.0, series.last(day("2025-11-01"), day("2025-12-02")));
+        assertEquals(day("2025-12-02"), series.lastDay(day("2025-11-01"), day("2025-12-02")));
+    }
+
+    @Test
+    void emptyRange_returnsNaN() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+
+        assertTrue(Double.isNaN(series.average(day("2025-12-01"), day("2025-12-31"))));
+        assertTrue(Double.isNaN(series.first(day("2025-12-01"), day("2025-12-31"))));
+        assertEquals(Long.MIN_VALUE, series.lastDay(day("2025-12-01"), day("2025-12-31")));
+    }
+
+    @Test
+    void put_beforeFirstDay_throws() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+
+        assertThrows(IllegalArgumentException.class, () -> series.put(day("1998-12-31"), 1.0));
+    }
+
+    @Test
+    void variance_matchesTwoPassResult() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        double[] rates = {4.2101, 4.2153, 4.1987, 4.2245, 4.2310, 4.2199};
+        for (int i = 0; i < rates.length; i++) {
+            series.put(day("2025-12-01") + i, rates[i]);
+        }
+
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate / rates.length;
+        }
+        double expected = 0;
+        for (double rate : rates) {
+            expected += (rate - mean) * (rate - mean) / (rates.length - 1);
+        }
+
+        assertEquals(expected, series.variance(day("2025-12-01"), day("2025-12-31")), 1e-12);
+        assertTrue(Double.isNaN(series.variance(day("2025-12-01"), day("2025-12-01"))));
+    }
+
+    @Test
+    void olderFixing_rebuildsIndex() {
+        RateSeries series = new RateSeries(CurrencyCode.USD);
+        series.put(day("2025-12-10"), 4.0);
+        series.put(day("2025-12-11"), 6.0);
+        assertEquals(5.0, series.average(day("2025-12-01"), day("2025-12-31")));
+
+        series.put(day("2025-12-01"), 2.0);
+        series.put(day("2025-12-12"), 8.0);
+
+        assertEquals(4, series.count(day("2025-12-01"), day("2025-12-31")));
+        assertEquals(5.0, series.average(day("2025-12-01"), day("2025-12-31")));
+        assertEquals(2.0, series.first(day("2025-11-01"), day("2025-12-31")));
+        assertEquals(8.0, series.last(day("2025-11-01"), day("2026-01-31")));
+        assertEquals(day("2025-12-10"), series.firstDay(day("2025-12-02"), day("2025-12-31")));
+    }
+}
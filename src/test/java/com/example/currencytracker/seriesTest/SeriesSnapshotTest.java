@@ -0,0 +1,84 @@
+package com.example.currencytracker.seriesTest;
+
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.series.SeriesLog;
+import com.example.currencytracker.series.SeriesSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    @Test
+    void snapshot_restoresFixingsAndLoadedMonths() throws IOException {
+        RateSeriesStore store = new RateSeriesStore();
+        store.get(CurrencyCode.USD).put(day("2025-11-28"), 3.66);
+        store.get(CurrencyCode.USD).put(day("2025-12-01"), 3.6);
+        store.get(CurrencyCode.EUR).put(day("2025-12-01"), 4.21);
+        Path file = directory.resolve("rates.snapshot");
+        Instant takenAt = Instant.parse("2025-12-02T10:00:00Z");
+
+        SeriesSnapshot.write(file, 7, takenAt, store, Map.of(
+                CurrencyCode.USD, List.of(YearMonth.of(2025, 12), YearMonth.of(2025, 11)),
+                CurrencyCode.GBP, List.of(YearMonth.of(2025, 12))));
+        RateSeriesStore restoredStore = new RateSeriesStore();
+        SeriesSnapshot.Restored restored = SeriesSnapshot.restore(file, restoredStore);
+
+        assertEquals(7, restored.id());
+        assertEquals(takenAt, restored.createdAt());
+        assertEquals(3, restored.fixings());
+        assertEquals(List.of(YearMonth.of(2025, 11), YearMonth.of(2025, 12)), restored.loadedMonths().get(CurrencyCode.USD));
+        assertEquals(List.of(YearMonth.of(2025, 12)), restored.loadedMonths().get(CurrencyCode.GBP));
+        assertEquals(List.of(), restored.loadedMonths().get(CurrencyCode.EUR));
+        assertEquals(3.66, restoredStore.get(CurrencyCode.USD).get(day("2025-11-28")));
+        assertEquals(4.21, restoredStore.get(CurrencyCode.EUR).get(day("2025-12-01")));
+        assertEquals(2, restoredStore.get(CurrencyCode.USD).count(day("2025-11-01"), day("2025-12-31")));
+    }
+
+    @Test
+    void restore_rejectsOtherFiles() throws IOException {
+        Path file = Files.writeString(directory.resolve("rates.snapshot"), "not a snapshot, just some text");
+
+        IOException e = assertThrows(IOException.class, () -> SeriesSnapshot.restore(file, new RateSeriesStore()));
+
+        assertTrue(e.getMessage().startsWith("Not a rate series snapshot"));
+    }
+
+    @Test
+    void log_replaysCompleteRecordsAndSkipsATornTail() throws IOException {
+        Path file = directory.resolve("rates-1.log");
+        try (SeriesLog log = SeriesLog.create(file, 42)) {
+            log.append(CurrencyCode.USD, day("2025-12-01"), 3.6);
+            log.append(CurrencyCode.USD, day("2025-12-02"), 3.65);
+        }
+        // a crash in the middle of a record
+        Files.write(file, new byte[]{'U', 'S', 'D', 0, 0}, StandardOpenOption.APPEND);
+
+        RateSeriesStore store = new RateSeriesStore();
+        int replayed = SeriesLog.replay(file, store);
+
+        assertEquals(42, SeriesLog.snapshotId(file));
+        assertEquals(2, replayed);
+        assertEquals(3.65, store.get(CurrencyCode.USD).get(day("2025-12-02")));
+        assertEquals(day("2025-12-02"), store.get(CurrencyCode.USD).lastDay());
+    }
+}
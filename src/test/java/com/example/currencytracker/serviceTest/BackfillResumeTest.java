@@ -0,0 +1,106 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.BackfillProperties;
+import com.example.currencytracker.entity.BackfillChunk;
+import com.example.currencytracker.enums.BackfillStatus;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.repository.BackfillChunkRepository;
+import com.example.currencytracker.series.FixingTable;
+import com.example.currencytracker.service.BackfillService;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Backfill resuming on a Postgres schema that outlives the application, as it does in production
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the backfill writes from its own threads
+@Testcontainers(disabledWithoutDocker = true)
+class BackfillResumeTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BackfillChunkRepository backfillChunkRepository;
+
+    @Autowired
+    private Flyway flyway;
+
+    private static BackfillChunk chunk(int year, BackfillStatus status) {
+        return BackfillChunk.builder()
+                .currency(CurrencyCode.USD.name())
+                .year(year)
+                .status(status)
+                .attempts(1)
+                .updatedAt(Instant.now())
+                .build();
+    }
+
+    @Test
+    void restart_keepsSchema_andResumesRunningChunks() throws InterruptedException {
+        // what a backfill killed mid-run leaves behind
+        backfillChunkRepository.saveAll(List.of(
+                chunk(2022, BackfillStatus.DONE),
+                chunk(2023, BackfillStatus.RUNNING),
+                chunk(2024, BackfillStatus.PENDING)));
+
+        // the next start migrates the schema it finds and keeps its rows
+        assertEquals(0, flyway.migrate().migrationsExecuted);
+        assertEquals(3, backfillChunkRepository.count());
+
+        UpstreamGateway upstreamGateway = mock(UpstreamGateway.class);
+        when(upstreamGateway.fetchRange(any(CurrencyCode.class), any(), any(), any()))
+                .thenReturn(new FixingTable(EnumSet.of(CurrencyCode.USD), 0));
+        RateHistoryStore rateHistoryStore = mock(RateHistoryStore.class);
+        when(rateHistoryStore.storeFetched(any(), any(), any())).thenReturn(250);
+        RateCoherence rateCoherence = mock(RateCoherence.class);
+        when(rateCoherence.isLeader()).thenReturn(true);
+
+        BackfillService restarted = new BackfillService(backfillChunkRepository, upstreamGateway, rateHistoryStore,
+                new BackfillProperties(), rateCoherence);
+        restarted.resume();
+        assertTrue(restarted.await(Duration.ofSeconds(10)));
+
+        verify(upstreamGateway).fetchRange(CurrencyCode.USD, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31),
+                UpstreamPriority.BACKGROUND);
+        verify(upstreamGateway).fetchRange(CurrencyCode.USD, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                UpstreamPriority.BACKGROUND);
+        verifyNoMoreInteractions(upstreamGateway);
+
+        Map<Integer, BackfillChunk> chunks = backfillChunkRepository.findAll().stream()
+                .collect(Collectors.toMap(BackfillChunk::getYear, Function.identity()));
+        assertTrue(chunks.values().stream().allMatch(chunk -> chunk.getStatus() == BackfillStatus.DONE));
+        assertEquals(2, chunks.get(2023).getAttempts());
+        assertEquals(250, chunks.get(2023).getRowsStored());
+        assertEquals(1, chunks.get(2022).getAttempts());
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.BackfillProperties;
+import com.example.currencytracker.entity.BackfillChunk;
+import com.example.currencytracker.enums.BackfillStatus;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.exception.NotLeaderException;
+import com.example.currencytracker.model.DateRange;
+import com.example.currencytracker.repository.BackfillChunkRepository;
+import com.example.currencytracker.series.FixingTable;
+import com.example.currencytracker.service.BackfillService;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BackfillServiceTest {
+
+    private BackfillChunkRepository backfillChunkRepository;
+    private UpstreamGateway upstreamGateway;
+    private RateHistoryStore rateHistoryStore;
+    private BackfillProperties properties;
+    private RateCoherence rateCoherence;
+    private BackfillService backfillService;
+
+    @BeforeEach
+    void setUp() {
+        backfillChunkRepository = mock(BackfillChunkRepository.class);
+        upstreamGateway = mock(UpstreamGateway.class);
+        rateHistoryStore = mock(RateHistoryStore.class);
+        properties = new BackfillProperties();
+        properties.setConcurrency(2);
+        rateCoherence = mock(RateCoherence.class);
+        when(rateCoherence.isLeader()).thenReturn(true);
+        backfillService = new BackfillService(backfillChunkRepository, upstreamGateway, rateHistoryStore, properties,
+                rateCoherence);
+    }
+
+    private static BackfillChunk chunk(CurrencyCode currency, int year, BackfillStatus status) {
+        return BackfillChunk.builder().currency(currency.name()).year(year).status(status).build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_queuesMissingAndFailedChunksOnly() throws InterruptedException {
+        BackfillChunk done = chunk(CurrencyCode.USD, 2020, BackfillStatus.DONE);
+        BackfillChunk failed = chunk(CurrencyCode.USD, 2021, BackfillStatus.FAILED);
+        when(backfillChunkRepository.findByCurrencyInAndYearBetween(anyCollection(), eq(2020), eq(2021)))
+                .thenReturn(List.of(done, failed));
+
+        backfillService.start(EnumSet.of(CurrencyCode.USD, CurrencyCode.EUR), 2020, 2021);
+        assertTrue(backfillService.await(Duration.ofSeconds(5)));
+
+        ArgumentCaptor<List<BackfillChunk>> queued = ArgumentCaptor.forClass(List.class);
+        verify(backfillChunkRepository).saveAll(queued.capture());
+        assertEquals(Set.of("USD2021", "EUR2020", "EUR2021"), queued.getValue().stream()
+                .map(chunk -> chunk.getCurrency() + chunk.getYear())
+                .collect(Collectors.toSet()));
+        assertTrue(queued.getValue().stream().allMatch(chunk -> chunk.getStatus() == BackfillStatus.PENDING));
+        assertEquals(BackfillStatus.DONE, done.getStatus());
+    }
+
+    @Test
+    void start_yearsOutsideTheArchive_rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> backfillService.start(EnumSet.of(CurrencyCode.USD), 1990, 1995));
+        assertThrows(IllegalArgumentException.class,
+                () -> backfillService.start(EnumSet.of(CurrencyCode.USD), 2021, 2020));
+    }
+
+    @Test
+    void resume_runsPendingChunksWithinTheConcurrencyLimit() throws InterruptedException {
+        List<BackfillChunk> chunks = new ArrayList<>();
+        for (CurrencyCode currency : List.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.GBP)) {
+            for (int year = 2018; year <= 2020; year++) {
+                chunks.add(chunk(currency, year, BackfillStatus.PENDING));
+            }
+        }
+        when(backfillChunkRepository.countByStatus(BackfillStatus.PENDING)).thenReturn((long) chunks.size());
+        when(backfillChunkRepository.findByStatusOrderByYearDescCurrencyAsc(BackfillStatus.PENDING))
+                .thenReturn(chunks, List.of());
+
+        AtomicInteger calling = new AtomicInteger();
+        AtomicInteger mostCalling = new AtomicInteger();
+        when(upstreamGateway.fetchRange(any(CurrencyCode.class), any(), any(), any())).thenAnswer(invocation -> {
+            mostCalling.accumulateAndGet(calling.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            calling.decrementAndGet();
+            return new FixingTable(EnumSet.of(invocation.<CurrencyCode>getArgument(0)), 0);
+        });
+        when(rateHistoryStore.storeFetched(any(), any(), any())).thenReturn(250);
+
+        backfillService.resume();
+        assertTrue(backfillService.await(Duration.ofSeconds(10)));
+
+        verify(backfillChunkRepository).updateStatus(BackfillStatus.RUNNING, BackfillStatus.PENDING);
+        verify(upstreamGateway).fetchRange(CurrencyCode.USD, LocalDate.of(2018, 1, 1), LocalDate.of(2018, 12, 31),
+                UpstreamPriority.BACKGROUND);
+        assertTrue(mostCalling.get() <= 2, "at most 2 upstream calls at a time, saw " + mostCalling.get());
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.getStatus() == BackfillStatus.DONE
+                && chunk.getRowsStored() == 250 && chunk.getAttempts() == 1));
+
+        BackfillService.Progress progress = backfillService.progress();
+        assertFalse(progress.active());
+        assertEquals(9, progress.runChunks());
+        assertEquals(9 * 250, progress.runRows());
+        assertNotNull(progress.finishedAt());
+    }
+
+    @Test
+    void resume_failedChunkRecordsErrorAndOthersContinue() throws InterruptedException {
+        BackfillChunk usd = chunk(CurrencyCode.USD, 2020, BackfillStatus.PENDING);
+        BackfillChunk eur = chunk(CurrencyCode.EUR, 2020, BackfillStatus.PENDING);
+        when(backfillChunkRepository.countByStatus(BackfillStatus.PENDING)).thenReturn(2L);
+        when(backfillChunkRepository.findByStatusOrderByYearDescCurrencyAsc(BackfillStatus.PENDING))
+                .thenReturn(List.of(usd, eur), List.of());
+        when(upstreamGateway.fetchRange(eq(CurrencyCode.USD), any(), any(), any()))
+                .thenThrow(new RuntimeException("upstream said no"));
+        when(upstreamGateway.fetchRange(eq(CurrencyCode.EUR), any(), any(), any()))
+                .thenReturn(new FixingTable(EnumSet.of(CurrencyCode.EUR), 0));
+
+        backfillService.resume();
+        assertTrue(backfillService.await(Duration.ofSeconds(5)));
+
+        assertEquals(BackfillStatus.FAILED, usd.getStatus());
+        assertEquals("upstream said no", usd.getLastError());
+        assertEquals(BackfillStatus.DONE, eur.getStatus());
+        verify(rateHistoryStore).storeFetched(eq(CurrencyCode.EUR),
+                eq(new DateRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31))), any());
+        assertEquals(1, backfillService.progress().runFailures());
+    }
+
+    @Test
+    void resume_nothingPending_staysIdle() {
+        backfillService.resume();
+
+        assertFalse(backfillService.progress().active());
+        verifyNoInteractions(upstreamGateway);
+    }
+
+    @Test
+    void resume_disabled_leavesChunksAlone() {
+        properties.setResumeOnStartup(false);
+
+        backfillService.resume();
+
+        verifyNoInteractions(backfillChunkRepository);
+    }
+
+    @Test
+    void resume_anotherInstanceLeads_leftToTheLeader() {
+        when(rateCoherence.isLeader()).thenReturn(false);
+
+        backfillService.resume();
+
+        verifyNoInteractions(backfillChunkRepository, upstreamGateway);
+    }
+
+    @Test
+    void resume_leadTakenLater_resumesChunksTheFormerLeaderLeftRunning() throws InterruptedException {
+        when(rateCoherence.isLeader()).thenReturn(false, true, true);
+        BackfillChunk orphaned = chunk(CurrencyCode.USD, 2020, BackfillStatus.PENDING);
+        when(backfillChunkRepository.updateStatus(BackfillStatus.RUNNING, BackfillStatus.PENDING)).thenReturn(1);
+        when(backfillChunkRepository.countByStatus(BackfillStatus.PENDING)).thenReturn(1L);
+        when(backfillChunkRepository.findByStatusOrderByYearDescCurrencyAsc(BackfillStatus.PENDING))
+                .thenReturn(List.of(orphaned), List.of());
+        when(upstreamGateway.fetchRange(any(CurrencyCode.class), any(), any(), any()))
+                .thenReturn(new FixingTable(EnumSet.of(CurrencyCode.USD), 0));
+
+        backfillService.resume();
+        verifyNoInteractions(backfillChunkRepository);
+
+        backfillService.resume();
+        assertTrue(backfillService.await(Duration.ofSeconds(5)));
+        // still leading, nothing to take over again
+        backfillService.resume();
+
+        verify(backfillChunkRepository, times(1)).updateStatus(BackfillStatus.RUNNING, BackfillStatus.PENDING);
+        assertEquals(BackfillStatus.DONE, orphaned.getStatus());
+    }
+
+    @Test
+    void start_notLeading_refused() {
+        when(rateCoherence.isLeader()).thenReturn(false);
+
+        assertThrows(NotLeaderException.class,
+                () -> backfillService.start(EnumSet.of(CurrencyCode.USD), 2020, 2021));
+        verifyNoInteractions(backfillChunkRepository, upstreamGateway);
+    }
+}
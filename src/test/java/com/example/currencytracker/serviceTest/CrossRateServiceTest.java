@@ -0,0 +1,122 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.dto.ConversionDTO;
+import com.example.currencytracker.dto.ConversionRequestDTO;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.exception.CurrencyNotFoundException;
+import com.example.currencytracker.service.CrossRateService;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CrossRateServiceTest {
+
+    private UpstreamGateway upstreamGateway;
+    private LatestRateSnapshot latestRateSnapshot;
+    private CrossRateService crossRateService;
+
+    @BeforeEach
+    void setUp() {
+        upstreamGateway = mock(UpstreamGateway.class);
+        latestRateSnapshot = new LatestRateSnapshot();
+        crossRateService = new CrossRateService(upstreamGateway, latestRateSnapshot);
+    }
+
+    private static CurrencyRateDTO dto(String currency, String date, String rate) {
+        return new CurrencyRateDTO(currency, new BigDecimal(rate), LocalDate.parse(date).atTime(16, 0));
+    }
+
+    private static ConversionRequestDTO request(String from, String to, long... amounts) {
+        return ConversionRequestDTO.builder().from(from).to(to).amounts(amounts).build();
+    }
+
+    @Test
+    void convert_usesTheRebuiltMatrix() {
+        when(upstreamGateway.fetchLatest(anySet())).thenReturn(Map.of(
+                CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512"),
+                CurrencyCode.EUR, dto("EUR", "2025-12-02", "4.2498")));
+        crossRateService.rebuild();
+
+        ConversionDTO conversion = crossRateService.convert(request("usd", "EUR", 100_00, 1));
+
+        assertEquals("USD", conversion.getFrom());
+        assertEquals(new BigDecimal("0.859146312768"), conversion.getRate());
+        assertEquals(LocalDate.parse("2025-12-02"), conversion.getAsOf());
+        assertEquals(2, conversion.getScale());
+        assertEquals(2, conversion.getTargetScale());
+        assertArrayEquals(new long[]{85_91, 1}, conversion.getAmounts());
+        assertArrayEquals(new long[]{365_12}, crossRateService.convert(request("USD", "PLN", 100_00)).getAmounts());
+    }
+
+    @Test
+    void rebuild_prefetchedFromTheSnapshot_othersInOneCall() {
+        latestRateSnapshot.swap(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512")), Instant.now());
+        when(upstreamGateway.fetchLatest(anySet()))
+                .thenReturn(Map.of(CurrencyCode.EUR, dto("EUR", "2025-12-02", "4.2498")));
+
+        crossRateService.rebuild();
+
+        Set<CurrencyCode> others = EnumSet.allOf(CurrencyCode.class);
+        others.remove(CurrencyCode.USD);
+        verify(upstreamGateway).fetchLatest(others);
+        verifyNoMoreInteractions(upstreamGateway);
+        assertEquals(Set.of(CurrencyCode.USD, CurrencyCode.EUR), crossRateService.current().inputs().keySet());
+        assertArrayEquals(new long[]{85_91}, crossRateService.convert(request("USD", "EUR", 100_00)).getAmounts());
+    }
+
+    @Test
+    void rebuild_failure_keepsPreviousMatrix() {
+        when(upstreamGateway.fetchLatest(anySet()))
+                .thenReturn(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512")))
+                .thenThrow(new RuntimeException("API down"));
+        crossRateService.rebuild();
+        CrossRateService.Matrix built = crossRateService.current();
+
+        crossRateService.rebuild();
+
+        assertSame(built, crossRateService.current());
+        assertArrayEquals(new long[]{365_12}, crossRateService.convert(request("USD", "PLN", 100_00)).getAmounts());
+    }
+
+    @Test
+    void convert_beforeAnyBuild_buildsOnce() {
+        when(upstreamGateway.fetchLatest(anySet()))
+                .thenReturn(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512")));
+
+        assertArrayEquals(new long[]{100}, crossRateService.convert(request("PLN", "USD", 365)).getAmounts());
+        verify(upstreamGateway, times(1)).fetchLatest(anySet());
+    }
+
+    @Test
+    void convert_unknownOrMissingCurrency_notFound() {
+        when(upstreamGateway.fetchLatest(anySet()))
+                .thenReturn(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512")));
+        crossRateService.rebuild();
+
+        assertThrows(CurrencyNotFoundException.class, () -> crossRateService.convert(request("USD", "XYZ", 1)));
+        assertThrows(CurrencyNotFoundException.class, () -> crossRateService.convert(request("USD", "GBP", 1)));
+    }
+
+    @Test
+    void convert_outOfRange_badRequest() {
+        when(upstreamGateway.fetchLatest(anySet()))
+                .thenReturn(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", "3.6512")));
+        crossRateService.rebuild();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> crossRateService.convert(request("USD", "PLN", Long.MAX_VALUE / 2)));
+    }
+}
@@ -1,30 +1,87 @@
 package com.example.currencytracker.serviceTest;
 
+import com.example.currencytracker.client.CircuitBreaker;
+import com.example.currencytracker.client.FrankfurterClient;
+import com.example.currencytracker.client.ProviderRouter;
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.client.UpstreamMetrics;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.config.SchedulerProperties;
 import com.example.currencytracker.dto.CurrencyRateDTO;
 import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.exception.UpstreamUnavailableException;
+import com.example.currencytracker.model.RateVersion;
+import com.example.currencytracker.repository.CurrencyRateRepository;
+import com.example.currencytracker.repository.RateCoverageRepository;
 import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.LatestRateRevalidator;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.RateHistoryStore;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.anything;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 import static org.mockito.Mockito.*;
 
 class CurrencyServiceTest {
 
-    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
     private CurrencyService currencyService;
 
+    private RateSeriesStore rateSeriesStore;
+    private CaffeineCacheManager cacheManager;
+    private LatestRateSnapshot latestRateSnapshot;
+    private RateHistoryStore analyticsHistoryStore;
+    private CurrencyService analyticsService;
+
     @BeforeEach
     void setUp() {
-        restTemplate = mock(RestTemplate.class);
-        currencyService = new CurrencyService(restTemplate);
+        RestClient.Builder builder = RestClient.builder().baseUrl("https://api.frankfurter.app");
+        server = MockRestServiceServer.bindTo(builder).build();
+        CurrencyApiProperties properties = new CurrencyApiProperties();
+        properties.getRetry().setAttempts(1);
+        properties.setProviders(List.of(FrankfurterClient.NAME));
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(new SimpleMeterRegistry());
+        UpstreamGateway upstreamGateway = new UpstreamGateway(
+                new ProviderRouter(List.of(new FrankfurterClient(builder.build())), properties, upstreamMetrics),
+                upstreamMetrics, new CircuitBreaker("upstream", 3, Duration.ofMinutes(1)), properties);
+        cacheManager = new CaffeineCacheManager();
+        rateSeriesStore = new RateSeriesStore();
+        latestRateSnapshot = new LatestRateSnapshot();
+        LatestRateRevalidator revalidator = new LatestRateRevalidator(upstreamGateway, cacheManager, properties,
+                new SchedulerProperties(), latestRateSnapshot, mock(RateCoherence.class));
+        RateHistoryStore rateHistoryStore = new RateHistoryStore(cacheManager,
+                mock(CurrencyRateRepository.class), mock(RateCoverageRepository.class), upstreamGateway, rateSeriesStore);
+        currencyService = new CurrencyService(upstreamGateway, rateHistoryStore, cacheManager,
+                latestRateSnapshot, rateSeriesStore, revalidator);
+
+        // analytics read the series directly, loading is stubbed out
+        analyticsHistoryStore = mock(RateHistoryStore.class);
+        analyticsService = new CurrencyService(upstreamGateway, analyticsHistoryStore, cacheManager,
+                new LatestRateSnapshot(), rateSeriesStore, revalidator);
     }
 
     @Test
@@ -33,7 +90,7 @@ class CurrencyServiceTest {
         response.put("rates", Map.of("PLN", 4.5));
         response.put("date", "2025-12-09");
 
-        when(restTemplate.getForObject(anyString(), eq(Map.class))).thenReturn(response);
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(json(response));
 
         CurrencyRateDTO dto = currencyService.fetchDailyRate(CurrencyCode.USD);
 
@@ -45,7 +102,7 @@ class CurrencyServiceTest {
     @Test
     void fetchDailyRate_noRates_throwsException() {
         Map<String, Object> response = new HashMap<>();
-        when(restTemplate.getForObject(anyString(), eq(Map.class))).thenReturn(response);
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(json(response));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 currencyService.fetchDailyRate(CurrencyCode.EUR));
@@ -54,14 +111,57 @@ class CurrencyServiceTest {
 
     @Test
     void fetchDailyRate_restClientException_throwsException() {
-        when(restTemplate.getForObject(anyString(), eq(Map.class)))
-                .thenThrow(new RestClientException("API down"));
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(withServerError());
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 currencyService.fetchDailyRate(CurrencyCode.GBP));
         assertTrue(ex.getMessage().contains("Failed to fetch latest rate"));
     }
 
+    @Test
+    void fetchDailyRate_cacheExpired_servesLastKnownWithAgeAndRevalidates() {
+        server.expect(ExpectedCount.once(), anything()).andRespond(json(Map.of("rates", Map.of("PLN", 4.5), "date", "2025-12-09")));
+        currencyService.fetchDailyRate(CurrencyCode.USD);
+        server.verify();
+        server.reset();
+        server.expect(ExpectedCount.once(), anything()).andRespond(json(Map.of("rates", Map.of("PLN", 4.6), "date", "2025-12-10")));
+
+        cacheManager.getCache(CacheConfig.LATEST_RATES).clear();
+        CurrencyRateDTO stale = currencyService.fetchDailyRate(CurrencyCode.USD);
+
+        assertEquals(BigDecimal.valueOf(4.5), stale.getRate());
+        assertNotNull(stale.getAgeSeconds());
+        CurrencyRateDTO refreshed = awaitCached(CurrencyCode.USD);
+        assertEquals(BigDecimal.valueOf(4.6), refreshed.getRate());
+        assertNull(currencyService.fetchDailyRate(CurrencyCode.USD).getAgeSeconds());
+    }
+
+    @Test
+    void fetchDailyRate_stalePrefetch_servedWithAgeWhileUpstreamFails() {
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(withServerError());
+        latestRateSnapshot.swap(Map.of(CurrencyCode.EUR, new CurrencyRateDTO("EUR", BigDecimal.valueOf(4.2),
+                LocalDate.parse("2025-12-09").atTime(16, 0))), Instant.now().minus(Duration.ofHours(3)));
+
+        CurrencyRateDTO dto = currencyService.fetchDailyRate(CurrencyCode.EUR);
+
+        assertEquals(BigDecimal.valueOf(4.2), dto.getRate());
+        assertTrue(dto.getAgeSeconds() >= Duration.ofHours(3).toSeconds());
+    }
+
+    @Test
+    void fetchDailyRate_circuitOpen_failsFastWithoutCallingUpstream() {
+        server.expect(ExpectedCount.times(3), anything()).andRespond(withServerError());
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class, () -> currencyService.fetchDailyRate(CurrencyCode.CHF));
+        }
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class, () ->
+                currencyService.fetchDailyRate(CurrencyCode.CHF));
+
+        assertTrue(ex.getRetryAfter().isPositive());
+        server.verify();
+    }
+
     @Test
     void fetchHistory_success() {
         Map<String, Object> response = new HashMap<>();
@@ -70,7 +170,7 @@ class CurrencyServiceTest {
         ratesMap.put("2025-12-02", Map.of("PLN", 4.6));
         response.put("rates", ratesMap);
 
-        when(restTemplate.getForObject(anyString(), eq(Map.class))).thenReturn(response);
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(json(response));
 
         List<CurrencyRateDTO> history = currencyService.fetchHistory(CurrencyCode.USD,
                 LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
@@ -83,7 +183,7 @@ class CurrencyServiceTest {
     @Test
     void fetchHistory_noRates_throwsException() {
         Map<String, Object> response = new HashMap<>();
-        when(restTemplate.getForObject(anyString(), eq(Map.class))).thenReturn(response);
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(json(response));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 currencyService.fetchHistory(CurrencyCode.CHF,
@@ -93,8 +193,7 @@ class CurrencyServiceTest {
 
     @Test
     void fetchHistory_restClientException_throwsException() {
-        when(restTemplate.getForObject(anyString(), eq(Map.class)))
-                .thenThrow(new RestClientException("API down"));
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(withServerError());
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 currencyService.fetchHistory(CurrencyCode.JPY,
@@ -103,89 +202,173 @@ class CurrencyServiceTest {
     }
 
     @Test
-    void getAverageRate_calculatesCorrectly() {
-        CurrencyRateDTO rate1 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-        CurrencyRateDTO rate2 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(6.0)).timestamp(LocalDate.now().atTime(16,0)).build();
+    void fetchDailyRates_oneUpstreamCallInvertedAndCached() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rates", Map.of("USD", 0.25, "EUR", 0.2));
+        response.put("date", "2025-12-09");
+
+        server.expect(ExpectedCount.once(), requestTo("https://api.frankfurter.app/latest?from=PLN&to=USD,EUR"))
+                .andRespond(json(response));
+
+        Map<CurrencyCode, CurrencyRateDTO> rates = currencyService.fetchDailyRates(List.of(CurrencyCode.USD, CurrencyCode.EUR));
+        CurrencyRateDTO usd = currencyService.fetchDailyRate(CurrencyCode.USD);
+
+        assertEquals(0, new BigDecimal("4").compareTo(rates.get(CurrencyCode.USD).getRate()));
+        assertEquals(0, new BigDecimal("5").compareTo(rates.get(CurrencyCode.EUR).getRate()));
+        assertEquals(rates.get(CurrencyCode.USD), usd);
+        server.verify();
+    }
+
+    @Test
+    void fetchDailyRates_currencyMissingUpstream_throwsException() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rates", Map.of("USD", 0.25));
+        response.put("date", "2025-12-09");
+
+        server.expect(ExpectedCount.manyTimes(), anything()).andRespond(json(response));
 
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Arrays.asList(rate1, rate2)).when(spyService).fetchHistory(any(), any(), any());
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                currencyService.fetchDailyRates(List.of(CurrencyCode.USD, CurrencyCode.EUR)));
+        assertTrue(ex.getMessage().contains("No rates found"));
+    }
 
-        double avg = spyService.getAverageRate(2, CurrencyCode.USD);
+    @Test
+    void fetchHistory_manyCurrencies_oneUpstreamCall() {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Map<String, Double>> ratesMap = new HashMap<>();
+        ratesMap.put("2025-12-02", Map.of("USD", 0.25, "EUR", 0.2));
+        ratesMap.put("2025-12-01", Map.of("USD", 0.5, "EUR", 0.25));
+        response.put("rates", ratesMap);
+
+        server.expect(ExpectedCount.once(), anything()).andRespond(json(response));
+
+        Map<CurrencyCode, List<CurrencyRateDTO>> history = currencyService.fetchHistories(
+                List.of(CurrencyCode.USD, CurrencyCode.EUR), LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+
+        assertEquals(0, new BigDecimal("2").compareTo(history.get(CurrencyCode.USD).get(0).getRate()));
+        assertEquals(0, new BigDecimal("4").compareTo(history.get(CurrencyCode.USD).get(1).getRate()));
+        assertEquals(0, new BigDecimal("5").compareTo(history.get(CurrencyCode.EUR).get(1).getRate()));
+        server.verify();
+    }
+
+    @Test
+    void getAverageRate_calculatesCorrectly() {
+        seed(CurrencyCode.USD, 4.0, 6.0);
+
+        double avg = analyticsService.getAverageRate(2, CurrencyCode.USD);
         assertEquals(5.0, avg);
+        verify(analyticsHistoryStore).ensureLoaded(eq(CurrencyCode.USD), any(), any());
     }
 
     @Test
     void getAverageRate_emptyHistory_returnsZero() {
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Collections.emptyList()).when(spyService).fetchHistory(any(), any(), any());
-
-        double avg = spyService.getAverageRate(3, CurrencyCode.EUR);
+        double avg = analyticsService.getAverageRate(3, CurrencyCode.EUR);
         assertEquals(0.0, avg);
     }
 
     @Test
-    void getTrend_up() {
-        CurrencyRateDTO rate1 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-        CurrencyRateDTO rate2 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(5.0)).timestamp(LocalDate.now().atTime(16,0)).build();
+    void getVariance_calculatesSampleVariance() {
+        seed(CurrencyCode.USD, 4.0, 5.0, 6.0);
+
+        double variance = analyticsService.getVariance(3, CurrencyCode.USD);
+        assertEquals(1.0, variance, 1e-12);
+    }
+
+    @Test
+    void getVariance_singleFixing_returnsZero() {
+        seed(CurrencyCode.USD, 4.0);
 
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Arrays.asList(rate1, rate2)).when(spyService).fetchHistory(any(), any(), any());
+        double variance = analyticsService.getVariance(1, CurrencyCode.USD);
+        assertEquals(0.0, variance);
+    }
 
-        String trend = spyService.getTrend(2, CurrencyCode.USD);
+    @Test
+    void getTrend_up() {
+        seed(CurrencyCode.USD, 4.0, 5.0);
+
+        String trend = analyticsService.getTrend(2, CurrencyCode.USD);
         assertEquals("up", trend);
     }
 
     @Test
     void getTrend_down() {
-        CurrencyRateDTO rate1 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(5.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-        CurrencyRateDTO rate2 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Arrays.asList(rate1, rate2)).when(spyService).fetchHistory(any(), any(), any());
+        seed(CurrencyCode.USD, 5.0, 4.0);
 
-        String trend = spyService.getTrend(2, CurrencyCode.USD);
+        String trend = analyticsService.getTrend(2, CurrencyCode.USD);
         assertEquals("down", trend);
     }
 
     @Test
     void getTrend_stable() {
-        CurrencyRateDTO rate1 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-        CurrencyRateDTO rate2 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
+        seed(CurrencyCode.USD, 4.0, 4.0);
 
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Arrays.asList(rate1, rate2)).when(spyService).fetchHistory(any(), any(), any());
-
-        String trend = spyService.getTrend(2, CurrencyCode.USD);
+        String trend = analyticsService.getTrend(2, CurrencyCode.USD);
         assertEquals("stable", trend);
     }
 
     @Test
     void getTrend_notEnoughData_returnsStable() {
-        CurrencyRateDTO rate1 = CurrencyRateDTO.builder()
-                .currency("USD").rate(BigDecimal.valueOf(4.0)).timestamp(LocalDate.now().atTime(16,0)).build();
-
-        CurrencyService spyService = spy(currencyService);
-        doReturn(Collections.singletonList(rate1)).when(spyService).fetchHistory(any(), any(), any());
+        seed(CurrencyCode.USD, 4.0);
 
-        String trend = spyService.getTrend(1, CurrencyCode.USD);
+        String trend = analyticsService.getTrend(1, CurrencyCode.USD);
         assertEquals("stable", trend);
     }
 
     @Test
     void getTrend_fetchHistoryThrows_throwsException() {
-        CurrencyService spyService = spy(currencyService);
-        doThrow(new RuntimeException("API down")).when(spyService).fetchHistory(any(), any(), any());
+        doThrow(new RuntimeException("API down")).when(analyticsHistoryStore)
+                .ensureLoaded(any(CurrencyCode.class), any(), any());
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
-                spyService.getTrend(3, CurrencyCode.USD));
+                analyticsService.getTrend(3, CurrencyCode.USD));
         assertTrue(ex.getMessage().contains("Failed to fetch history"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void historyVersion_followsTheData() {
+        seed(CurrencyCode.USD, 4.0, 4.1, 4.2);
+        LocalDate from = LocalDate.now().minusDays(5);
+        LocalDate to = LocalDate.now();
+
+        RateVersion first = analyticsService.historyVersion(List.of(CurrencyCode.USD), from, to);
+        RateVersion again = analyticsService.historyVersion(List.of(CurrencyCode.USD), from, to);
+        rateSeriesStore.get(CurrencyCode.USD).put(LocalDate.now().minusDays(2).toEpochDay(), 4.15);
+        RateVersion corrected = analyticsService.historyVersion(List.of(CurrencyCode.USD), from, to);
+
+        assertEquals(first, again);
+        assertNotEquals(first.eTag(), corrected.eTag());
+        assertTrue(first.eTag().startsWith("W/\""));
+        assertEquals(-1, first.lastModified());
+        assertNotEquals(first.eTag(), analyticsService.historyVersion(List.of(CurrencyCode.EUR), from, to).eTag());
+    }
+
+    private CurrencyRateDTO awaitCached(CurrencyCode currency) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            CurrencyRateDTO cached = cacheManager.getCache(CacheConfig.LATEST_RATES).get(currency, CurrencyRateDTO.class);
+            if (cached != null) {
+                return cached;
+            }
+            Thread.onSpinWait();
+        }
+        return fail("No refresh of " + currency);
+    }
+
+    private static ResponseCreator json(Object body) {
+        try {
+            return withSuccess(new ObjectMapper().writeValueAsString(body), MediaType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Put rates on consecutive days ending yesterday
+     */
+    private void seed(CurrencyCode currency, double... rates) {
+        long day = LocalDate.now().minusDays(rates.length).toEpochDay();
+        for (double rate : rates) {
+            rateSeriesStore.get(currency).put(day++, rate);
+        }
+    }
+}
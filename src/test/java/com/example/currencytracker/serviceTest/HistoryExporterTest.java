@@ -0,0 +1,109 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.repository.CurrencyRateRepository;
+import com.example.currencytracker.series.RateColumns;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.HistoryExporter;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HistoryExporterTest {
+
+    private RateHistoryStore rateHistoryStore;
+    private RateSeriesStore rateSeriesStore;
+    private CurrencyRateRepository currencyRateRepository;
+    private HistoryExporter historyExporter;
+
+    @BeforeEach
+    void setUp() {
+        rateHistoryStore = mock(RateHistoryStore.class);
+        rateSeriesStore = new RateSeriesStore();
+        currencyRateRepository = mock(CurrencyRateRepository.class);
+        historyExporter = new HistoryExporter(rateHistoryStore, rateSeriesStore, currencyRateRepository);
+    }
+
+    @Test
+    void exportHistory_writesOneLinePerRateByDateThenCurrency() throws IOException {
+        rateSeriesStore.get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.6);
+        rateSeriesStore.get(CurrencyCode.USD).put(LocalDate.parse("2025-12-02").toEpochDay(), 3.65);
+        rateSeriesStore.get(CurrencyCode.EUR).put(LocalDate.parse("2025-12-01").toEpochDay(), 4.2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        historyExporter.exportHistory(List.of(CurrencyCode.EUR, CurrencyCode.USD),
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-05"), out);
+
+        assertEquals("""
+                {"currency":"EUR","rate":4.2,"timestamp":"2025-12-01T16:00:00"}
+                {"currency":"USD","rate":3.6,"timestamp":"2025-12-01T16:00:00"}
+                {"currency":"USD","rate":3.65,"timestamp":"2025-12-02T16:00:00"}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportHistory_loadsTheRangeChunkByChunk() throws IOException {
+        historyExporter.exportHistory(List.of(CurrencyCode.USD),
+                LocalDate.parse("2024-01-15"), LocalDate.parse("2024-12-31"), new ByteArrayOutputStream());
+
+        Set<CurrencyCode> usd = EnumSet.of(CurrencyCode.USD);
+        verify(rateHistoryStore).ensureLoaded(usd, LocalDate.parse("2024-01-15"), LocalDate.parse("2024-03-31"));
+        verify(rateHistoryStore).ensureLoaded(usd, LocalDate.parse("2024-04-01"), LocalDate.parse("2024-06-30"));
+        verify(rateHistoryStore).ensureLoaded(usd, LocalDate.parse("2024-07-01"), LocalDate.parse("2024-09-30"));
+        verify(rateHistoryStore).ensureLoaded(usd, LocalDate.parse("2024-10-01"), LocalDate.parse("2024-12-31"));
+        verifyNoMoreInteractions(rateHistoryStore);
+    }
+
+    @Test
+    void exportStored_streamsDatabaseRowsAndClosesTheCursor() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(currencyRateRepository.streamHistory(eq(List.of("USD")), any(), any()))
+                .thenReturn(Stream.of(
+                        new CurrencyRateDTO("USD", new BigDecimal("3.600000"), LocalDate.parse("2025-12-01").atTime(16, 0)),
+                        new CurrencyRateDTO("USD", new BigDecimal("3.650000"), LocalDate.parse("2025-12-02").atTime(16, 0)))
+                        .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        historyExporter.exportStored(List.of(CurrencyCode.USD),
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"), out);
+
+        assertEquals("""
+                {"currency":"USD","rate":3.600000,"timestamp":"2025-12-01T16:00:00"}
+                {"currency":"USD","rate":3.650000,"timestamp":"2025-12-02T16:00:00"}
+                """, out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+        verifyNoInteractions(rateHistoryStore);
+    }
+
+    @Test
+    void exportColumns_loadsTheRangeOnceAndWritesABlockPerCurrency() {
+        rateSeriesStore.get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.6);
+        rateSeriesStore.get(CurrencyCode.USD).put(LocalDate.parse("2025-12-02").toEpochDay(), 3.65);
+        rateSeriesStore.get(CurrencyCode.EUR).put(LocalDate.parse("2025-12-01").toEpochDay(), 4.2);
+
+        List<RateColumns.Block> blocks = RateColumns.decode(historyExporter.exportColumns(
+                List.of(CurrencyCode.EUR, CurrencyCode.USD), LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-05")));
+
+        assertEquals(List.of("EUR", "USD"), blocks.stream().map(RateColumns.Block::currency).toList());
+        assertArrayEquals(new double[]{3.6, 3.65}, blocks.get(1).rates());
+        verify(rateHistoryStore).ensureLoaded(EnumSet.of(CurrencyCode.EUR, CurrencyCode.USD),
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-05"));
+        verifyNoMoreInteractions(rateHistoryStore);
+    }
+}
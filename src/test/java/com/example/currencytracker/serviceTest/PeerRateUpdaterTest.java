@@ -0,0 +1,169 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.coherence.CoherenceMessage;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.CrossRateService;
+import com.example.currencytracker.service.LatestRateRevalidator;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.PeerRateUpdater;
+import com.example.currencytracker.service.RateBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PeerRateUpdaterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 26);
+    private static final Instant REFRESHED_AT = Instant.parse("2025-09-26T16:15:00Z");
+
+    private RateCoherence rateCoherence;
+    private CaffeineCacheManager cacheManager;
+    private LatestRateSnapshot latestRateSnapshot;
+    private LatestRateRevalidator latestRateRevalidator;
+    private RateSeriesStore rateSeriesStore;
+    private CrossRateService crossRateService;
+    private RateBroadcaster rateBroadcaster;
+    private PeerRateUpdater peerRateUpdater;
+
+    @BeforeEach
+    void setUp() {
+        rateCoherence = mock(RateCoherence.class);
+        cacheManager = new CaffeineCacheManager();
+        latestRateSnapshot = new LatestRateSnapshot();
+        latestRateRevalidator = mock(LatestRateRevalidator.class);
+        rateSeriesStore = new RateSeriesStore();
+        crossRateService = mock(CrossRateService.class);
+        rateBroadcaster = mock(RateBroadcaster.class);
+        peerRateUpdater = new PeerRateUpdater(rateCoherence, cacheManager, latestRateSnapshot, latestRateRevalidator,
+                rateSeriesStore, crossRateService, rateBroadcaster);
+    }
+
+    private static CurrencyRateDTO dto(CurrencyCode currency, LocalDate date, double rate) {
+        return new CurrencyRateDTO(currency.name(), BigDecimal.valueOf(rate), date.atTime(16, 0));
+    }
+
+    private static CoherenceMessage refresh(Map<CurrencyCode, CurrencyRateDTO> rates, Map<CurrencyCode, Integer> monthFixings) {
+        return new CoherenceMessage(CoherenceMessage.Type.REFRESH, "leader", REFRESHED_AT, rates, monthFixings, null, null);
+    }
+
+    @Test
+    void apply_refresh_replacesLatestRatesAndRebuildsCrossRates() {
+        Map<CurrencyCode, CurrencyRateDTO> rates = Map.of(
+                CurrencyCode.USD, dto(CurrencyCode.USD, DAY, 3.64),
+                CurrencyCode.EUR, dto(CurrencyCode.EUR, DAY, 4.27));
+
+        peerRateUpdater.apply(refresh(rates, Map.of()));
+
+        assertEquals(REFRESHED_AT, latestRateSnapshot.current().refreshedAt());
+        assertEquals(rates, latestRateSnapshot.current().rates());
+        Cache latest = cacheManager.getCache(CacheConfig.LATEST_RATES);
+        assertEquals(rates.get(CurrencyCode.USD), latest.get(CurrencyCode.USD, CurrencyRateDTO.class));
+        verify(latestRateRevalidator).remember(rates.get(CurrencyCode.EUR), REFRESHED_AT);
+        verify(crossRateService).build(rates);
+        verify(crossRateService, never()).rebuild();
+        verify(rateBroadcaster).publish(rates);
+    }
+
+    @Test
+    void apply_refresh_buildsCrossRatesFromTheMessageAndKnownRates() {
+        CurrencyRateDTO usd = dto(CurrencyCode.USD, DAY, 3.64);
+        CurrencyRateDTO jpy = dto(CurrencyCode.JPY, DAY, 0.0243);
+        CurrencyRateDTO oldChf = dto(CurrencyCode.CHF, DAY.minusDays(1), 4.5);
+        when(crossRateService.latestRates()).thenReturn(Map.of(
+                CurrencyCode.CHF, oldChf,
+                CurrencyCode.JPY, dto(CurrencyCode.JPY, DAY.minusDays(1), 0.0242)));
+
+        peerRateUpdater.apply(new CoherenceMessage(CoherenceMessage.Type.REFRESH, "leader", REFRESHED_AT,
+                Map.of(CurrencyCode.USD, usd), null, null, Map.of(CurrencyCode.JPY, jpy)));
+
+        verify(crossRateService).build(Map.of(CurrencyCode.USD, usd, CurrencyCode.JPY, jpy, CurrencyCode.CHF, oldChf));
+        verify(crossRateService, never()).rebuild();
+    }
+
+    @Test
+    void apply_refresh_cachedSegmentMatchingTheLeader_broughtUpToDate() {
+        YearMonth month = YearMonth.from(DAY);
+        rateSeriesStore.get(CurrencyCode.USD).put(DAY.minusDays(1).toEpochDay(), 3.63);
+        Cache segments = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        HistorySegment.Key key = new HistorySegment.Key(CurrencyCode.USD, month);
+        segments.put(key, new HistorySegment(CurrencyCode.USD, month, 1, DAY.minusDays(1)));
+
+        peerRateUpdater.apply(refresh(Map.of(CurrencyCode.USD, dto(CurrencyCode.USD, DAY, 3.64)),
+                Map.of(CurrencyCode.USD, 2)));
+
+        assertEquals(3.64, rateSeriesStore.get(CurrencyCode.USD).get(DAY.toEpochDay()));
+        assertEquals(new HistorySegment(CurrencyCode.USD, month, 2, DAY), segments.get(key, HistorySegment.class));
+    }
+
+    @Test
+    void apply_refresh_cachedSegmentMissingFixings_evicted() {
+        YearMonth month = YearMonth.from(DAY);
+        Cache segments = cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        HistorySegment.Key key = new HistorySegment.Key(CurrencyCode.USD, month);
+        segments.put(key, new HistorySegment(CurrencyCode.USD, month, 0, null));
+
+        // the leader holds a fixing this instance never heard of
+        peerRateUpdater.apply(refresh(Map.of(CurrencyCode.USD, dto(CurrencyCode.USD, DAY, 3.64)),
+                Map.of(CurrencyCode.USD, 2)));
+
+        assertNull(segments.get(key));
+    }
+
+    @Test
+    void apply_latest_storedWithoutTouchingTheSnapshot() {
+        CurrencyRateDTO rate = dto(CurrencyCode.GBP, DAY, 4.9);
+
+        peerRateUpdater.apply(new CoherenceMessage(CoherenceMessage.Type.LATEST, "peer", REFRESHED_AT,
+                Map.of(CurrencyCode.GBP, rate), null, null, null));
+
+        assertEquals(rate, cacheManager.getCache(CacheConfig.LATEST_RATES).get(CurrencyCode.GBP, CurrencyRateDTO.class));
+        verify(latestRateRevalidator).remember(rate, REFRESHED_AT);
+        assertNull(latestRateSnapshot.current().refreshedAt());
+        verifyNoInteractions(crossRateService, rateBroadcaster);
+    }
+
+    @Test
+    void apply_sync_leaderRepublishesItsLastRefresh() {
+        Map<CurrencyCode, CurrencyRateDTO> rates = Map.of(CurrencyCode.USD, dto(CurrencyCode.USD, DAY, 3.64));
+        latestRateSnapshot.swap(rates, REFRESHED_AT);
+        Map<CurrencyCode, CurrencyRateDTO> crossRates = Map.of(CurrencyCode.JPY, dto(CurrencyCode.JPY, DAY, 0.0243));
+        when(crossRateService.latestRates()).thenReturn(crossRates);
+        CoherenceMessage sync = new CoherenceMessage(CoherenceMessage.Type.SYNC, "peer", Instant.now(), null, null, null,
+                null);
+
+        peerRateUpdater.apply(sync);
+        verify(rateCoherence, never()).publishRefresh(any(), any(), any());
+
+        when(rateCoherence.isLeader()).thenReturn(true);
+        peerRateUpdater.apply(sync);
+        verify(rateCoherence).publishRefresh(rates, crossRates, REFRESHED_AT);
+    }
+
+    @Test
+    void announceInterest_onlyWithSubscribers() {
+        when(rateBroadcaster.subscribedCurrencies()).thenReturn(EnumSet.noneOf(CurrencyCode.class));
+        peerRateUpdater.announceInterest();
+        verify(rateCoherence, never()).announceInterest(any());
+
+        when(rateBroadcaster.subscribedCurrencies()).thenReturn(EnumSet.of(CurrencyCode.CHF));
+        peerRateUpdater.announceInterest();
+        verify(rateCoherence).announceInterest(EnumSet.of(CurrencyCode.CHF));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.config.ArchiveProperties;
+import com.example.currencytracker.config.CacheConfig;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.RateArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private ArchiveProperties archiveProperties;
+
+    @BeforeEach
+    void setUp() {
+        archiveProperties = new ArchiveProperties();
+        archiveProperties.setDirectory(directory);
+    }
+
+    /**
+     * Store and cache of one run of the service, with its archive restored
+     */
+    private record Run(RateSeriesStore store, CacheManager cacheManager, RateArchive archive) {
+
+        Cache segments() {
+            return cacheManager.getCache(CacheConfig.HISTORY_SEGMENTS);
+        }
+    }
+
+    private Run start() {
+        RateSeriesStore store = new RateSeriesStore();
+        CacheManager cacheManager = new CaffeineCacheManager();
+        RateArchive archive = new RateArchive(store, cacheManager, archiveProperties);
+        archive.restore();
+        return new Run(store, cacheManager, archive);
+    }
+
+    private static void load(Run run, YearMonth month, String... fixings) {
+        for (int i = 0; i < fixings.length; i += 2) {
+            run.store().get(CurrencyCode.USD).put(LocalDate.parse(fixings[i]).toEpochDay(), Double.parseDouble(fixings[i + 1]));
+        }
+        HistorySegment segment = new HistorySegment(CurrencyCode.USD, month, fixings.length / 2, null);
+        run.segments().put(segment.key(), segment);
+    }
+
+    @Test
+    void restart_restoresSeriesAndCompleteMonthsFromTheSnapshot() {
+        Run first = start();
+        load(first, YearMonth.of(2025, 11), "2025-11-27", "3.66", "2025-11-28", "3.67");
+        YearMonth current = YearMonth.now();
+        load(first, current, current.atDay(1).toString(), "3.7");
+        first.archive().close();
+
+        Run second = start();
+
+        assertEquals(3.67, second.store().get(CurrencyCode.USD).get(LocalDate.parse("2025-11-28").toEpochDay()));
+        HistorySegment november = second.segments().get(new HistorySegment.Key(CurrencyCode.USD, YearMonth.of(2025, 11)),
+                HistorySegment.class);
+        assertEquals(2, november.fixings());
+        assertEquals(LocalDate.parse("2025-11-28"), november.lastFixingDate());
+        // still open when the snapshot was taken, loaded as usual so no fixing published since is missed
+        assertNull(second.segments().get(new HistorySegment.Key(CurrencyCode.USD, current)));
+        assertEquals(3.7, second.store().get(CurrencyCode.USD).get(current.atDay(1).toEpochDay()));
+    }
+
+    @Test
+    void restart_afterCrash_replaysTheLog() throws IOException {
+        Run first = start();
+        first.store().get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.6);
+        first.archive().flush();
+
+        Run second = start();
+
+        assertEquals(3.6, second.store().get(CurrencyCode.USD).get(LocalDate.parse("2025-12-01").toEpochDay()));
+        assertFalse(Files.exists(directory.resolve("rates.snapshot")));
+    }
+
+    @Test
+    void snapshot_foldsLogsIn_andRestartsFromIt() throws IOException {
+        Run first = start();
+        first.store().get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.6);
+        first.archive().flush();
+        first.archive().snapshot();
+        first.store().get(CurrencyCode.USD).put(LocalDate.parse("2025-12-02").toEpochDay(), 3.65);
+        // a correction of an archived day lands in the log too
+        first.store().get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.61);
+        first.archive().flush();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count(), "the snapshot and the log following it");
+        }
+        Run second = start();
+
+        assertEquals(3.61, second.store().get(CurrencyCode.USD).get(LocalDate.parse("2025-12-01").toEpochDay()));
+        assertEquals(3.65, second.store().get(CurrencyCode.USD).get(LocalDate.parse("2025-12-02").toEpochDay()));
+    }
+
+    @Test
+    void disabled_touchesNoFiles() throws IOException {
+        archiveProperties.setEnabled(false);
+        Run run = start();
+        run.store().get(CurrencyCode.USD).put(LocalDate.parse("2025-12-01").toEpochDay(), 3.6);
+        run.archive().flush();
+        run.archive().close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
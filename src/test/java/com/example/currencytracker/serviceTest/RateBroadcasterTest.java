@@ -0,0 +1,237 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.config.SubscriptionProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.exception.SubscriptionLimitException;
+import com.example.currencytracker.service.CurrencyService;
+import com.example.currencytracker.service.RateBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RateBroadcasterTest {
+
+    private CurrencyService currencyService;
+    private SubscriptionProperties properties;
+    private RateBroadcaster rateBroadcaster;
+
+    /**
+     * Emitter keeping what was sent, optionally held on a latch like a client that stopped reading
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch reading;
+        private volatile boolean failing;
+        private volatile Throwable completedWith;
+
+        RecordingEmitter(CountDownLatch reading) {
+            this.reading = reading;
+        }
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            try {
+                reading.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(builder.build().stream().map(part -> part.getData().toString()).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completedWith = ex;
+        }
+
+        List<String> rates() {
+            return sent.stream().filter(event -> event.contains("event:rate")).toList();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        currencyService = mock(CurrencyService.class);
+        properties = new SubscriptionProperties();
+        properties.setBufferSize(4);
+        rateBroadcaster = new RateBroadcaster(properties, currencyService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateBroadcaster.close();
+    }
+
+    private static CurrencyRateDTO dto(String currency, String date, double rate) {
+        return new CurrencyRateDTO(currency, BigDecimal.valueOf(rate), LocalDate.parse(date).atTime(16, 0));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void register_sendsCurrentRatesThenChangesOfItsCurrencies() throws InterruptedException {
+        when(currencyService.fetchDailyRates(anyCollection()))
+                .thenReturn(Map.of(CurrencyCode.USD, dto("USD", "2025-12-01", 3.6)));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), emitter);
+        await(() -> emitter.rates().size() == 1);
+        rateBroadcaster.publish(Map.of(
+                CurrencyCode.USD, dto("USD", "2025-12-02", 3.61),
+                CurrencyCode.EUR, dto("EUR", "2025-12-02", 4.2)));
+        await(() -> emitter.rates().size() == 2);
+
+        assertTrue(emitter.rates().get(0).contains("\"rate\":3.6"));
+        assertTrue(emitter.rates().get(1).contains("\"rate\":3.61"));
+        assertTrue(emitter.rates().get(1).contains("\"timestamp\":\"2025-12-02T16:00:00\""));
+        assertEquals(Set.of(CurrencyCode.USD), rateBroadcaster.subscribedCurrencies());
+    }
+
+    @Test
+    void register_batchFetchFails_sendsTheCurrentRatesThatCanBeFetched() throws InterruptedException {
+        when(currencyService.fetchDailyRates(anyCollection())).thenThrow(new RuntimeException("No rates found for CHF"));
+        when(currencyService.fetchDailyRate(CurrencyCode.USD)).thenReturn(dto("USD", "2025-12-01", 3.6));
+        when(currencyService.fetchDailyRate(CurrencyCode.CHF)).thenThrow(new RuntimeException("No rates found for CHF"));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD, CurrencyCode.CHF), emitter);
+
+        await(() -> emitter.rates().size() == 1);
+        assertTrue(emitter.rates().getFirst().contains("\"currency\":\"USD\""));
+        assertEquals(Set.of(CurrencyCode.USD, CurrencyCode.CHF), rateBroadcaster.subscribedCurrencies());
+    }
+
+    @Test
+    void publish_unchangedRates_sendNothing() {
+        Map<CurrencyCode, CurrencyRateDTO> rates = Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", 3.61));
+
+        assertEquals(1, rateBroadcaster.publish(rates));
+        assertEquals(0, rateBroadcaster.publish(Map.of(CurrencyCode.USD, dto("USD", "2025-12-02", 3.610))));
+        assertEquals(1, rateBroadcaster.publish(Map.of(CurrencyCode.USD, dto("USD", "2025-12-03", 3.61))));
+    }
+
+    @Test
+    void publish_fansOutToEverySubscriber() throws InterruptedException {
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            rateBroadcaster.register(EnumSet.of(i % 2 == 0 ? CurrencyCode.USD : CurrencyCode.EUR), emitter);
+            emitters.add(emitter);
+        }
+
+        rateBroadcaster.publish(Map.of(
+                CurrencyCode.USD, dto("USD", "2025-12-02", 3.61),
+                CurrencyCode.EUR, dto("EUR", "2025-12-02", 4.2)));
+
+        await(() -> emitters.stream().allMatch(emitter -> emitter.rates().size() == 1));
+        assertEquals(new RateBroadcaster.Stats(1000, 2, 1000, 0), rateBroadcaster.stats());
+    }
+
+    @Test
+    void slowSubscriber_fullBuffer_disconnectedWithoutDelayingOthers() throws InterruptedException {
+        CountDownLatch stalled = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(stalled);
+        RecordingEmitter fast = new RecordingEmitter();
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), slow);
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), fast);
+
+        // one event stuck in send and four in the buffer, the sixth does not fit
+        for (int day = 1; day <= 6; day++) {
+            rateBroadcaster.publish(Map.of(CurrencyCode.USD, dto("USD", "2025-12-0" + day, 3.6 + day / 100.0)));
+            Thread.sleep(20);
+        }
+
+        await(() -> fast.rates().size() == 6);
+        assertNotNull(slow.completedWith);
+        assertEquals(1, rateBroadcaster.stats().slowDisconnects());
+        assertEquals(1, rateBroadcaster.stats().subscribers());
+        stalled.countDown();
+    }
+
+    @Test
+    void brokenConnection_removedOnNextSend() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), emitter);
+        emitter.failing = true;
+
+        rateBroadcaster.heartbeat();
+
+        await(() -> rateBroadcaster.stats().subscribers() == 0);
+    }
+
+    @Test
+    void register_beyondLimit_rejected() {
+        properties.setMaxSubscribers(1);
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), new RecordingEmitter());
+
+        assertThrows(SubscriptionLimitException.class,
+                () -> rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), new RecordingEmitter()));
+    }
+
+    @Test
+    void register_concurrently_neverBeyondLimit() throws InterruptedException {
+        properties.setMaxSubscribers(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> rejected = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                    rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), new RecordingEmitter());
+                } catch (SubscriptionLimitException | InterruptedException e) {
+                    rejected.add(e);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10, rateBroadcaster.stats().subscribers());
+        assertEquals(40, rejected.size());
+    }
+
+    @Test
+    void register_slotFreedWhenSubscriberLeaves() throws InterruptedException {
+        properties.setMaxSubscribers(1);
+        RecordingEmitter emitter = new RecordingEmitter();
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), emitter);
+        emitter.failing = true;
+        rateBroadcaster.heartbeat();
+        await(() -> rateBroadcaster.stats().subscribers() == 0);
+
+        rateBroadcaster.register(EnumSet.of(CurrencyCode.USD), new RecordingEmitter());
+
+        assertEquals(1, rateBroadcaster.stats().subscribers());
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.entity.RateCoverage;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.enums.UpstreamPriority;
+import com.example.currencytracker.model.DateRange;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.repository.CurrencyRateRepository;
+import com.example.currencytracker.repository.RateCoverageRepository;
+import com.example.currencytracker.series.FixingTable;
+import com.example.currencytracker.series.RateSeriesStore;
+import com.example.currencytracker.service.RateHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RateHistoryStoreTest {
+
+    private CurrencyRateRepository currencyRateRepository;
+    private RateCoverageRepository rateCoverageRepository;
+    private UpstreamGateway upstreamGateway;
+    private RateHistoryStore rateHistoryStore;
+
+    @BeforeEach
+    void setUp() {
+        currencyRateRepository = mock(CurrencyRateRepository.class);
+        rateCoverageRepository = mock(RateCoverageRepository.class);
+        upstreamGateway = mock(UpstreamGateway.class);
+        rateHistoryStore = new RateHistoryStore(new CaffeineCacheManager(),
+                currencyRateRepository, rateCoverageRepository, upstreamGateway, new RateSeriesStore());
+    }
+
+    private static CurrencyRateDTO dto(String date, double rate) {
+        return dto("USD", date, rate);
+    }
+
+    private static CurrencyRateDTO dto(String currency, String date, double rate) {
+        return CurrencyRateDTO.builder()
+                .currency(currency)
+                .rate(BigDecimal.valueOf(rate))
+                .timestamp(LocalDate.parse(date).atTime(16, 0))
+                .build();
+    }
+
+    /**
+     * Decoded upstream response holding the given fixings
+     */
+    private static FixingTable table(Map<CurrencyCode, List<CurrencyRateDTO>> rates) {
+        FixingTable table = new FixingTable(rates.keySet(), 0);
+        TreeMap<LocalDate, Map<CurrencyCode, Double>> days = new TreeMap<>();
+        rates.forEach((currency, fixings) -> fixings.forEach(dto -> days
+                .computeIfAbsent(dto.getTimestamp().toLocalDate(), d -> new HashMap<>())
+                .put(currency, dto.getRate().doubleValue())));
+        days.forEach((day, fixings) -> {
+            int row = table.addRow(day.toEpochDay());
+            fixings.forEach((currency, rate) -> table.set(row, table.column(currency), rate));
+        });
+        return table;
+    }
+
+    @Test
+    void getHistory_secondCallServedFromCache() {
+        when(upstreamGateway.fetchRange(eq(Set.of(CurrencyCode.USD)), any(), any(), eq(UpstreamPriority.INTERACTIVE)))
+                .thenReturn(table(Map.of(CurrencyCode.USD, List.of(dto("2025-12-01", 4.5), dto("2025-12-02", 4.6)))));
+
+        List<CurrencyRateDTO> first = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+        List<CurrencyRateDTO> second = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+
+        assertEquals(2, first.size());
+        assertEquals(first, second);
+        verify(upstreamGateway, times(1)).fetchRange(anySet(), any(), any(), any());
+    }
+
+    @Test
+    void getHistory_slidingWindowsShareMonthSegments() {
+        when(upstreamGateway.fetchRange(eq(Set.of(CurrencyCode.USD)), any(), any(), eq(UpstreamPriority.INTERACTIVE)))
+                .thenReturn(table(Map.of(CurrencyCode.USD,
+                        List.of(dto("2025-11-28", 4.4), dto("2025-12-01", 4.5), dto("2025-12-02", 4.6)))));
+
+        List<CurrencyRateDTO> shorter = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-11-05"), LocalDate.parse("2025-12-03"));
+        List<CurrencyRateDTO> longer = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-11-04"), LocalDate.parse("2025-12-03"));
+
+        assertEquals(shorter, longer);
+        verify(upstreamGateway).fetchRange(Set.of(CurrencyCode.USD), LocalDate.parse("2025-11-01"), LocalDate.parse("2025-12-31"),
+                UpstreamPriority.INTERACTIVE);
+        verifyNoMoreInteractions(upstreamGateway);
+    }
+
+    @Test
+    void getHistory_fetchesOnlyUncoveredGap() {
+        when(rateCoverageRepository.findOverlapping(eq("USD"), any(), any()))
+                .thenReturn(List.of(RateCoverage.builder().currency("USD")
+                        .fromDate(LocalDate.parse("2025-12-01"))
+                        .toDate(LocalDate.parse("2025-12-02"))
+                        .build()));
+        when(currencyRateRepository.findRangePage(eq("USD"), any(), any(), any(), any()))
+                .thenReturn(List.of(dto("2025-12-01", 4.5), dto("2025-12-02", 4.6)));
+        when(upstreamGateway.fetchRange(Set.of(CurrencyCode.USD), LocalDate.parse("2025-12-03"), LocalDate.parse("2025-12-31"),
+                UpstreamPriority.INTERACTIVE))
+                .thenReturn(table(Map.of(CurrencyCode.USD,
+                        List.of(dto("2025-12-02", 4.6), dto("2025-12-03", 4.7), dto("2025-12-04", 4.8)))));
+
+        List<CurrencyRateDTO> history = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-04"));
+
+        assertEquals(4, history.size());
+        assertEquals(BigDecimal.valueOf(4.5), history.get(0).getRate());
+        assertEquals(BigDecimal.valueOf(4.8), history.get(3).getRate());
+        verify(upstreamGateway, times(1)).fetchRange(anySet(), any(), any(), any());
+        verify(currencyRateRepository).upsertAll(argThat(rows -> rows.size() == 2));
+        verify(rateCoverageRepository).save(argThat(c -> c.getFromDate().equals(LocalDate.parse("2025-12-01"))
+                && c.getToDate().equals(LocalDate.parse("2025-12-31"))));
+    }
+
+    @Test
+    void getHistory_readsStoredRatesPageByPage() {
+        when(rateCoverageRepository.findOverlapping(eq("USD"), any(), any()))
+                .thenReturn(List.of(RateCoverage.builder().currency("USD")
+                        .fromDate(LocalDate.parse("2010-01-01"))
+                        .toDate(LocalDate.parse("2015-12-31"))
+                        .build()));
+        List<CurrencyRateDTO> full = new ArrayList<>();
+        for (LocalDate day = LocalDate.parse("2010-01-01"); full.size() < 1000; day = day.plusDays(1)) {
+            full.add(dto(day.toString(), 4.0));
+        }
+        LocalDateTime lastOfFirstPage = full.getLast().getTimestamp();
+        when(currencyRateRepository.findRangePage(eq("USD"), any(), any(), any(), eq(Limit.of(1000))))
+                .thenReturn(full, List.of(dto("2013-01-02", 4.1)));
+
+        List<CurrencyRateDTO> history = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2010-01-01"), LocalDate.parse("2015-12-31"));
+
+        assertEquals(1001, history.size());
+        InOrder pages = inOrder(currencyRateRepository);
+        pages.verify(currencyRateRepository).findRangePage(eq("USD"), eq(LocalDate.parse("2010-01-01").atStartOfDay()),
+                any(), eq(LocalDate.parse("2009-12-31").atStartOfDay()), any());
+        pages.verify(currencyRateRepository).findRangePage(eq("USD"), any(), any(), eq(lastOfFirstPage), any());
+        verifyNoInteractions(upstreamGateway);
+    }
+
+    @Test
+    void getHistory_weekendGap_skipsUpstream() {
+        when(rateCoverageRepository.findOverlapping(eq("USD"), any(), any()))
+                .thenReturn(List.of(RateCoverage.builder().currency("USD")
+                        .fromDate(LocalDate.parse("2025-11-01"))
+                        .toDate(LocalDate.parse("2025-11-28"))
+                        .build()));
+
+        List<CurrencyRateDTO> history = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-11-27"), LocalDate.parse("2025-11-30"));
+
+        assertTrue(history.isEmpty());
+        verifyNoInteractions(upstreamGateway);
+        verify(rateCoverageRepository).save(any(RateCoverage.class));
+    }
+
+    @Test
+    void getHistory_manyCurrencies_shareOneUpstreamCallPerGap() {
+        Set<CurrencyCode> currencies = Set.of(CurrencyCode.USD, CurrencyCode.EUR);
+        when(upstreamGateway.fetchRange(currencies, LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-31"),
+                UpstreamPriority.INTERACTIVE))
+                .thenReturn(table(Map.of(
+                        CurrencyCode.USD, List.of(dto("USD", "2025-12-01", 3.6)),
+                        CurrencyCode.EUR, List.of(dto("EUR", "2025-12-01", 4.2)))));
+
+        Map<CurrencyCode, List<CurrencyRateDTO>> histories = rateHistoryStore.getHistories(currencies,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-05"));
+        List<CurrencyRateDTO> usdAgain = rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-05"));
+
+        assertEquals(BigDecimal.valueOf(3.6), histories.get(CurrencyCode.USD).getFirst().getRate());
+        assertEquals(BigDecimal.valueOf(4.2), histories.get(CurrencyCode.EUR).getFirst().getRate());
+        assertEquals(histories.get(CurrencyCode.USD), usdAgain);
+        verify(upstreamGateway, times(1)).fetchRange(anySet(), any(), any(), any());
+        verify(currencyRateRepository, times(2)).upsertAll(anyList());
+    }
+
+    @Test
+    void refreshSegments_fetchedAtBackgroundPriority() {
+        when(upstreamGateway.fetchRange(eq(Set.of(CurrencyCode.USD)), any(), any(), eq(UpstreamPriority.BACKGROUND)))
+                .thenReturn(table(Map.of(CurrencyCode.USD, List.of(dto("USD", "2025-12-01", 3.6)))));
+
+        List<HistorySegment> segments = rateHistoryStore.refreshSegments(Set.of(CurrencyCode.USD),
+                List.of(YearMonth.of(2025, 12)));
+
+        assertEquals(LocalDate.parse("2025-12-01"), segments.getFirst().lastFixingDate());
+        verify(upstreamGateway, never()).fetchRange(anySet(), any(), any(), eq(UpstreamPriority.INTERACTIVE));
+    }
+
+    @Test
+    void getHistory_futureRange_returnsEmpty() {
+        LocalDate from = LocalDate.now().plusDays(1);
+
+        List<CurrencyRateDTO> history = rateHistoryStore.getHistory(CurrencyCode.USD, from, from.plusDays(5));
+
+        assertTrue(history.isEmpty());
+        verifyNoInteractions(upstreamGateway, currencyRateRepository);
+    }
+
+    @Test
+    void storeFetched_writesRatesCoverageAndSeries() {
+        FixingTable fetched = table(Map.of(CurrencyCode.USD, List.of(dto("2019-12-31", 3.8), dto("2020-01-02", 3.79))));
+        DateRange year = new DateRange(LocalDate.parse("2020-01-01"), LocalDate.parse("2020-12-31"));
+
+        int stored = rateHistoryStore.storeFetched(CurrencyCode.USD, year, fetched);
+
+        assertEquals(1, stored);
+        verify(currencyRateRepository).upsertAll(argThat(rows -> rows.size() == 1));
+        verify(rateCoverageRepository).save(argThat(coverage -> coverage.getFromDate().equals(year.from())
+                && coverage.getToDate().equals(year.to())));
+        when(rateCoverageRepository.findOverlapping(eq("USD"), any(), any()))
+                .thenReturn(List.of(RateCoverage.builder().currency("USD").fromDate(year.from()).toDate(year.to()).build()));
+        assertEquals(List.of(dto("2020-01-02", 3.79)), rateHistoryStore.getHistory(CurrencyCode.USD,
+                LocalDate.parse("2020-01-01"), LocalDate.parse("2020-01-31")));
+        verifyNoInteractions(upstreamGateway);
+    }
+
+    @Test
+    void storeFetched_currencyMissingFromTheAnswer_leftUncovered() {
+        FixingTable fetched = table(Map.of(
+                CurrencyCode.USD, List.of(dto("USD", "2025-12-01", 3.6)),
+                CurrencyCode.ISK, List.of()));
+        DateRange day = new DateRange(LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-01"));
+
+        assertEquals(0, rateHistoryStore.storeFetched(CurrencyCode.ISK, day, fetched));
+
+        verify(currencyRateRepository, never()).upsertAll(anyList());
+        verify(rateCoverageRepository, never()).save(any());
+    }
+
+    @Test
+    void storeFetched_fixingsOfAnotherProvider_keptInTheSeries() {
+        FixingTable fetched = table(Map.of(CurrencyCode.USD, List.of(dto("2025-12-01", 3.61), dto("2025-12-02", 3.62))))
+                .provider("frankfurter");
+        DateRange days = new DateRange(LocalDate.parse("2025-12-01"), LocalDate.parse("2025-12-02"));
+        when(currencyRateRepository.findPublishedByOthers(eq("USD"), any(), any(), eq("frankfurter")))
+                .thenReturn(List.of(dto("2025-12-01", 3.6)));
+
+        rateHistoryStore.storeFetched(CurrencyCode.USD, days, fetched);
+
+        verify(currencyRateRepository).upsertAll(argThat(rows -> rows.stream()
+                .allMatch(row -> "frankfurter".equals(row.getProvider()))));
+        when(rateCoverageRepository.findOverlapping(eq("USD"), any(), any()))
+                .thenReturn(List.of(RateCoverage.builder().currency("USD").fromDate(days.from()).toDate(days.to()).build()));
+        assertEquals(List.of(dto("2025-12-01", 3.6), dto("2025-12-02", 3.62)), rateHistoryStore.getHistory(CurrencyCode.USD,
+                days.from(), days.to()));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.currencytracker.serviceTest;
+
+import com.example.currencytracker.client.UpstreamGateway;
+import com.example.currencytracker.coherence.RateCoherence;
+import com.example.currencytracker.config.CurrencyApiProperties;
+import com.example.currencytracker.dto.CurrencyRateDTO;
+import com.example.currencytracker.enums.CurrencyCode;
+import com.example.currencytracker.model.HistorySegment;
+import com.example.currencytracker.service.CrossRateService;
+import com.example.currencytracker.service.LatestRateSnapshot;
+import com.example.currencytracker.service.RateBroadcaster;
+import com.example.currencytracker.service.RateHistoryStore;
+import com.example.currencytracker.service.RatePrefetcher;
+import com.example.currencytracker.series.RateSeriesStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RatePrefetcherTest {
+
+    private UpstreamGateway upstreamGateway;
+    private RateHistoryStore rateHistoryStore;
+    private LatestRateSnapshot latestRateSnapshot;
+    private RateSeriesStore rateSeriesStore;
+    private CrossRateService crossRateService;
+    private RateBroadcaster rateBroadcaster;
+    private RateCoherence rateCoherence;
+    private RatePrefetcher ratePrefetcher;
+
+    @BeforeEach
+    void setUp() {
+        CurrencyApiProperties properties = new CurrencyApiProperties();
+        properties.setCurrencies(List.of(CurrencyCode.USD, CurrencyCode.EUR));
+        properties.getRetry().setAttempts(2);
+        properties.getRetry().setDelay(0);
+
+        upstreamGateway = mock(UpstreamGateway.class);
+        rateHistoryStore = mock(RateHistoryStore.class);
+        latestRateSnapshot = new LatestRateSnapshot();
+        rateSeriesStore = new RateSeriesStore();
+        crossRateService = mock(CrossRateService.class);
+        rateBroadcaster = mock(RateBroadcaster.class);
+        when(rateBroadcaster.subscribedCurrencies()).thenAnswer(invocation -> EnumSet.noneOf(CurrencyCode.class));
+        rateCoherence = mock(RateCoherence.class);
+        when(rateCoherence.isLeader()).thenReturn(true);
+        when(rateCoherence.peerInterest()).thenAnswer(invocation -> EnumSet.noneOf(CurrencyCode.class));
+        ratePrefetcher = new RatePrefetcher(properties, upstreamGateway, rateHistoryStore, latestRateSnapshot, rateSeriesStore,
+                crossRateService, rateBroadcaster, rateCoherence);
+    }
+
+    private static CurrencyRateDTO dto(String currency, LocalDate date, double rate) {
+        return new CurrencyRateDTO(currency, BigDecimal.valueOf(rate), date.atTime(16, 0));
+    }
+
+    /**
+     * Segment as the store returns it after loading the fixing into the series
+     */
+    private HistorySegment segment(CurrencyCode currency, LocalDate day, double rate) {
+        rateSeriesStore.get(currency).put(day.toEpochDay(), rate);
+        return new HistorySegment(currency, YearMonth.from(day), 1, day);
+    }
+
+    @Test
+    void refresh_swapsLatestFromRefreshedSegments() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        when(rateHistoryStore.refreshSegments(eq(Set.of(CurrencyCode.USD, CurrencyCode.EUR)), anyCollection()))
+                .thenReturn(List.of(
+                        segment(CurrencyCode.USD, day, 3.6),
+                        segment(CurrencyCode.EUR, day, 4.2)));
+        Map<CurrencyCode, CurrencyRateDTO> crossRates = Map.of(CurrencyCode.JPY, dto("JPY", day, 0.0243));
+        when(crossRateService.latestRates()).thenReturn(crossRates);
+
+        ratePrefetcher.refresh();
+
+        LatestRateSnapshot.Snapshot snapshot = latestRateSnapshot.current();
+        assertNotNull(snapshot.refreshedAt());
+        assertEquals(BigDecimal.valueOf(3.6), snapshot.rates().get(CurrencyCode.USD).getRate());
+        assertEquals(BigDecimal.valueOf(4.2), snapshot.rates().get(CurrencyCode.EUR).getRate());
+        verifyNoInteractions(upstreamGateway);
+        verify(crossRateService).rebuild();
+        verify(rateBroadcaster).publish(snapshot.rates());
+        verify(rateCoherence).publishRefresh(snapshot.rates(), crossRates, snapshot.refreshedAt());
+    }
+
+    @Test
+    void refresh_includesCurrenciesFollowedOnOtherInstances() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        when(rateCoherence.peerInterest()).thenAnswer(invocation -> EnumSet.of(CurrencyCode.CHF));
+        when(rateHistoryStore.refreshSegments(eq(Set.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.CHF)), anyCollection()))
+                .thenReturn(List.of(
+                        segment(CurrencyCode.USD, day, 3.6),
+                        segment(CurrencyCode.EUR, day, 4.2),
+                        segment(CurrencyCode.CHF, day, 4.5)));
+
+        ratePrefetcher.refresh();
+
+        assertEquals(BigDecimal.valueOf(4.5), latestRateSnapshot.get(CurrencyCode.CHF).getRate());
+    }
+
+    @Test
+    void refresh_anotherInstanceLeads_leftToTheLeader() {
+        when(rateCoherence.isLeader()).thenReturn(false);
+
+        ratePrefetcher.refresh();
+        ratePrefetcher.warmUp();
+
+        verifyNoInteractions(rateHistoryStore, upstreamGateway, crossRateService);
+        verify(rateCoherence).requestSync();
+        verify(rateCoherence, never()).publishRefresh(any(), any(), any());
+    }
+
+    @Test
+    void refresh_includesSubscribedCurrencies() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        when(rateBroadcaster.subscribedCurrencies()).thenAnswer(invocation -> EnumSet.of(CurrencyCode.GBP));
+        when(rateHistoryStore.refreshSegments(eq(Set.of(CurrencyCode.USD, CurrencyCode.EUR, CurrencyCode.GBP)), anyCollection()))
+                .thenReturn(List.of(
+                        segment(CurrencyCode.USD, day, 3.6),
+                        segment(CurrencyCode.EUR, day, 4.2),
+                        segment(CurrencyCode.GBP, day, 4.9)));
+
+        ratePrefetcher.refresh();
+
+        assertEquals(BigDecimal.valueOf(4.9), latestRateSnapshot.get(CurrencyCode.GBP).getRate());
+    }
+
+    @Test
+    void refresh_currencyWithoutFixingInSegments_fetchesLatest() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        when(rateHistoryStore.refreshSegments(anySet(), anyCollection()))
+                .thenReturn(List.of(
+                        segment(CurrencyCode.USD, day, 3.6),
+                        new HistorySegment(CurrencyCode.EUR, YearMonth.from(day), 0, null)));
+        when(upstreamGateway.fetchLatest(Set.of(CurrencyCode.EUR)))
+                .thenReturn(Map.of(CurrencyCode.EUR, dto("EUR", day.minusDays(1), 4.1)));
+
+        ratePrefetcher.refresh();
+
+        assertEquals(BigDecimal.valueOf(4.1), latestRateSnapshot.get(CurrencyCode.EUR).getRate());
+    }
+
+    @Test
+    void refresh_retriesWithConfiguredAttempts() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        when(rateHistoryStore.refreshSegments(anySet(), anyCollection()))
+                .thenThrow(new RuntimeException("API down"))
+                .thenReturn(List.of(
+                        segment(CurrencyCode.USD, day, 3.6),
+                        segment(CurrencyCode.EUR, day, 4.2)));
+
+        ratePrefetcher.refresh();
+
+        verify(rateHistoryStore, times(2)).refreshSegments(anySet(), anyCollection());
+        assertEquals("API down", ratePrefetcher.getLastFailure());
+        assertEquals(2, latestRateSnapshot.current().rates().size());
+    }
+
+    @Test
+    void refresh_allAttemptsFail_keepsPreviousSnapshot() {
+        when(rateHistoryStore.refreshSegments(anySet(), anyCollection())).thenThrow(new RuntimeException("API down"));
+
+        ratePrefetcher.refresh();
+
+        verify(rateHistoryStore, times(2)).refreshSegments(anySet(), anyCollection());
+        assertNull(latestRateSnapshot.current().refreshedAt());
+        // the cross rates keep their own previous matrix when their rates cannot be had either
+        verify(crossRateService).rebuild();
+    }
+}